@@ -3,7 +3,10 @@ package maps;
 import util.Entry;
 
 import java.util.ArrayList;
-import java.util.Random;
+import java.util.ConcurrentModificationException;
+import java.util.Iterator;
+import java.util.List;
+import java.util.function.BiFunction;
 
 /**
  * Java Hash Table implementation
@@ -12,6 +15,10 @@ import java.util.Random;
  * Mainly deals with calculating the hash value for a given key and resizing
  * the hash map when a certain condition is met which is usually when the table
  * hits a particular size to capacity ratio
+ * How hash codes are compressed into table indices, and how long the table is, is delegated
+ * to a HashStrategy chosen per map (MAD compression unless told otherwise)
+ * The table shrinks again once fewer than 1/8 of its buckets are used, but never below the
+ * capacity it was created with, unless trimToSize() is called
  *
  * Expected running time
  * get    : O(1)
@@ -25,25 +32,42 @@ public abstract class AbstractHashMap<K,V> extends AbstractMap<K,V> {
     protected int n = 0;
     // length of the table
     protected int capacity;
-    // prime factor
-    private int prime;
-    // shift and scaling factors
-    private long scale, shift;
+    // number of structural modifications, used by iterators to fail fast
+    protected int modCount = 0;
+    // compresses hash codes and chooses table lengths
+    private final HashStrategy strategy;
+    // capacity the table was created with, it does not shrink below it on its own
+    private final int minCapacity;
+
+    // -- incremental resize state --
+    // number of old buckets migrated by each get, put or remove while a resize is in progress
+    private static final int MIGRATION_STEP = 8;
+    // whether resizing migrates buckets a few at a time instead of all at once
+    private boolean incrementalResize = false;
+    // length of the table being drained, 0 when no resize is in progress
+    protected int oldCapacity = 0;
+    // next bucket of the old table to be migrated
+    private int migrationIdx = 0;
+
+    /**
+     * Initializes the hash strategy and capacity and then creates the hash table
+     * @param cap requested capacity, adjusted by the strategy
+     * @param hashStrategy strategy used to compress hash codes
+     */
+    public AbstractHashMap(int cap, HashStrategy hashStrategy) {
+        strategy = hashStrategy;
+        capacity = strategy.capacityFor(cap);
+        minCapacity = capacity;
+        createTable();
+    }
 
     /**
-     * Initializes capacity, prime, scale and shift and then creates the hash table
+     * Uses MAD compression with the given prime
      * @param cap capacity
      * @param p prime
      */
     public AbstractHashMap(int cap, int p) {
-        capacity = cap;
-        // For compress function
-        // @see compressFn
-        prime = p;
-        Random rand = new Random();
-        scale = rand.nextInt(prime - 1) + 1;
-        shift = rand.nextInt(prime);
-        createTable();
+        this(cap, new MADHashStrategy(p));
     }
 
     public AbstractHashMap(int cap) {
@@ -58,28 +82,181 @@ public abstract class AbstractHashMap<K,V> extends AbstractMap<K,V> {
 
     // -- public methods --
     public int size() { return n; }
+    // the public methods call hashCode once, and pass it on to migrate and the bucket methods
     public V get(K key) {
-        return bucketGet(hashValue(key), key);
+        int hashCode = hashCodeFn(key);
+        if(isResizing())
+            migrate(key, hashCode);
+        return bucketGet(compressFn(hashCode, capacity), key, hashCode);
     }
     public V remove(K key) {
-        return bucketRemove(hashValue(key), key);
+        int hashCode = hashCodeFn(key);
+        if(isResizing())
+            migrate(key, hashCode);
+        int oldSize = n;
+        V answer = bucketRemove(compressFn(hashCode, capacity), key, hashCode);
+        if(n != oldSize)
+            entryRemoved();
+        return answer;
     }
     public V put(K key, V value) {
-        V answer = bucketPut(hashValue(key), key, value);
-        // keep load factor <= 0.5
-        if(n > capacity / 2) {
-            // A prime number is most preferred as new capacity
-            resize(2 * capacity - 1);
-        }
+        int hashCode = hashCodeFn(key);
+        if(isResizing())
+            migrate(key, hashCode);
+        int oldSize = n;
+        V answer = bucketPut(compressFn(hashCode, capacity), key, value, hashCode);
+        if(n != oldSize)
+            entryAdded();
+        return answer;
+    }
+
+    /**
+     * Associates key with the value computed from key and its current value, in a single
+     * search of the bucket of key
+     * @see Map#compute
+     */
+    public V compute(K key, BiFunction<? super K, ? super V, ? extends V> remappingFunction) {
+        int hashCode = hashCodeFn(key);
+        if(isResizing())
+            migrate(key, hashCode);
+        int oldSize = n;
+        V answer = bucketCompute(compressFn(hashCode, capacity), key, remappingFunction, hashCode);
+        if(n > oldSize)
+            entryAdded();
+        else if(n < oldSize)
+            entryRemoved();
         return answer;
     }
 
+    /**
+     * Associates key with value unless key already has a value, in a single search of the
+     * bucket of key
+     * @see Map#putIfAbsent
+     */
+    public V putIfAbsent(K key, V value) {
+        int hashCode = hashCodeFn(key);
+        if(isResizing())
+            migrate(key, hashCode);
+        int oldSize = n;
+        V answer = bucketCompute(compressFn(hashCode, capacity), key, (k, old) -> old == null ? value : old, hashCode);
+        if(n == oldSize)
+            return answer;
+        entryAdded();
+        return null;
+    }
+
+    /**
+     * Chooses between resizing the whole table at once (the default) and resizing incrementally.
+     * When incremental, the old and new tables coexist after a resize and every subsequent
+     * get, put or remove migrates a bounded number of old buckets into the new table
+     * Turning it off completes any resize in progress
+     * @param incremental whether to resize incrementally
+     * @throws UnsupportedOperationException if the subclass can not migrate buckets incrementally
+     */
+    public void setIncrementalResize(boolean incremental) throws UnsupportedOperationException {
+        if(incremental && !supportsIncrementalResize())
+            throw new UnsupportedOperationException("Incremental resize not supported by " + getClass().getSimpleName());
+        if(!incremental)
+            finishMigration();
+        incrementalResize = incremental;
+    }
+
+    /**
+     * Shrinks the table to the smallest capacity holding the current entries within the
+     * load factor, possibly below the capacity the map was created with
+     * Tombstones left by removals, if any, are dropped, and the old table is released right
+     * away even when resizing incrementally
+     */
+    public void trimToSize() {
+        int newCap = capacity;
+        for(int smaller = strategy.shrink(newCap); smaller < newCap && n <= smaller / 2; smaller = strategy.shrink(newCap))
+            newCap = smaller;
+        resize(newCap);
+        finishMigration();
+    }
+
+    /**
+     * Returns true while entries of an old table are still being migrated into the current one
+     */
+    public boolean isResizing() { return oldCapacity > 0; }
+
+    /**
+     * Returns a copy of every entry of the map
+     * Unlike entrySet(), which walks the table in place, the copy is not affected by later
+     * changes to the map
+     * @return list of entries
+     */
+    public List<Entry<K,V>> snapshotEntries() {
+        List<Entry<K,V>> snapshot = new ArrayList<>(n);
+        for(Entry<K,V> e: entrySet())
+            snapshot.add(new MapEntry<>(e.getKey(), e.getValue()));
+        return snapshot;
+    }
+
+    /**
+     * Reports how the keys currently in the map are spread over the buckets of the table
+     * Useful to check that the hash strategy suits a real set of keys
+     * @return distribution report
+     */
+    public HashDistributionReport distributionReport() {
+        int[] keysPerBucket = new int[capacity];
+        for(Entry<K,V> e: entrySet())
+            keysPerBucket[hashValue(e.getKey())]++;
+        return new HashDistributionReport(keysPerBucket);
+    }
+
     // -- end of public methods --
 
-    // -- private utilities --
-    private int hashValue(K key) {
-        return compressFn(hashCodeFn(key));
+    // -- protected utilities --
+    /**
+     * Returns the hash value of key for the current table
+     */
+    protected int hashValue(K key) {
+        return compressFn(hashCodeFn(key), capacity);
+    }
+
+    /**
+     * Returns the hash value for the current table of a key having the given hash code
+     * Lets subclasses that cache hash codes find the bucket of a key without calling hashCode
+     */
+    protected int compressHashCode(int hashCode) {
+        return compressFn(hashCode, capacity);
+    }
+
+    /**
+     * Base class for iterators that walk the table in place
+     * Any pending incremental resize is completed when the iterator is created, and the
+     * iterator fails fast with a ConcurrentModificationException if entries are added or
+     * removed while it is in use. Updating the value of an existing key is allowed.
+     * @param <T> type of element returned
+     */
+    protected abstract class HashIterator<T> implements Iterator<T> {
+        private final int expectedModCount;
+
+        protected HashIterator() {
+            finishMigration();
+            expectedModCount = modCount;
+        }
+
+        /**
+         * Throws ConcurrentModificationException if the map was structurally modified
+         */
+        protected void checkForComodification() {
+            if(modCount != expectedModCount)
+                throw new ConcurrentModificationException();
+        }
+    }
+    /**
+     * Resizes the table to the next capacity chosen by the hash strategy
+     * Called when the load factor gets too high, and by subclasses that can not place an
+     * entry in the current table
+     */
+    protected void grow() {
+        resize(strategy.grow(capacity));
     }
+    // -- end of protected utilities --
+
+    // -- private utilities --
     // - hash function utilities -
     /**
      * HashCode function
@@ -92,20 +269,114 @@ public abstract class AbstractHashMap<K,V> extends AbstractMap<K,V> {
     }
     /**
      * Compression function.
-     * Maps an integer hashCode into the range [0, capacity-1]
-     * Minimizes number of collisions for a given set of distinct hash codes
-     * Uses the MAD method (Multiply-Add-and-Divide)
-     * MAD = [(ai + b) mod p] mod N, Goodrich pg 416
-     * prime is a prime number larger than n
-     * scale and shift are random numbers in the range [0, prime - 1], scale is greater than 0
+     * Maps an integer hashCode into the range [0, cap-1] using the map's hash strategy
+     * @see HashStrategy
+     * @param cap length of the table being addressed
      * @return hash value
      */
-    private int compressFn(int hashCode) {
-        return (int) ((Math.abs(hashCode() * scale + shift) % prime) % capacity);
+    private int compressFn(int hashCode, int cap) {
+        return strategy.compress(hashCode, cap);
     }
     // - end of hash function utilities -
 
+    private void entryAdded() {
+        modCount++;
+        // keep load factor <= 0.5
+        if(n > capacity / 2) {
+            grow();
+        }
+    }
+
+    private void entryRemoved() {
+        modCount++;
+        // low-water mark, well below the load factor so that tables do not keep resizing
+        if(n < capacity / 8 && capacity > minCapacity)
+            resize(Math.max(strategy.shrink(capacity), minCapacity));
+        else if(tombstones() > capacity / 4)
+            purgeTombstones();
+    }
+
     private void resize(int newCap) {
+        modCount++;
+        if(incrementalResize) {
+            // Only one old table is kept around at a time
+            finishMigration();
+            oldCapacity = capacity;
+            migrationIdx = 0;
+            capacity = newCap;
+            beginMigration();
+            return;
+        }
+        rebuild(newCap);
+    }
+
+    // - incremental resize utilities -
+    /**
+     * Migrates the next few buckets of the old table, then the old bucket (or cluster) that
+     * may hold key so that the caller only has to look in the current table
+     */
+    private void migrate(K key, int hashCode) {
+        for(int i = 0; i < MIGRATION_STEP && migrationIdx < oldCapacity; i++)
+            migrateBucket(migrationIdx++);
+        if(migrationIdx < oldCapacity)
+            migrateChain(compressFn(hashCode, oldCapacity), key);
+        else
+            finishMigration();
+    }
+
+    /**
+     * Migrates all remaining buckets of the old table, if any, and releases it
+     */
+    private void finishMigration() {
+        if(!isResizing())
+            return;
+        while(migrationIdx < oldCapacity)
+            migrateBucket(migrationIdx++);
+        endMigration();
+        oldCapacity = 0;
+    }
+    // - end of incremental resize utilities -
+    // protected abstract methods to be implemented by subclasses
+    protected abstract void createTable();
+    protected abstract V bucketGet(int h, K k);
+    protected abstract V bucketPut(int h, K k, V v);
+    protected abstract V bucketRemove(int h, K k);
+
+    // variants given the hash code of k, already computed to find h
+    // subclasses caching hash codes override them so that hashCode is called once per operation
+    protected V bucketGet(int h, K k, int hashCode) { return bucketGet(h, k); }
+    protected V bucketPut(int h, K k, V v, int hashCode) { return bucketPut(h, k, v); }
+    protected V bucketRemove(int h, K k, int hashCode) { return bucketRemove(h, k); }
+    protected V bucketCompute(int h, K k, BiFunction<? super K, ? super V, ? extends V> remappingFunction, int hashCode) {
+        return bucketCompute(h, k, remappingFunction);
+    }
+
+    /**
+     * Associates key k in bucket with hash value h with the value computed from k and its
+     * current value, removing the entry if the computed value is null, returns the new value
+     * Searches the bucket twice by default, subclasses override it to search it once
+     * @param h hash value
+     * @param k key
+     * @param remappingFunction function computing the new value
+     * @return new value, null if there is none
+     */
+    protected V bucketCompute(int h, K k, BiFunction<? super K, ? super V, ? extends V> remappingFunction) {
+        V old = bucketGet(h, k);
+        V value = remappingFunction.apply(k, old);
+        if(value != null)
+            bucketPut(h, k, value);
+        else if(old != null)
+            bucketRemove(h, k);
+        return value;
+    }
+
+    /**
+     * Moves every entry into a new table of capacity newCap, leaving n unchanged
+     * By default the entries are reinserted through put, which computes their hash codes
+     * again; subclasses caching hash codes may override it to reuse them
+     * @param newCap capacity of the new table
+     */
+    protected void rebuild(int newCap) {
         ArrayList<Entry<K,V>> buffer = new ArrayList<>(n);
         for(Entry<K,V> e: entrySet())
             buffer.add(e);
@@ -117,9 +388,48 @@ public abstract class AbstractHashMap<K,V> extends AbstractMap<K,V> {
         for(Entry<K,V> e: buffer)
             put(e.getKey(), e.getValue());
     }
-    // protected abstract methods to be implemented by subclasses
-    protected abstract void createTable();
-    protected abstract V bucketGet(int h, K k);
-    protected abstract V bucketPut(int h, K k, V v);
-    protected abstract V bucketRemove(int h, K k);
+
+    /**
+     * Returns the number of slots of the current table made unusable by removals, such as the
+     * DEFUNCT slots of open addressing, 0 by default
+     * purgeTombstones() is called once they exceed a quarter of the capacity
+     */
+    protected int tombstones() { return 0; }
+
+    /**
+     * Gets rid of the tombstones of the current table
+     * By default this is a same-size rebuild: a new table of the current capacity is filled
+     * with every entry, subclasses can purge their table in place instead
+     */
+    protected void purgeTombstones() { resize(capacity); }
+
+    // protected hooks for subclasses supporting incremental resize
+    /**
+     * Returns whether the subclass implements the migration hooks below
+     */
+    protected boolean supportsIncrementalResize() { return false; }
+
+    /**
+     * Keeps the current table as the old table and creates an empty table of the new capacity
+     */
+    protected void beginMigration() { throw new UnsupportedOperationException("beginMigration"); }
+
+    /**
+     * Moves the entries of old bucket idx into the current table, leaving n unchanged
+     * @param idx index into the old table
+     */
+    protected void migrateBucket(int idx) { throw new UnsupportedOperationException("migrateBucket"); }
+
+    /**
+     * Moves every entry of the old table that a search for key k starting at old hash value h
+     * could reach into the current table, leaving n unchanged
+     * @param h hash value of k for the old table
+     * @param k key
+     */
+    protected void migrateChain(int h, K k) { throw new UnsupportedOperationException("migrateChain"); }
+
+    /**
+     * Releases the old table once all of its buckets have been migrated
+     */
+    protected void endMigration() { throw new UnsupportedOperationException("endMigration"); }
 }
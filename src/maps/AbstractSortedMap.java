@@ -28,6 +28,11 @@ public abstract class AbstractSortedMap<K,V> extends AbstractMap<K,V> implements
         comp = new DefaultComparator<>();
     }
 
+    /**
+     * Returns the comparator defining the ordering of keys
+     */
+    public Comparator<K> comparator() { return comp; }
+
     /**
      * Utility function to compare two entries based on the comparator of the sorted map class
      * @param a entry a
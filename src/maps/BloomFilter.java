@@ -0,0 +1,115 @@
+package maps;
+
+import java.util.function.ToIntFunction;
+
+/**
+ * A Bloom filter: a set of keys that may answer yes for a key that was never added, but
+ * never answers no for a key that was
+ *
+ * A key sets k bits of an array of m bits, chosen from two hashes of its hash code by double
+ * hashing, h1 + i * h2 for i from 0 to k - 1. A key whose k bits are not all set was never
+ * added. For n keys and a false positive rate p the filter uses m = -n ln(p) / ln(2)^2 bits,
+ * about 9.6 bits per key for 1%, and k = m / n ln(2) hashes.
+ *
+ * Keys are only known by their hash code, or by the hash given to the constructor, so keys
+ * having the same hash are the same key for the filter. Keys can not be removed.
+ *
+ * Running time
+ * add         : O(k)
+ * mightContain : O(k)
+ *
+ * @param <E> key
+ */
+public class BloomFilter<E> {
+    private final long[] bits;
+    // number of bits
+    private final long m;
+    // number of hashes
+    private final int k;
+    private final ToIntFunction<? super E> keyHash;
+    private int n = 0;
+
+    // -- constructors --
+    public BloomFilter(int expectedKeys, double falsePositiveRate) throws IllegalArgumentException {
+        this(expectedKeys, falsePositiveRate, Object::hashCode);
+    }
+
+    /**
+     * Creates an empty filter
+     * @param expectedKeys number of keys the filter is sized for
+     * @param falsePositiveRate false positive rate once expectedKeys keys are added
+     * @param keyHash hash of a key, the same for keys that must be found equal
+     * @throws IllegalArgumentException if falsePositiveRate is not between 0 and 1
+     */
+    public BloomFilter(int expectedKeys, double falsePositiveRate, ToIntFunction<? super E> keyHash) throws IllegalArgumentException {
+        if(!(falsePositiveRate > 0 && falsePositiveRate < 1))
+            throw new IllegalArgumentException("False positive rate must be between 0 and 1: " + falsePositiveRate);
+        int keys = Math.max(expectedKeys, 1);
+        long bitCount = (long) Math.ceil(-keys * Math.log(falsePositiveRate) / (Math.log(2) * Math.log(2)));
+        bits = new long[(int) Math.max(1, (bitCount + 63) / 64)];
+        m = 64L * bits.length;
+        k = Math.max(1, (int) Math.round((double) m / keys * Math.log(2)));
+        this.keyHash = keyHash;
+    }
+    // -- end of constructors --
+
+    // -- private utilities --
+    private static int h1(int hashCode) {
+        return PowerOfTwoHashStrategy.mix(hashCode);
+    }
+
+    /**
+     * Second hash, odd so that it is never 0
+     */
+    private static int h2(int hashCode) {
+        return PowerOfTwoHashStrategy.mix(hashCode ^ 0x5bd1e995) | 1;
+    }
+
+    private long bitIndex(int h1, int h2, int i) {
+        return Math.floorMod(h1 + (long) i * h2, m);
+    }
+    // -- end of private utilities --
+
+    /**
+     * Adds key to the filter
+     */
+    public void add(E key) {
+        int hashCode = keyHash.applyAsInt(key);
+        int a = h1(hashCode);
+        int b = h2(hashCode);
+        for(int i = 0; i < k; i++) {
+            long idx = bitIndex(a, b, i);
+            bits[(int) (idx >>> 6)] |= 1L << idx;
+        }
+        n++;
+    }
+
+    /**
+     * Returns false if key was never added, true if it probably was
+     */
+    public boolean mightContain(E key) {
+        int hashCode = keyHash.applyAsInt(key);
+        int a = h1(hashCode);
+        int b = h2(hashCode);
+        for(int i = 0; i < k; i++) {
+            long idx = bitIndex(a, b, i);
+            if((bits[(int) (idx >>> 6)] & (1L << idx)) == 0)
+                return false;
+        }
+        return true;
+    }
+
+    /**
+     * Returns the number of calls to add
+     */
+    public int count() { return n; }
+    public long bitSize() { return m; }
+    public int hashCount() { return k; }
+
+    /**
+     * Returns the expected false positive rate for the keys added so far, (1 - e^(-kn/m))^k
+     */
+    public double expectedFalsePositiveRate() {
+        return Math.pow(1 - Math.exp(-(double) k * n / m), k);
+    }
+}
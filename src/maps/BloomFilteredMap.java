@@ -0,0 +1,175 @@
+package maps;
+
+import util.Entry;
+
+import java.util.function.BiFunction;
+import java.util.function.ToIntFunction;
+
+/**
+ * A map decorated with a Bloom filter of its keys, answering most misses without searching it
+ *
+ * get first asks the filter, and only searches the map if the key might be in it. A miss then
+ * costs k bit tests instead of a search, which matters for maps whose search is slow, such as
+ * the O(log n) comparator walk of sorted maps. Keys that pass the filter but are not in the map
+ * are false positives, counted along with the misses the filter answered.
+ *
+ * The filter is sized for twice the number of entries. It is rebuilt from the keys of the map
+ * at twice the size once the map grows past that, and at the same size once removed keys, which
+ * a Bloom filter can not forget, outnumber the entries.
+ *
+ * The map must only be updated through the decorator, or the filter misses keys. Keys the map
+ * finds equal must have the same key hash, or the filter rules out keys that are in the map.
+ * The key hash is hashCode by default, which suits maps comparing keys with equals. Maps
+ * comparing keys otherwise, such as sorted maps with a comparator, need a key hash consistent
+ * with it.
+ *
+ * Expected running time, in addition to the running time of the map
+ * get    : O(k)
+ * put    : O(k) amortized
+ * remove : O(1) amortized
+ *
+ * @param <K> key
+ * @param <V> value
+ */
+public class BloomFilteredMap<K,V> extends AbstractMap<K,V> {
+    private final Map<K,V> map;
+    private final double falsePositiveRate;
+    private final ToIntFunction<? super K> keyHash;
+    private BloomFilter<K> filter;
+    // number of entries the filter is sized for
+    private int capacity;
+    // keys removed since the filter was built
+    private int stale = 0;
+    // -- statistics --
+    private long lookups = 0;
+    private long filterHits = 0;
+    private long falsePositives = 0;
+
+    // -- constructors --
+    public BloomFilteredMap(Map<K,V> map) { this(map, 0.01); }
+
+    /**
+     * Decorates map, which may already have entries
+     * @param map map to decorate
+     * @param falsePositiveRate false positive rate of the filter
+     * @throws IllegalArgumentException if falsePositiveRate is not between 0 and 1
+     */
+    public BloomFilteredMap(Map<K,V> map, double falsePositiveRate) throws IllegalArgumentException {
+        this(map, falsePositiveRate, Object::hashCode);
+    }
+
+    /**
+     * Decorates map, which may already have entries
+     * @param map map to decorate
+     * @param falsePositiveRate false positive rate of the filter
+     * @param keyHash hash of a key, the same for every two keys the map finds equal
+     * @throws IllegalArgumentException if falsePositiveRate is not between 0 and 1
+     */
+    public BloomFilteredMap(Map<K,V> map, double falsePositiveRate, ToIntFunction<? super K> keyHash) throws IllegalArgumentException {
+        this.map = map;
+        this.falsePositiveRate = falsePositiveRate;
+        this.keyHash = keyHash;
+        rebuild(Math.max(16, 2 * map.size()));
+    }
+    // -- end of constructors --
+
+    // -- private utilities --
+    /**
+     * Builds a filter of the keys of the map, sized for capacity entries
+     */
+    private void rebuild(int capacity) {
+        this.capacity = capacity;
+        filter = new BloomFilter<>(capacity, falsePositiveRate, keyHash);
+        for(Entry<K,V> e: map.entrySet())
+            filter.add(e.getKey());
+        stale = 0;
+    }
+
+    private void added(K key) {
+        filter.add(key);
+        if(map.size() > capacity)
+            rebuild(2 * capacity);
+    }
+
+    private void removed() {
+        if(++stale > Math.max(map.size(), 16))
+            rebuild(capacity);
+    }
+    // -- end of private utilities --
+
+    public int size() { return map.size(); }
+
+    /**
+     * Returns value associated with key, else null, without searching the map if the filter
+     * rules key out
+     */
+    public V get(K key) {
+        lookups++;
+        if(!filter.mightContain(key)) {
+            filterHits++;
+            return null;
+        }
+        V value = map.get(key);
+        if(value == null)
+            falsePositives++;
+        return value;
+    }
+
+    public V put(K key, V value) {
+        int before = map.size();
+        V old = map.put(key, value);
+        if(map.size() > before)
+            added(key);
+        return old;
+    }
+
+    public V remove(K key) {
+        if(!filter.mightContain(key))
+            return null;
+        int before = map.size();
+        V old = map.remove(key);
+        if(map.size() < before)
+            removed();
+        return old;
+    }
+
+    /**
+     * Delegates to compute of the map, so that it searches it once
+     */
+    public V compute(K key, BiFunction<? super K, ? super V, ? extends V> remappingFunction) {
+        int before = map.size();
+        V value = map.compute(key, remappingFunction);
+        if(map.size() > before)
+            added(key);
+        else if(map.size() < before)
+            removed();
+        return value;
+    }
+
+    // -- statistics --
+    /**
+     * Returns the number of calls to get
+     */
+    public long lookupCount() { return lookups; }
+
+    /**
+     * Returns the number of calls to get answered by the filter alone
+     */
+    public long filterHitCount() { return filterHits; }
+
+    /**
+     * Returns the number of calls to get that searched the map for a missing key
+     */
+    public long falsePositiveCount() { return falsePositives; }
+
+    /**
+     * Returns the fraction of misses that the filter let through, 0 if there were no misses
+     */
+    public double observedFalsePositiveRate() {
+        long misses = filterHits + falsePositives;
+        return misses == 0 ? 0 : (double) falsePositives / misses;
+    }
+    // -- end of statistics --
+
+    public Iterable<Entry<K,V>> entrySet() { return map.entrySet(); }
+}
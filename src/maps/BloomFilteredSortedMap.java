@@ -0,0 +1,63 @@
+package maps;
+
+import priorityqueue.DefaultComparator;
+import util.Entry;
+
+import java.util.function.ToIntFunction;
+
+/**
+ * A sorted map decorated with a Bloom filter of its keys, see BloomFilteredMap
+ *
+ * get skips the search of the map when the filter rules the key out. The navigation methods
+ * can not be answered by a filter and go straight to the map.
+ *
+ * The map finds keys with its comparator, so the filter needs a key hash that is the same for
+ * keys it compares equal. Without one, hashCode is used, and the map must use the natural
+ * ordering of its keys, consistent with equals. An AbstractSortedMap with another comparator
+ * is rejected.
+ *
+ * @param <K> key
+ * @param <V> value
+ */
+public class BloomFilteredSortedMap<K,V> extends BloomFilteredMap<K,V> implements SortedMap<K,V> {
+    private final SortedMap<K,V> map;
+
+    // -- constructors --
+    public BloomFilteredSortedMap(SortedMap<K,V> map) throws IllegalArgumentException {
+        this(map, 0.01);
+    }
+
+    /**
+     * Decorates map, which must use the natural ordering of its keys
+     * @throws IllegalArgumentException if map is an AbstractSortedMap with another comparator,
+     *                                  or falsePositiveRate is not between 0 and 1
+     */
+    public BloomFilteredSortedMap(SortedMap<K,V> map, double falsePositiveRate) throws IllegalArgumentException {
+        super(requireNaturalOrdering(map), falsePositiveRate);
+        this.map = map;
+    }
+
+    /**
+     * Decorates map, whose comparator finds two keys equal only if keyHash is the same for both
+     * @throws IllegalArgumentException if falsePositiveRate is not between 0 and 1
+     */
+    public BloomFilteredSortedMap(SortedMap<K,V> map, double falsePositiveRate, ToIntFunction<? super K> keyHash) throws IllegalArgumentException {
+        super(map, falsePositiveRate, keyHash);
+        this.map = map;
+    }
+    // -- end of constructors --
+
+    private static <K,V> SortedMap<K,V> requireNaturalOrdering(SortedMap<K,V> map) throws IllegalArgumentException {
+        if(map instanceof AbstractSortedMap && !(((AbstractSortedMap<K,V>) map).comparator() instanceof DefaultComparator))
+            throw new IllegalArgumentException("Map has a comparator, a key hash consistent with it is needed");
+        return map;
+    }
+
+    public Entry<K,V> firstEntry() { return map.firstEntry(); }
+    public Entry<K,V> lastEntry() { return map.lastEntry(); }
+    public Entry<K,V> ceilingEntry(K k) { return map.ceilingEntry(k); }
+    public Entry<K,V> floorEntry(K k) { return map.floorEntry(k); }
+    public Entry<K,V> lowerEntry(K k) { return map.lowerEntry(k); }
+    public Entry<K,V> higherEntry(K k) { return map.higherEntry(k); }
+    public Iterable<Entry<K,V>> subMap(K fromKey, K toKey) { return map.subMap(fromKey, toKey); }
+}
@@ -0,0 +1,301 @@
+package maps;
+
+import lists.position.LinkedPositionalList;
+import util.Entry;
+import util.Position;
+
+import java.util.ArrayList;
+import java.util.function.BiConsumer;
+import java.util.function.ToIntBiFunction;
+
+/**
+ * A map of bounded weight that evicts entries once the bound is exceeded
+ *
+ * A ChainHashMap indexes each key to its entry, and each entry knows its position in a
+ * LinkedPositionalList ordering entries from the next one to evict to the last one, so that
+ * moving an entry in that order never goes back to the index. The policy decides the order:
+ * - LRU: entries move to the back of the list when they are read or updated
+ * - FIFO: entries stay in insertion order
+ * - LFU: a list of frequencies, in increasing order, each holding the list of entries that
+ *   were accessed that many times, least recently accessed first. An access moves an entry
+ *   to the next frequency, creating it if it is missing, and drops its old frequency once
+ *   empty, so the least frequently used entry is always at the front of the first frequency
+ *
+ * Every entry has a weight given by the weigher, 1 by default so that the maximum weight is a
+ * number of entries, or for example an estimate of its size in bytes. When the total weight
+ * exceeds the maximum weight, entries are evicted in order and the eviction listeners called
+ * with each of them. An entry heavier than the maximum weight is evicted as soon as it is put,
+ * along with the entry it replaces, without evicting any other entry.
+ *
+ * get counts hits and misses, the other methods do not.
+ *
+ * Expected running time
+ * get      : O(1)
+ * put      : O(1) plus O(1) per evicted entry
+ * remove   : O(1)
+ * entrySet : O(n)
+ *
+ * @param <K> key
+ * @param <V> value
+ */
+public class BoundedCache<K,V> extends AbstractMap<K,V> {
+    /**
+     * Order in which entries are evicted
+     */
+    public enum Policy { LRU, LFU, FIFO }
+
+    // -- nested CacheEntry and Frequency classes --
+    private static class CacheEntry<K,V> extends MapEntry<K,V> {
+        private int weight;
+        // position in the list of entries it belongs to
+        private Position<CacheEntry<K,V>> position;
+        // LFU only, position of the frequency whose list holds the entry
+        private Position<Frequency<K,V>> frequency;
+
+        CacheEntry(K key, V value, int weight) {
+            super(key, value);
+            this.weight = weight;
+        }
+    }
+
+    /**
+     * Entries that were accessed count times, least recently accessed first
+     */
+    private static class Frequency<K,V> {
+        private final long count;
+        private final LinkedPositionalList<CacheEntry<K,V>> entries = new LinkedPositionalList<>();
+
+        Frequency(long count) { this.count = count; }
+    }
+    // -- end of nested classes --
+
+    private final Policy policy;
+    private final long maximumWeight;
+    private final ToIntBiFunction<? super K, ? super V> weigher;
+    private final ChainHashMap<K, CacheEntry<K,V>> index = new ChainHashMap<>();
+    // LRU and FIFO, entries from the next one to evict to the last one
+    private final LinkedPositionalList<CacheEntry<K,V>> order = new LinkedPositionalList<>();
+    // LFU, frequencies in increasing order of count
+    private final LinkedPositionalList<Frequency<K,V>> frequencies = new LinkedPositionalList<>();
+    private final ArrayList<BiConsumer<? super K, ? super V>> listeners = new ArrayList<>();
+    private long totalWeight = 0;
+    // -- statistics --
+    private long hits = 0;
+    private long misses = 0;
+    private long evictions = 0;
+
+    // -- constructors --
+    /**
+     * Creates a cache holding at most maximumSize entries
+     */
+    public BoundedCache(long maximumSize, Policy policy) {
+        this(maximumSize, policy, (k, v) -> 1);
+    }
+
+    /**
+     * Creates a cache whose entries weigh at most maximumWeight in total
+     * @param maximumWeight maximum total weight
+     * @param policy eviction policy
+     * @param weigher weight of an entry, must not be negative
+     * @throws IllegalArgumentException if maximumWeight is not positive
+     */
+    public BoundedCache(long maximumWeight, Policy policy, ToIntBiFunction<? super K, ? super V> weigher) throws IllegalArgumentException {
+        if(maximumWeight <= 0)
+            throw new IllegalArgumentException("Maximum weight must be positive: " + maximumWeight);
+        this.maximumWeight = maximumWeight;
+        this.policy = policy;
+        this.weigher = weigher;
+    }
+    // -- end of constructors --
+
+    // -- private utilities --
+    private int weigh(K key, V value) throws IllegalArgumentException {
+        int weight = weigher.applyAsInt(key, value);
+        if(weight < 0)
+            throw new IllegalArgumentException("Negative weight for key " + key);
+        return weight;
+    }
+
+    /**
+     * Adds a new entry last in eviction order
+     */
+    private void link(CacheEntry<K,V> e) {
+        if(policy != Policy.LFU) {
+            e.position = order.addLast(e);
+            return;
+        }
+        Position<Frequency<K,V>> first = frequencies.first();
+        if(first == null || first.getElement().count != 1)
+            first = frequencies.addFirst(new Frequency<>(1));
+        e.frequency = first;
+        e.position = first.getElement().entries.addLast(e);
+    }
+
+    private void unlink(CacheEntry<K,V> e) {
+        if(policy != Policy.LFU) {
+            order.remove(e.position);
+            return;
+        }
+        Frequency<K,V> f = e.frequency.getElement();
+        f.entries.remove(e.position);
+        if(f.entries.isEmpty())
+            frequencies.remove(e.frequency);
+    }
+
+    /**
+     * Records an access to entry e
+     */
+    private void touch(CacheEntry<K,V> e) {
+        switch(policy) {
+            case LRU:
+                order.remove(e.position);
+                e.position = order.addLast(e);
+                break;
+            case LFU:
+                Position<Frequency<K,V>> current = e.frequency;
+                long count = current.getElement().count;
+                Position<Frequency<K,V>> next = frequencies.after(current);
+                if(next == null || next.getElement().count != count + 1)
+                    next = frequencies.addAfter(current, new Frequency<>(count + 1));
+                unlink(e);
+                e.frequency = next;
+                e.position = next.getElement().entries.addLast(e);
+                break;
+            case FIFO:
+                break;
+        }
+    }
+
+    /**
+     * Returns the next entry to evict, the cache must not be empty
+     */
+    private CacheEntry<K,V> victim() {
+        if(policy == Policy.LFU)
+            return frequencies.first().getElement().entries.first().getElement();
+        return order.first().getElement();
+    }
+
+    /**
+     * Evicts entries until the total weight fits the maximum weight
+     */
+    private void evict() {
+        while(totalWeight > maximumWeight && !index.isEmpty()) {
+            CacheEntry<K,V> e = victim();
+            index.remove(e.getKey());
+            unlink(e);
+            totalWeight -= e.weight;
+            evictions++;
+            for(BiConsumer<? super K, ? super V> listener: listeners)
+                listener.accept(e.getKey(), e.getValue());
+        }
+    }
+    // -- end of private utilities --
+
+    public int size() { return index.size(); }
+
+    /**
+     * Returns value associated with key, else null, counting a hit or a miss
+     */
+    public V get(K key) {
+        CacheEntry<K,V> e = index.get(key);
+        if(e == null) {
+            misses++;
+            return null;
+        }
+        hits++;
+        touch(e);
+        return e.getValue();
+    }
+
+    /**
+     * Associates key with value, evicting entries if the maximum weight is exceeded
+     * @return old value, null if new entry is created
+     * @throws IllegalArgumentException if the weigher returns a negative weight
+     */
+    public V put(K key, V value) throws IllegalArgumentException {
+        int weight = weigh(key, value);
+        CacheEntry<K,V> e = index.get(key);
+        V old = null;
+        if(weight > maximumWeight) {
+            // evict the entry alone, the others stay where they are
+            if(e != null) {
+                old = e.getValue();
+                index.remove(key);
+                unlink(e);
+                totalWeight -= e.weight;
+            }
+            evictions++;
+            for(BiConsumer<? super K, ? super V> listener: listeners)
+                listener.accept(key, value);
+            return old;
+        }
+        if(e != null) {
+            old = e.setValue(value);
+            totalWeight += weight - e.weight;
+            e.weight = weight;
+            touch(e);
+        } else {
+            // make room first, so that the new entry is not the one evicted
+            totalWeight += weight;
+            evict();
+            e = new CacheEntry<>(key, value, weight);
+            index.put(key, e);
+            link(e);
+        }
+        evict();
+        return old;
+    }
+
+    /**
+     * Removes entry having key, returns its value or null, without calling eviction listeners
+     */
+    public V remove(K key) {
+        CacheEntry<K,V> e = index.remove(key);
+        if(e == null)
+            return null;
+        unlink(e);
+        totalWeight -= e.weight;
+        return e.getValue();
+    }
+
+    /**
+     * Registers listener to be called with the key and value of every evicted entry
+     */
+    public void addEvictionListener(BiConsumer<? super K, ? super V> listener) {
+        listeners.add(listener);
+    }
+
+    // -- statistics --
+    public long weight() { return totalWeight; }
+    public long maximumWeight() { return maximumWeight; }
+    public long hitCount() { return hits; }
+    public long missCount() { return misses; }
+    public long evictionCount() { return evictions; }
+
+    /**
+     * Returns the fraction of calls to get that found their key, 0 if get was never called
+     */
+    public double hitRate() {
+        long lookups = hits + misses;
+        return lookups == 0 ? 0 : (double) hits / lookups;
+    }
+    // -- end of statistics --
+
+    /**
+     * Returns an iterable collection of all key value pairs, from the next one to evict
+     * to the last one
+     * The entries are copied when entrySet is called, accesses during iteration do not move them
+     * @return iterable collection of entries
+     */
+    public Iterable<Entry<K,V>> entrySet() {
+        ArrayList<Entry<K,V>> buffer = new ArrayList<>(size());
+        if(policy == Policy.LFU) {
+            for(Position<Frequency<K,V>> f: frequencies.positions())
+                for(Position<CacheEntry<K,V>> e: f.getElement().entries.positions())
+                    buffer.add(e.getElement());
+        } else
+            for(Position<CacheEntry<K,V>> e: order.positions())
+                buffer.add(e.getElement());
+        return buffer;
+    }
+}
@@ -2,12 +2,31 @@ package maps;
 
 import util.Entry;
 
-import java.util.ArrayList;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.Iterator;
+import java.util.NoSuchElementException;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.RecursiveAction;
+import java.util.function.BiFunction;
+import java.util.function.IntConsumer;
 
 /**
  * A complete definition of ChainHashMap which implements a hash table with separate chaining.
+ * Buckets start out as UnsortedTableMaps, searched linearly. A bucket that grows past
+ * TREEIFY_THRESHOLD entries whose keys are all Comparable instances of the same class is
+ * converted to a SortedTableMap searched by binary search, and converted back once it
+ * shrinks below UNTREEIFY_THRESHOLD entries, so poorly distributed keys can not turn a
+ * lookup into a linear scan
+ * As in java.util.HashMap, sorted buckets order keys by hash code first and by compareTo
+ * second, and a key found by the search must also be equal to the one looked up. Keys whose
+ * ordering disagrees with equals, such as BigDecimal 1.0 and 1.00, could otherwise be merged:
+ * a bucket holding two keys that compare equal without being equal stays unsorted.
+ *
+ * Large tables are rebuilt in parallel when they grow or shrink, see rebuild
+ *
  * Expected running time
- * bucketGet    : O(1)
+ * bucketGet    : O(1), worst case O(log n) for comparable keys
  * bucketPut    : O(1)
  * bucketRemove : O(1)
  * entrySet     : O(n)
@@ -17,26 +36,128 @@ import java.util.ArrayList;
  */
 public class ChainHashMap<K,V> extends AbstractHashMap<K,V> {
     /**
-     * A fixed capacity array of UnsortedTableMap that serve as buckets
-     * initialized within createTable
+     * Size beyond which a bucket is converted to a SortedTableMap
+     */
+    static final int TREEIFY_THRESHOLD = 8;
+    /**
+     * Size below which a SortedTableMap bucket is converted back to an UnsortedTableMap
+     */
+    static final int UNTREEIFY_THRESHOLD = 6;
+    /**
+     * Number of entries from which tables are rebuilt in parallel
      */
-    private UnsortedTableMap<K,V>[] table;
+    static final int PARALLEL_REBUILD_THRESHOLD = 1 << 16;
+    /**
+     * Order of the keys of sorted buckets, by hash code then by natural ordering
+     */
+    private static final Comparator<Object> TREE_ORDER = (a, b) -> {
+        int c = Integer.compare(a.hashCode(), b.hashCode());
+        return c != 0 ? c : ((Comparable<Object>) a).compareTo(b);
+    };
+
+    /**
+     * A fixed capacity array of maps that serve as buckets, either UnsortedTableMap
+     * or SortedTableMap, initialized within createTable
+     */
+    private AbstractMap<K,V>[] table;
+    /**
+     * Buckets still being migrated during an incremental resize, null otherwise
+     */
+    private AbstractMap<K,V>[] oldTable;
 
     // -- constructors --
     public ChainHashMap() { super(); }
     public ChainHashMap(int cap) { super(cap); }
     public ChainHashMap(int cap, int p) { super(cap,p); }
+    public ChainHashMap(int cap, HashStrategy strategy) { super(cap, strategy); }
     // -- end of constructors --
 
     /***
      * Create an empty table having length equal to the current capacity
-     * The table is made up of buckets which are of type UnsortedTableMap
+     * The table is made up of buckets which are of type UnsortedTableMap or SortedTableMap
      * Each bucket created is null at first
      */
     protected void createTable() {
-        table = (UnsortedTableMap<K, V>[]) new UnsortedTableMap[capacity];
+        table = (AbstractMap<K, V>[]) new AbstractMap[capacity];
+    }
+
+    // -- private bucket utilities --
+    /**
+     * Returns whether k can be searched for in a sorted bucket, ie whether it is
+     * Comparable and of the same class as the keys already in the bucket
+     */
+    private boolean fitsSortedBucket(SortedTableMap<K,V> bucket, K k) {
+        Entry<K,V> first = bucket.firstEntry();
+        return k instanceof Comparable && (first == null || first.getKey().getClass() == k.getClass());
     }
 
+    /**
+     * Returns the entry of the sorted bucket that k falls on, the entry having key k if any
+     * The entry may have a key that compares equal to k without being equal to it
+     */
+    private Entry<K,V> sortedEntry(SortedTableMap<K,V> bucket, K k) {
+        Entry<K,V> e = bucket.ceilingEntry(k);
+        return e != null && bucket.compare(k, e.getKey()) == 0 ? e : null;
+    }
+
+    /**
+     * Returns the bucket at index h that k should be looked up in or inserted into,
+     * creating it or converting it back to an unsorted bucket if needed
+     */
+    private AbstractMap<K,V> bucketFor(int h, K k) {
+        AbstractMap<K,V> bucket = table[h];
+        if(bucket == null)
+            bucket = table[h] = new UnsortedTableMap<>();
+        else if(bucket instanceof SortedTableMap) {
+            SortedTableMap<K,V> sorted = (SortedTableMap<K,V>) bucket;
+            Entry<K,V> e;
+            if(!fitsSortedBucket(sorted, k) || ((e = sortedEntry(sorted, k)) != null && !e.getKey().equals(k)))
+                bucket = table[h] = untreeify(bucket);
+        }
+        return bucket;
+    }
+
+    /**
+     * Converts bucket h to a sorted bucket if it has grown too large and its keys allow it
+     */
+    private void treeifyIfNeeded(int h) {
+        AbstractMap<K,V> bucket = table[h];
+        if(!(bucket instanceof UnsortedTableMap) || bucket.size() <= TREEIFY_THRESHOLD)
+            return;
+        Class<?> keyClass = null;
+        for(Entry<K,V> e: bucket.entrySet()) {
+            K key = e.getKey();
+            if(!(key instanceof Comparable) || (keyClass != null && key.getClass() != keyClass))
+                // keys are not mutually comparable, keep the linear bucket
+                return;
+            keyClass = key.getClass();
+        }
+        SortedTableMap<K,V> sorted = new SortedTableMap<>((Comparator<K>) TREE_ORDER);
+        for(Entry<K,V> e: bucket.entrySet())
+            sorted.put(e.getKey(), e.getValue());
+        // two keys compared equal without being equal, keep the linear bucket
+        if(sorted.size() < bucket.size())
+            return;
+        table[h] = sorted;
+    }
+
+    /**
+     * Converts bucket h back to an unsorted bucket once it has shrunk
+     */
+    private void untreeifyIfNeeded(int h) {
+        AbstractMap<K,V> bucket = table[h];
+        if(bucket instanceof SortedTableMap && bucket.size() < UNTREEIFY_THRESHOLD)
+            table[h] = untreeify(bucket);
+    }
+
+    private UnsortedTableMap<K,V> untreeify(AbstractMap<K,V> bucket) {
+        UnsortedTableMap<K,V> unsorted = new UnsortedTableMap<>();
+        for(Entry<K,V> e: bucket.entrySet())
+            unsorted.put(e.getKey(), e.getValue());
+        return unsorted;
+    }
+    // -- end of private bucket utilities --
+
     /**
      * Returns value associated with key k in bucket with hash value h, else null
      * @param h hashValue
@@ -44,9 +165,17 @@ public class ChainHashMap<K,V> extends AbstractHashMap<K,V> {
      * @return value associated with key, else null
      */
     protected V bucketGet(int h, K k) {
-        UnsortedTableMap<K,V> bucket = table[h];
+        AbstractMap<K,V> bucket = table[h];
         if (bucket == null)
             return null;
+        if (bucket instanceof SortedTableMap) {
+            SortedTableMap<K,V> sorted = (SortedTableMap<K,V>) bucket;
+            // a key that can not be compared with the keys of a sorted bucket is not in it
+            if(!fitsSortedBucket(sorted, k))
+                return null;
+            Entry<K,V> e = sortedEntry(sorted, k);
+            return e != null && e.getKey().equals(k) ? e.getValue() : null;
+        }
         return bucket.get(k);
     }
 
@@ -58,10 +187,7 @@ public class ChainHashMap<K,V> extends AbstractHashMap<K,V> {
      * @return old value
      */
     protected V bucketPut(int h, K k, V v) {
-        UnsortedTableMap<K,V> bucket = table[h];
-        if(bucket == null) {
-            bucket = table[h] = new UnsortedTableMap<>();
-        }
+        AbstractMap<K,V> bucket = bucketFor(h, k);
         // Size of bucket may or may not change when we perform a put on it
         // If we end up performing an update size will not change
         // However, if a new entry gets added to the bucket size will change
@@ -70,6 +196,7 @@ public class ChainHashMap<K,V> extends AbstractHashMap<K,V> {
         V answer = bucket.put(k, v);
         int bucketSizeChange = bucket.size() - oldSize;
         n += bucketSizeChange;
+        treeifyIfNeeded(h);
         return answer;
     }
 
@@ -81,9 +208,15 @@ public class ChainHashMap<K,V> extends AbstractHashMap<K,V> {
      * @return value of removed entry
      */
     protected V bucketRemove(int h, K k) {
-        UnsortedTableMap<K,V> bucket = table[h];
+        AbstractMap<K,V> bucket = table[h];
         if(bucket == null)
             return null;
+        if(bucket instanceof SortedTableMap) {
+            SortedTableMap<K,V> sorted = (SortedTableMap<K,V>) bucket;
+            Entry<K,V> e;
+            if(!fitsSortedBucket(sorted, k) || (e = sortedEntry(sorted, k)) == null || !e.getKey().equals(k))
+                return null;
+        }
         // Size of bucket may or may not change when we perform a remove on it
         // If an entry with given key existed size of bucket will change
         // However, if no such entry existed in bucket size will not change
@@ -92,23 +225,214 @@ public class ChainHashMap<K,V> extends AbstractHashMap<K,V> {
         V answer = bucket.remove(k);
         int bucketSizeChange = bucket.size() - oldSize;
         n += bucketSizeChange;
+        untreeifyIfNeeded(h);
         return answer;
     }
 
     /**
-     * Returns an iterable collection of all key-value entries of the map
-     * @return iterable collection
+     * Computes the new value for key k in bucket with hash value h, searching the bucket once
+     * @param h hash value
+     * @param k key
+     * @param remappingFunction function computing the new value from k and its current value
+     * @return new value, null if the entry is removed or was not created
+     */
+    protected V bucketCompute(int h, K k, BiFunction<? super K, ? super V, ? extends V> remappingFunction) {
+        AbstractMap<K,V> bucket = bucketFor(h, k);
+        int oldSize = bucket.size();
+        V answer = bucket.compute(k, remappingFunction);
+        n += bucket.size() - oldSize;
+        if(bucket.isEmpty())
+            table[h] = null;
+        else {
+            treeifyIfNeeded(h);
+            untreeifyIfNeeded(h);
+        }
+        return answer;
+    }
+
+    // -- parallel rebuild --
+    /**
+     * Runs body for every index of [lo, hi) on the common ForkJoinPool, one index per task
      */
-    public Iterable<Entry<K,V>> entrySet() {
-        ArrayList<Entry<K,V>> entries = new ArrayList<>();
-        for(UnsortedTableMap<K,V> bucket: table) {
-            if(bucket != null)
-                for(Entry<K,V> entry: bucket.entrySet())
-                    entries.add(entry);
+    private static class ParallelFor extends RecursiveAction {
+        private static final long serialVersionUID = 1L;
+
+        private final int lo, hi;
+        private final IntConsumer body;
+
+        ParallelFor(int lo, int hi, IntConsumer body) {
+            this.lo = lo;
+            this.hi = hi;
+            this.body = body;
         }
-        return entries;
+
+        @Override
+        protected void compute() {
+            if(hi - lo == 1) {
+                body.accept(lo);
+                return;
+            }
+            int mid = (lo + hi) >>> 1;
+            invokeAll(new ParallelFor(lo, mid, body), new ParallelFor(mid, hi, body));
+        }
+    }
+
+    /**
+     * Moves every entry into a new table of capacity newCap
+     * Large tables are rebuilt in parallel without any locking, in two passes over ranges
+     * of buckets:
+     * - every range of the old table computes the new hash value of its entries, counts how
+     *   many fall in each range of the new table, and sorts them by new range accordingly
+     * - every range of the new table then collects its entries from each old range
+     * so each task only writes to its own arrays, or to its own range of the new table
+     * @param newCap capacity of the new table
+     */
+    protected void rebuild(int newCap) {
+        int parallelism = ForkJoinPool.getCommonPoolParallelism();
+        if(n < PARALLEL_REBUILD_THRESHOLD || parallelism < 2) {
+            super.rebuild(newCap);
+            return;
+        }
+        AbstractMap<K,V>[] source = table;
+        capacity = newCap;
+        createTable();
+        // a few ranges per thread to balance the load
+        int ranges = 4 * parallelism;
+        int sourceRangeSize = (source.length + ranges - 1) / ranges;
+        int targetRangeSize = (newCap + ranges - 1) / ranges;
+        // for each old range, its entries sorted by new range, their hash values,
+        // and where the entries of each new range start
+        Entry<K,V>[][] entries = (Entry<K,V>[][]) new Entry[ranges][];
+        int[][] hashValues = new int[ranges][];
+        int[][] starts = new int[ranges][];
+
+        ForkJoinPool.commonPool().invoke(new ParallelFor(0, ranges, r -> {
+            int lo = Math.min(r * sourceRangeSize, source.length);
+            int hi = Math.min(lo + sourceRangeSize, source.length);
+            int count = 0;
+            for(int i = lo; i < hi; i++)
+                if(source[i] != null)
+                    count += source[i].size();
+            // first pass: new hash values and number of entries per new range
+            Entry<K,V>[] unsorted = (Entry<K,V>[]) new Entry[count];
+            int[] unsortedHashValues = new int[count];
+            int[] start = new int[ranges + 1];
+            int j = 0;
+            for(int i = lo; i < hi; i++) {
+                if(source[i] == null)
+                    continue;
+                for(Entry<K,V> e: source[i].entrySet()) {
+                    unsorted[j] = e;
+                    unsortedHashValues[j] = hashValue(e.getKey());
+                    start[unsortedHashValues[j] / targetRangeSize + 1]++;
+                    j++;
+                }
+            }
+            for(int t = 0; t < ranges; t++)
+                start[t + 1] += start[t];
+            // second pass: place the entries by new range
+            int[] next = start.clone();
+            Entry<K,V>[] sorted = (Entry<K,V>[]) new Entry[count];
+            int[] sortedHashValues = new int[count];
+            for(j = 0; j < count; j++) {
+                int idx = next[unsortedHashValues[j] / targetRangeSize]++;
+                sorted[idx] = unsorted[j];
+                sortedHashValues[idx] = unsortedHashValues[j];
+            }
+            entries[r] = sorted;
+            hashValues[r] = sortedHashValues;
+            starts[r] = start;
+        }));
+
+        ForkJoinPool.commonPool().invoke(new ParallelFor(0, ranges, t -> {
+            for(int r = 0; r < ranges; r++)
+                for(int j = starts[r][t]; j < starts[r][t + 1]; j++) {
+                    int h = hashValues[r][j];
+                    if(table[h] == null)
+                        table[h] = new UnsortedTableMap<>();
+                    table[h].put(entries[r][j].getKey(), entries[r][j].getValue());
+                }
+            int lo = Math.min(t * targetRangeSize, newCap);
+            int hi = Math.min(lo + targetRangeSize, newCap);
+            for(int h = lo; h < hi; h++)
+                treeifyIfNeeded(h);
+        }));
+    }
+    // -- end of parallel rebuild --
+
+    // -- incremental resize hooks --
+    protected boolean supportsIncrementalResize() { return true; }
+
+    protected void beginMigration() {
+        oldTable = table;
+        createTable();
     }
 
+    /**
+     * Moves every entry of old bucket idx into its bucket of the current table
+     * @param idx index into the old table
+     */
+    protected void migrateBucket(int idx) {
+        AbstractMap<K,V> oldBucket = oldTable[idx];
+        if(oldBucket == null)
+            return;
+        for(Entry<K,V> entry: oldBucket.entrySet()) {
+            int h = hashValue(entry.getKey());
+            bucketFor(h, entry.getKey()).put(entry.getKey(), entry.getValue());
+            treeifyIfNeeded(h);
+        }
+        oldTable[idx] = null;
+    }
+
+    /**
+     * With separate chaining a key can only be in the old bucket it hashes to
+     */
+    protected void migrateChain(int h, K k) {
+        migrateBucket(h);
+    }
+
+    protected void endMigration() {
+        oldTable = null;
+    }
+    // -- end of incremental resize hooks --
+
+    // -- Support for entrySet() method --
+    private class EntryIterator extends HashIterator<Entry<K,V>> {
+        // index of the bucket after the one being walked
+        private int idx = 0;
+        // iterator over the entries of the bucket being walked
+        private Iterator<Entry<K,V>> bucketIterator = Collections.emptyIterator();
+
+        @Override
+        public boolean hasNext() {
+            // move on to the next non empty bucket
+            while(!bucketIterator.hasNext() && idx < capacity) {
+                AbstractMap<K,V> bucket = table[idx++];
+                if(bucket != null)
+                    bucketIterator = bucket.entrySet().iterator();
+            }
+            return bucketIterator.hasNext();
+        }
+        @Override
+        public Entry<K,V> next() {
+            checkForComodification();
+            if(!hasNext()) throw new NoSuchElementException("next");
+            return bucketIterator.next();
+        }
+    }
+    private class EntryIterable implements Iterable<Entry<K,V>> {
+        @Override
+        public Iterator<Entry<K,V>> iterator() { return new EntryIterator(); }
+    }
+    // -- End of support for entrySet() --
+
+    /**
+     * Returns an iterable collection of all key-value entries of the map
+     * The buckets are walked in place, without copying, use snapshotEntries() for a copy
+     * @return iterable collection
+     */
+    public Iterable<Entry<K,V>> entrySet() { return new EntryIterable(); }
+
 
 
 
@@ -0,0 +1,28 @@
+package maps;
+
+import java.nio.ByteBuffer;
+
+/**
+ * Converts values of type T to and from bytes so that maps can keep them outside the Java heap
+ * Encoding must be canonical: equal values must always be encoded to the same bytes, since
+ * maps compare encoded keys byte by byte
+ *
+ * Ready made codecs are provided by Codecs
+ * @param <T> type of value
+ */
+public interface Codec<T> {
+    /**
+     * Returns the number of bytes value is encoded to
+     */
+    int size(T value);
+
+    /**
+     * Writes exactly size(value) bytes at the position of dst, advancing it
+     */
+    void write(T value, ByteBuffer dst);
+
+    /**
+     * Reads a value encoded in length bytes at the position of src, advancing it
+     */
+    T read(ByteBuffer src, int length);
+}
@@ -0,0 +1,87 @@
+package maps;
+
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+
+/**
+ * Codecs for common key and value types
+ */
+public final class Codecs {
+    private Codecs() {}
+
+    /**
+     * Strings as UTF-8, encoded straight into the buffer without an intermediate byte array
+     */
+    public static final Codec<String> STRING = new Codec<String>() {
+        public int size(String s) {
+            int size = 0;
+            for(int i = 0; i < s.length(); i++) {
+                char c = s.charAt(i);
+                if(c < 0x80)
+                    size += 1;
+                else if(c < 0x800)
+                    size += 2;
+                else if(Character.isHighSurrogate(c) && i + 1 < s.length() && Character.isLowSurrogate(s.charAt(i + 1))) {
+                    size += 4;
+                    i++;
+                } else
+                    size += 3;
+            }
+            return size;
+        }
+
+        public void write(String s, ByteBuffer dst) {
+            for(int i = 0; i < s.length(); i++) {
+                char c = s.charAt(i);
+                if(c < 0x80)
+                    dst.put((byte) c);
+                else if(c < 0x800) {
+                    dst.put((byte) (0xC0 | (c >> 6)));
+                    dst.put((byte) (0x80 | (c & 0x3F)));
+                } else if(Character.isHighSurrogate(c) && i + 1 < s.length() && Character.isLowSurrogate(s.charAt(i + 1))) {
+                    int cp = Character.toCodePoint(c, s.charAt(++i));
+                    dst.put((byte) (0xF0 | (cp >> 18)));
+                    dst.put((byte) (0x80 | ((cp >> 12) & 0x3F)));
+                    dst.put((byte) (0x80 | ((cp >> 6) & 0x3F)));
+                    dst.put((byte) (0x80 | (cp & 0x3F)));
+                } else {
+                    // lone surrogates are encoded as is, like the other 3 byte characters
+                    dst.put((byte) (0xE0 | (c >> 12)));
+                    dst.put((byte) (0x80 | ((c >> 6) & 0x3F)));
+                    dst.put((byte) (0x80 | (c & 0x3F)));
+                }
+            }
+        }
+
+        public String read(ByteBuffer src, int length) {
+            byte[] bytes = new byte[length];
+            src.get(bytes);
+            return new String(bytes, StandardCharsets.UTF_8);
+        }
+    };
+
+    public static final Codec<Integer> INTEGER = new Codec<Integer>() {
+        public int size(Integer value) { return Integer.BYTES; }
+        public void write(Integer value, ByteBuffer dst) { dst.putInt(value); }
+        public Integer read(ByteBuffer src, int length) { return src.getInt(); }
+    };
+
+    public static final Codec<Long> LONG = new Codec<Long>() {
+        public int size(Long value) { return Long.BYTES; }
+        public void write(Long value, ByteBuffer dst) { dst.putLong(value); }
+        public Long read(ByteBuffer src, int length) { return src.getLong(); }
+    };
+
+    /**
+     * Byte arrays as they are
+     */
+    public static final Codec<byte[]> BYTES = new Codec<byte[]>() {
+        public int size(byte[] value) { return value.length; }
+        public void write(byte[] value, ByteBuffer dst) { dst.put(value); }
+        public byte[] read(ByteBuffer src, int length) {
+            byte[] bytes = new byte[length];
+            src.get(bytes);
+            return bytes;
+        }
+    };
+}
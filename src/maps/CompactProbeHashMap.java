@@ -0,0 +1,290 @@
+package maps;
+
+import util.Entry;
+
+import java.util.Iterator;
+import java.util.NoSuchElementException;
+import java.util.function.BiFunction;
+
+/**
+ * A ProbeHashMap laid out as a struct of arrays, without an object per entry
+ *
+ * Slot i of the table is spread over three parallel arrays: keys[i], values[i] and hashes[i],
+ * the full hash code of keys[i]. Probing compares hash codes before calling equals, so keys
+ * with a different hash code are never dereferenced, and rebuilding the table places entries
+ * from their cached hash codes without calling hashCode again.
+ * Empty slots have a null key, DEFUNCT slots the DEFUNCT key.
+ *
+ * entrySet returns a single flyweight entry, moved to the next slot on every call to next(),
+ * so an entry is only valid until the iterator moves on. Use snapshotEntries() to keep entries.
+ *
+ * Expected running time
+ * bucketGet    : O(1)
+ * bucketPut    : O(1)
+ * bucketRemove : O(1)
+ * entrySet     : O(capacity)
+ *
+ * @param <K> key
+ * @param <V> value
+ */
+public class CompactProbeHashMap<K,V> extends AbstractHashMap<K,V> {
+    // key of DEFUNCT slots
+    private static final Object DEFUNCT = new Object();
+
+    private Object[] keys;
+    private Object[] values;
+    // hashes[i] is the hash code of keys[i] for full slots
+    private int[] hashes;
+    // number of DEFUNCT slots
+    private int defunct = 0;
+
+    // -- constructors --
+    public CompactProbeHashMap() { super(); }
+    public CompactProbeHashMap(int cap) { super(cap); }
+    public CompactProbeHashMap(int cap, int p) { super(cap, p); }
+    public CompactProbeHashMap(int cap, HashStrategy strategy) { super(cap, strategy); }
+    // -- end of constructors --
+
+    /**
+     * Creates empty arrays having length equal to current capacity
+     */
+    protected void createTable() {
+        keys = new Object[capacity];
+        values = new Object[capacity];
+        hashes = new int[capacity];
+        defunct = 0;
+    }
+
+    // -- private utility functions --
+    /**
+     * Returns index with key k, or -(a + 1) such that k could be added at index a
+     * Follows the conventions of ProbeHashMap.findSlot
+     */
+    private int findSlot(int h, K k, int hashCode) {
+        int avail = -1;
+        int idx = h;
+        do {
+            Object key = keys[idx];
+            if(key == null) {
+                if(avail == -1)
+                    avail = idx;
+                break;
+            }
+            if(key == DEFUNCT) {
+                if(avail == -1)
+                    avail = idx;
+            } else if(hashes[idx] == hashCode && key.equals(k))
+                return idx;
+            idx = (idx + 1) % capacity;
+        }
+        while(idx != h);
+        return -(avail + 1);
+    }
+
+    private void place(int idx, K k, V v, int hashCode) {
+        if(keys[idx] == DEFUNCT)
+            defunct--;
+        keys[idx] = k;
+        values[idx] = v;
+        hashes[idx] = hashCode;
+    }
+
+    private void clear(int idx) {
+        keys[idx] = DEFUNCT;
+        values[idx] = null;
+        defunct++;
+    }
+
+    private boolean isFull(int idx) {
+        return keys[idx] != null && keys[idx] != DEFUNCT;
+    }
+    // -- end of private utilities --
+
+    // AbstractHashMap calls the variants below with the hash code it computed to find h
+    protected V bucketGet(int h, K k) { return bucketGet(h, k, k.hashCode()); }
+    protected V bucketPut(int h, K k, V v) { return bucketPut(h, k, v, k.hashCode()); }
+    protected V bucketRemove(int h, K k) { return bucketRemove(h, k, k.hashCode()); }
+    protected V bucketCompute(int h, K k, BiFunction<? super K, ? super V, ? extends V> remappingFunction) {
+        return bucketCompute(h, k, remappingFunction, k.hashCode());
+    }
+
+    /**
+     * Returns value associated with key k in bucket with hash value h or null
+     * @param h hash value
+     * @param k key
+     * @param hashCode hash code of k
+     * @return value, null if not found
+     */
+    protected V bucketGet(int h, K k, int hashCode) {
+        int idx = findSlot(h, k, hashCode);
+        if(idx >= 0)
+            return (V) values[idx];
+        return null;
+    }
+
+    /**
+     * Associate key k with value v in bucket with hash value h, returns old value
+     * @param h hash value
+     * @param k key
+     * @param v value
+     * @param hashCode hash code of k
+     * @return old value, null if new entry is created
+     */
+    protected V bucketPut(int h, K k, V v, int hashCode) {
+        int idx = findSlot(h, k, hashCode);
+        if(idx >= 0) {
+            V old = (V) values[idx];
+            values[idx] = v;
+            return old;
+        }
+        place(-(idx + 1), k, v, hashCode);
+        n++;
+        return null;
+    }
+
+    /**
+     * Removes entry having key k from bucket with hash value h, returns value of removed entry
+     * @param h hash value
+     * @param k key
+     * @param hashCode hash code of k
+     * @return value of removed entry
+     */
+    protected V bucketRemove(int h, K k, int hashCode) {
+        int idx = findSlot(h, k, hashCode);
+        if(idx < 0)
+            return null;
+        V answer = (V) values[idx];
+        clear(idx);
+        n--;
+        return answer;
+    }
+
+    /**
+     * Computes the new value for key k in bucket with hash value h, probing only once
+     * @param h hash value
+     * @param k key
+     * @param remappingFunction function computing the new value from k and its current value
+     * @param hashCode hash code of k
+     * @return new value, null if the entry is removed or was not created
+     */
+    protected V bucketCompute(int h, K k, BiFunction<? super K, ? super V, ? extends V> remappingFunction, int hashCode) {
+        int idx = findSlot(h, k, hashCode);
+        V value = remappingFunction.apply(k, idx >= 0 ? (V) values[idx] : null);
+        if(idx >= 0) {
+            if(value != null)
+                values[idx] = value;
+            else {
+                clear(idx);
+                n--;
+            }
+        } else if(value != null) {
+            place(-(idx + 1), k, value, hashCode);
+            n++;
+        }
+        return value;
+    }
+
+    /**
+     * Places every entry in a new table using its cached hash code
+     * @param newCap capacity of the new table
+     */
+    protected void rebuild(int newCap) {
+        Object[] oldKeys = keys;
+        Object[] oldValues = values;
+        int[] oldHashes = hashes;
+        capacity = newCap;
+        createTable();
+        for(int i = 0; i < oldKeys.length; i++) {
+            if(oldKeys[i] == null || oldKeys[i] == DEFUNCT)
+                continue;
+            // the new table has no DEFUNCT slots, the first empty slot is the right one
+            int idx = compressHashCode(oldHashes[i]);
+            while(keys[idx] != null)
+                idx = (idx + 1) % capacity;
+            keys[idx] = oldKeys[i];
+            values[idx] = oldValues[i];
+            hashes[idx] = oldHashes[i];
+        }
+    }
+
+    protected int tombstones() { return defunct; }
+
+    /**
+     * Clears the DEFUNCT slots and moves every entry back towards its cached hash code, in place
+     * Follows ProbeHashMap.purgeTombstones
+     */
+    protected void purgeTombstones() {
+        // an empty slot, a cluster never wraps past it
+        int start = 0;
+        while(keys[start] != null)
+            start++;
+        for(int idx = 0; idx < capacity; idx++) {
+            if(keys[idx] == DEFUNCT)
+                keys[idx] = null;
+        }
+        defunct = 0;
+        for(int i = 1; i <= capacity; i++) {
+            int idx = (start + i) % capacity;
+            Object key = keys[idx];
+            if(key == null)
+                continue;
+            Object value = values[idx];
+            int hashCode = hashes[idx];
+            keys[idx] = null;
+            values[idx] = null;
+            int newIdx = compressHashCode(hashCode);
+            while(keys[newIdx] != null)
+                newIdx = (newIdx + 1) % capacity;
+            keys[newIdx] = key;
+            values[newIdx] = value;
+            hashes[newIdx] = hashCode;
+        }
+    }
+
+    // -- Support for entrySet() method --
+    /**
+     * Flyweight entry reading the slot its iterator is at
+     */
+    private class SlotEntry implements Entry<K,V> {
+        private int idx;
+        public K getKey() { return (K) keys[idx]; }
+        public V getValue() { return (V) values[idx]; }
+    }
+    private class EntryIterator extends HashIterator<Entry<K,V>> {
+        private final SlotEntry entry = new SlotEntry();
+        // index of the next full slot, capacity if there is none
+        private int idx = seek(0);
+
+        /**
+         * Returns the index of the first full slot at or after idx
+         */
+        private int seek(int idx) {
+            while(idx < capacity && !isFull(idx))
+                idx++;
+            return idx;
+        }
+        @Override
+        public boolean hasNext() { return idx < capacity; }
+        @Override
+        public Entry<K,V> next() {
+            checkForComodification();
+            if(!hasNext()) throw new NoSuchElementException("next");
+            entry.idx = idx;
+            idx = seek(idx + 1);
+            return entry;
+        }
+    }
+    private class EntryIterable implements Iterable<Entry<K,V>> {
+        @Override
+        public Iterator<Entry<K,V>> iterator() { return new EntryIterator(); }
+    }
+    // -- End of support for entrySet() --
+
+    /**
+     * Returns an iterable collection of all key value pairs
+     * Every call to next() returns the same entry object, moved to the next slot, use
+     * snapshotEntries() for entries that outlive the iteration
+     * @return iterable collection of entries
+     */
+    public Iterable<Entry<K,V>> entrySet() { return new EntryIterable(); }
+}
@@ -0,0 +1,294 @@
+package maps;
+
+import util.Entry;
+
+import java.util.ArrayList;
+import java.util.concurrent.atomic.AtomicReferenceArray;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.concurrent.locks.ReentrantLock;
+import java.util.function.BiFunction;
+
+/**
+ * A thread-safe hash table with separate chaining, meant to be shared by many threads
+ *
+ * Buckets are UnsortedTableMaps, as in ChainHashMap, but a bucket is never modified once it is
+ * in the table: a writer builds a modified copy of the bucket and publishes it in its place.
+ * This makes get lock-free, readers simply follow the current table to an immutable bucket.
+ *
+ * Writers lock one of a fixed number of stripes, each guarding the group of buckets whose
+ * index is equal modulo the number of stripes, so writers to different groups never wait on
+ * each other. The number of entries is kept in a striped counter (LongAdder) for the same reason.
+ *
+ * Resizing takes every stripe lock, so it waits for writers and blocks them, but readers
+ * keep using the old table, whose buckets never change, until the new table is published.
+ *
+ * The table uses PowerOfTwoHashStrategy and the same load factor policy as AbstractHashMap,
+ * ie it doubles whenever n > capacity / 2
+ *
+ * Expected running time
+ * get    : O(1), never blocks
+ * put    : O(1)
+ * remove : O(1)
+ * entrySet : O(n), weakly consistent snapshot
+ *
+ * @param <K> key
+ * @param <V> value
+ */
+public class ConcurrentChainHashMap<K,V> extends AbstractMap<K,V> {
+    private final HashStrategy strategy = new PowerOfTwoHashStrategy();
+    // current table of immutable buckets, replaced as a whole when resizing
+    private volatile AtomicReferenceArray<UnsortedTableMap<K,V>> table;
+    // locks[i] guards every bucket whose index is i modulo locks.length
+    private final ReentrantLock[] locks;
+    // number of entries
+    private final LongAdder n = new LongAdder();
+
+    // -- constructors --
+    public ConcurrentChainHashMap() { this(16, 32); }
+    public ConcurrentChainHashMap(int cap) { this(cap, 32); }
+
+    /**
+     * Creates an empty map
+     * @param cap initial capacity
+     * @param concurrencyLevel expected number of concurrent writers, rounded up to a power of two
+     */
+    public ConcurrentChainHashMap(int cap, int concurrencyLevel) {
+        int stripes = strategy.capacityFor(concurrencyLevel);
+        locks = new ReentrantLock[stripes];
+        for(int i = 0; i < stripes; i++)
+            locks[i] = new ReentrantLock();
+        // every stripe guards at least one bucket
+        table = new AtomicReferenceArray<>(strategy.capacityFor(Math.max(cap, stripes)));
+    }
+    // -- end of constructors --
+
+    // -- private utilities --
+    private int hashValue(K key, int cap) {
+        return strategy.compress(key.hashCode(), cap);
+    }
+
+    /**
+     * Returns the lock guarding bucket idx
+     * Since table lengths are powers of two no smaller than the number of stripes, a key
+     * stays in the same stripe when the table is resized
+     */
+    private ReentrantLock lockFor(int idx) {
+        return locks[idx & (locks.length - 1)];
+    }
+
+    /**
+     * Returns a modifiable copy of the bucket, or an empty bucket if it is null
+     */
+    private UnsortedTableMap<K,V> copyOf(UnsortedTableMap<K,V> bucket) {
+        UnsortedTableMap<K,V> copy = new UnsortedTableMap<>();
+        if(bucket != null)
+            for(Entry<K,V> e: bucket.entrySet())
+                copy.put(e.getKey(), e.getValue());
+        return copy;
+    }
+
+    /**
+     * Doubles the table t unless another thread already replaced it
+     */
+    private void resize(AtomicReferenceArray<UnsortedTableMap<K,V>> t) {
+        for(ReentrantLock lock: locks)
+            lock.lock();
+        try {
+            if(t != table)
+                return;
+            int newCap = strategy.grow(t.length());
+            // not yet visible to other threads, so the new buckets can be filled in place
+            AtomicReferenceArray<UnsortedTableMap<K,V>> newTable = new AtomicReferenceArray<>(newCap);
+            for(int i = 0; i < t.length(); i++) {
+                UnsortedTableMap<K,V> bucket = t.get(i);
+                if(bucket == null)
+                    continue;
+                for(Entry<K,V> e: bucket.entrySet()) {
+                    int h = hashValue(e.getKey(), newCap);
+                    UnsortedTableMap<K,V> newBucket = newTable.get(h);
+                    if(newBucket == null) {
+                        newBucket = new UnsortedTableMap<>();
+                        newTable.set(h, newBucket);
+                    }
+                    newBucket.put(e.getKey(), e.getValue());
+                }
+            }
+            table = newTable;
+        } finally {
+            for(ReentrantLock lock: locks)
+                lock.unlock();
+        }
+    }
+    // -- end of private utilities --
+
+    /**
+     * Returns the number of entries, exact when no update is in progress
+     */
+    public int size() { return n.intValue(); }
+
+    /**
+     * Returns value associated with key, else null
+     * Never blocks
+     * @param key key
+     * @return value associated with key, else null
+     */
+    public V get(K key) {
+        AtomicReferenceArray<UnsortedTableMap<K,V>> t = table;
+        UnsortedTableMap<K,V> bucket = t.get(hashValue(key, t.length()));
+        if(bucket == null)
+            return null;
+        return bucket.get(key);
+    }
+
+    /**
+     * Associates key with value, returns old value
+     * @param key key
+     * @param value value
+     * @return old value, null if a new entry is created
+     */
+    public V put(K key, V value) {
+        while(true) {
+            AtomicReferenceArray<UnsortedTableMap<K,V>> t = table;
+            int h = hashValue(key, t.length());
+            ReentrantLock lock = lockFor(h);
+            boolean added;
+            V answer;
+            lock.lock();
+            try {
+                // the table was replaced while we waited for the lock, retry on the new one
+                if(t != table)
+                    continue;
+                UnsortedTableMap<K,V> bucket = copyOf(t.get(h));
+                int oldSize = bucket.size();
+                answer = bucket.put(key, value);
+                t.set(h, bucket);
+                added = bucket.size() > oldSize;
+                if(added)
+                    n.increment();
+            } finally {
+                lock.unlock();
+            }
+            // keep load factor <= 0.5
+            if(added && n.sum() > t.length() / 2)
+                resize(t);
+            return answer;
+        }
+    }
+
+    /**
+     * Removes entry having key, returns value of removed entry
+     * @param key key
+     * @return value of removed entry, null if there was none
+     */
+    public V remove(K key) {
+        while(true) {
+            AtomicReferenceArray<UnsortedTableMap<K,V>> t = table;
+            int h = hashValue(key, t.length());
+            ReentrantLock lock = lockFor(h);
+            lock.lock();
+            try {
+                if(t != table)
+                    continue;
+                UnsortedTableMap<K,V> old = t.get(h);
+                if(old == null)
+                    return null;
+                UnsortedTableMap<K,V> bucket = copyOf(old);
+                V answer = bucket.remove(key);
+                // nothing to publish if there was no such entry
+                if(bucket.size() < old.size()) {
+                    t.set(h, bucket.isEmpty() ? null : bucket);
+                    n.decrement();
+                }
+                return answer;
+            } finally {
+                lock.unlock();
+            }
+        }
+    }
+
+    /**
+     * Associates key with value unless key already has a value, atomically
+     * The bucket is only copied if the entry is added
+     * @return current value, null if value was added
+     */
+    public V putIfAbsent(K key, V value) {
+        while(true) {
+            AtomicReferenceArray<UnsortedTableMap<K,V>> t = table;
+            int h = hashValue(key, t.length());
+            ReentrantLock lock = lockFor(h);
+            lock.lock();
+            try {
+                if(t != table)
+                    continue;
+                UnsortedTableMap<K,V> old = t.get(h);
+                V current = old == null ? null : old.get(key);
+                if(current != null)
+                    return current;
+                UnsortedTableMap<K,V> bucket = copyOf(old);
+                bucket.put(key, value);
+                t.set(h, bucket);
+                n.increment();
+            } finally {
+                lock.unlock();
+            }
+            // keep load factor <= 0.5
+            if(n.sum() > t.length() / 2)
+                resize(t);
+            return null;
+        }
+    }
+
+    /**
+     * Associates key with the value computed from key and its current value, atomically
+     * The function runs while the stripe of key is locked, so it should be short and must
+     * not update the map
+     * @param key key
+     * @param remappingFunction function computing the new value, the entry is removed if it returns null
+     * @return new value, null if there is none
+     */
+    public V compute(K key, BiFunction<? super K, ? super V, ? extends V> remappingFunction) {
+        while(true) {
+            AtomicReferenceArray<UnsortedTableMap<K,V>> t = table;
+            int h = hashValue(key, t.length());
+            ReentrantLock lock = lockFor(h);
+            int sizeChange;
+            V answer;
+            lock.lock();
+            try {
+                if(t != table)
+                    continue;
+                UnsortedTableMap<K,V> old = t.get(h);
+                UnsortedTableMap<K,V> bucket = copyOf(old);
+                int oldSize = bucket.size();
+                answer = bucket.compute(key, remappingFunction);
+                sizeChange = bucket.size() - oldSize;
+                if(sizeChange != 0 || answer != null)
+                    t.set(h, bucket.isEmpty() ? null : bucket);
+                n.add(sizeChange);
+            } finally {
+                lock.unlock();
+            }
+            if(sizeChange > 0 && n.sum() > t.length() / 2)
+                resize(t);
+            return answer;
+        }
+    }
+
+    /**
+     * Returns a snapshot of the entries
+     * Weakly consistent: every bucket is read atomically but updates made while the
+     * snapshot is being taken may or may not be included
+     * @return iterable collection of entries
+     */
+    public Iterable<Entry<K,V>> entrySet() {
+        AtomicReferenceArray<UnsortedTableMap<K,V>> t = table;
+        ArrayList<Entry<K,V>> buffer = new ArrayList<>();
+        for(int i = 0; i < t.length(); i++) {
+            UnsortedTableMap<K,V> bucket = t.get(i);
+            if(bucket != null)
+                for(Entry<K,V> e: bucket.entrySet())
+                    buffer.add(e);
+        }
+        return buffer;
+    }
+}
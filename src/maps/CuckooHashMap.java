@@ -0,0 +1,269 @@
+package maps;
+
+import util.Entry;
+
+import java.util.ArrayList;
+import java.util.Iterator;
+import java.util.NoSuchElementException;
+
+/**
+ * An implementation of a hash map using cuckoo hashing
+ *
+ * There are two tables of length capacity. A key may only be stored in one slot of each: the
+ * slot given by the hash strategy of the map in the first table, and the slot given by a second,
+ * independently seeded MAD compression in the second table. A lookup therefore checks at most
+ * two slots, plus a small stash that is empty almost all of the time.
+ *
+ * Inserting into an occupied slot evicts its entry to its slot in the other table, which may
+ * evict another entry, and so on. The eviction path is bounded by O(log capacity); a longer
+ * path is most likely a cycle. The entry left without a slot goes to the stash and once the
+ * stash is full the second function is reseeded and every entry reinserted. If a few reseeds
+ * do not help, the table grows.
+ *
+ * Keys with equal hash codes can not be separated by any hash function, so they may end up in
+ * a stash above its usual size, making lookups of such keys linear in the size of the stash.
+ *
+ * Expected running time
+ * bucketGet    : O(1) worst case when the stash is small
+ * bucketPut    : O(1) amortized
+ * bucketRemove : O(1) worst case when the stash is small
+ * entrySet     : O(n)
+ *
+ * @param <K> key
+ * @param <V> value
+ */
+public class CuckooHashMap<K,V> extends AbstractHashMap<K,V> {
+    // usual number of entries that may be kept in the stash
+    private static final int STASH_SIZE = 4;
+    // number of times the second function is reseeded before growing the table
+    private static final int MAX_RESEEDS = 3;
+
+    // first[h] may only hold a key whose hash value is h
+    private MapEntry<K,V>[] first;
+    // second[i] may only hold a key k such that secondHash(k) is i
+    private MapEntry<K,V>[] second;
+    // entries that could not be placed in either table
+    private ArrayList<MapEntry<K,V>> stash;
+    // stash size above which entries are rehashed, only raised when rehashing can not help
+    private int stashLimit;
+    // hash function for the second table
+    private HashStrategy secondStrategy = new MADHashStrategy();
+    // true while entries are being reinserted, so that failures do not rehash recursively
+    private boolean rehashing = false;
+
+    // -- constructors --
+    public CuckooHashMap() { super(); }
+    public CuckooHashMap(int cap) { super(cap); }
+    public CuckooHashMap(int cap, int p) { super(cap, p); }
+    public CuckooHashMap(int cap, HashStrategy strategy) { super(cap, strategy); }
+    // -- end of constructors --
+
+    /**
+     * Creates two empty tables having length equal to current capacity and an empty stash
+     */
+    protected void createTable() {
+        first = (MapEntry<K,V>[]) new MapEntry[capacity];
+        second = (MapEntry<K,V>[]) new MapEntry[capacity];
+        stash = new ArrayList<>();
+        stashLimit = STASH_SIZE;
+    }
+
+    // -- private utility functions --
+    private int secondHash(K k) {
+        return secondStrategy.compress(k.hashCode(), capacity);
+    }
+
+    /**
+     * Returns the index of the stash entry having key k, or -1 if there is none
+     */
+    private int findInStash(K k) {
+        for(int i = 0; i < stash.size(); i++)
+            if(stash.get(i).getKey().equals(k))
+                return i;
+        return -1;
+    }
+
+    /**
+     * Returns the maximum length of an eviction path for the current capacity
+     */
+    private int maxEvictions() {
+        return 3 * (32 - Integer.numberOfLeadingZeros(capacity)) + 8;
+    }
+
+    /**
+     * Places entry e, whose hash value is h, evicting entries back and forth between the tables
+     * @return the entry left without a slot once the eviction path gets too long, else null
+     */
+    private MapEntry<K,V> insert(MapEntry<K,V> e, int h) {
+        for(int i = 0; i < maxEvictions(); i++) {
+            MapEntry<K,V> evicted = first[h];
+            first[h] = e;
+            if(evicted == null)
+                return null;
+            int idx = secondHash(evicted.getKey());
+            e = second[idx];
+            second[idx] = evicted;
+            if(e == null)
+                return null;
+            h = hashValue(e.getKey());
+        }
+        return e;
+    }
+
+    /**
+     * Reinserts every entry with a reseeded second function, until the stash fits its limit
+     * Grows the table if reseeding does not help
+     */
+    private void rehash() {
+        rehashing = true;
+        modCount++;
+        ArrayList<MapEntry<K,V>> buffer = new ArrayList<>(n);
+        for(Entry<K,V> e: entrySet())
+            buffer.add((MapEntry<K,V>) e);
+        for(int attempt = 0; attempt < MAX_RESEEDS; attempt++) {
+            secondStrategy = new MADHashStrategy();
+            int limit = stashLimit;
+            createTable();
+            stashLimit = limit;
+            for(MapEntry<K,V> e: buffer) {
+                MapEntry<K,V> homeless = insert(e, hashValue(e.getKey()));
+                if(homeless != null)
+                    stash.add(homeless);
+            }
+            if(stash.size() <= stashLimit) {
+                rehashing = false;
+                return;
+            }
+        }
+        // every entry is in the tables or the stash, so they all survive resizing
+        grow();
+        // nothing more can be done for keys having equal hash codes
+        if(stash.size() > stashLimit)
+            stashLimit = 2 * stash.size();
+        rehashing = false;
+    }
+    // -- end of private utilities --
+
+    /**
+     * Returns value associated with key k in bucket with hash value h or null
+     * Checks at most two slots and the stash
+     * @param h hash value
+     * @param k key
+     * @return value, null if not found
+     */
+    protected V bucketGet(int h, K k) {
+        if(first[h] != null && first[h].getKey().equals(k))
+            return first[h].getValue();
+        int idx = secondHash(k);
+        if(second[idx] != null && second[idx].getKey().equals(k))
+            return second[idx].getValue();
+        if(stash.isEmpty())
+            return null;
+        int i = findInStash(k);
+        return i < 0 ? null : stash.get(i).getValue();
+    }
+
+    /**
+     * Associate key k with value v in bucket with hash value h, returns old value
+     * @param h hash value
+     * @param k key
+     * @param v value
+     * @return old value, null if new entry is created
+     */
+    protected V bucketPut(int h, K k, V v) {
+        if(first[h] != null && first[h].getKey().equals(k))
+            return first[h].setValue(v);
+        int idx = secondHash(k);
+        if(second[idx] != null && second[idx].getKey().equals(k))
+            return second[idx].setValue(v);
+        int i = findInStash(k);
+        if(i >= 0)
+            return stash.get(i).setValue(v);
+        n++;
+        MapEntry<K,V> homeless = insert(new MapEntry<>(k, v), h);
+        if(homeless != null) {
+            stash.add(homeless);
+            if(stash.size() > stashLimit && !rehashing)
+                rehash();
+        }
+        return null;
+    }
+
+    /**
+     * Removes entry having key k from bucket with hash value h, returns value of removed entry
+     * @param h hash value
+     * @param k key
+     * @return value of removed entry
+     */
+    protected V bucketRemove(int h, K k) {
+        V answer;
+        int idx = secondHash(k);
+        int i;
+        if(first[h] != null && first[h].getKey().equals(k)) {
+            answer = first[h].getValue();
+            first[h] = null;
+        } else if(second[idx] != null && second[idx].getKey().equals(k)) {
+            answer = second[idx].getValue();
+            second[idx] = null;
+        } else if((i = findInStash(k)) >= 0) {
+            answer = stash.get(i).getValue();
+            stash.set(i, stash.get(stash.size() - 1));
+            stash.remove(stash.size() - 1);
+        } else
+            return null;
+        n--;
+        return answer;
+    }
+
+    /**
+     * Returns the number of entries currently kept in the stash
+     */
+    public int stashSize() { return stash.size(); }
+
+    // -- Support for entrySet() method --
+    private class EntryIterator extends HashIterator<Entry<K,V>> {
+        // slots 0 to capacity - 1 are in the first table, the next capacity in the second,
+        // followed by the stash
+        private int idx = seek(0);
+
+        private Entry<K,V> at(int idx) {
+            if(idx < capacity)
+                return first[idx];
+            if(idx < 2 * capacity)
+                return second[idx - capacity];
+            return stash.get(idx - 2 * capacity);
+        }
+
+        /**
+         * Returns the index of the first entry at or after idx
+         */
+        private int seek(int idx) {
+            while(idx < 2 * capacity && at(idx) == null)
+                idx++;
+            return idx;
+        }
+        @Override
+        public boolean hasNext() { return idx < 2 * capacity + stash.size(); }
+        @Override
+        public Entry<K,V> next() {
+            checkForComodification();
+            if(!hasNext()) throw new NoSuchElementException("next");
+            Entry<K,V> entry = at(idx);
+            idx = seek(idx + 1);
+            return entry;
+        }
+    }
+    private class EntryIterable implements Iterable<Entry<K,V>> {
+        @Override
+        public Iterator<Entry<K,V>> iterator() { return new EntryIterator(); }
+    }
+    // -- End of support for entrySet() --
+
+    /**
+     * Returns an iterable collection of all key value pairs
+     * The tables are walked in place, without copying, use snapshotEntries() for a copy
+     * Order does not matter
+     * @return iterable collection of entries
+     */
+    public Iterable<Entry<K,V>> entrySet() { return new EntryIterable(); }
+}
@@ -0,0 +1,89 @@
+package maps;
+
+/**
+ * A count-min sketch estimating how often each key was seen recently
+ *
+ * Counters are 4 bits wide, 16 of them packed in each long of the table. A key is counted in
+ * 4 counters, chosen by 4 differently seeded hashes of its hash code, and its frequency is the
+ * smallest of them: collisions can only make an estimate too high, and taking the minimum of
+ * 4 counters makes that unlikely. Counters saturate at 15, which is enough to tell popular
+ * keys from rare ones.
+ *
+ * Once the number of increments reaches 10 times the expected number of keys, every counter
+ * is halved, so that the sketch forgets keys that used to be popular and no longer are.
+ *
+ * Not thread-safe
+ *
+ * Running time
+ * increment : O(1), O(table length) when counters are halved
+ * frequency : O(1)
+ */
+public class FrequencySketch {
+    // clears the high bit of every counter once the table is shifted right
+    private static final long RESET_MASK = 0x7777777777777777L;
+    private static final int[] SEEDS = { 0x97cb3127, 0x5b1a0eb7, 0x2f9c71d3, 0xe21f4b65 };
+    private static final int MAX_COUNT = 15;
+
+    private final long[] table;
+    // number of increments after which counters are halved
+    private final int sampleSize;
+    private int additions = 0;
+
+    /**
+     * Creates a sketch sized for about expectedKeys distinct keys
+     */
+    public FrequencySketch(long expectedKeys) {
+        int keys = (int) Math.min(Math.max(expectedKeys, 8), 1 << 26);
+        table = new long[new PowerOfTwoHashStrategy().capacityFor(keys)];
+        sampleSize = 10 * keys;
+    }
+
+    // -- private utilities --
+    /**
+     * Returns the hash choosing the counter of row i, its low bits select the long and its
+     * high 4 bits the counter within it
+     */
+    private static int hash(int hashCode, int i) {
+        return PowerOfTwoHashStrategy.mix(hashCode + SEEDS[i]);
+    }
+
+    private int count(int h) {
+        return (int) (table[h & (table.length - 1)] >>> ((h >>> 28) << 2)) & MAX_COUNT;
+    }
+    // -- end of private utilities --
+
+    /**
+     * Returns the estimated number of times a key with this hash code was counted, up to 15
+     */
+    public int frequency(int hashCode) {
+        int frequency = MAX_COUNT;
+        for(int i = 0; i < SEEDS.length; i++)
+            frequency = Math.min(frequency, count(hash(hashCode, i)));
+        return frequency;
+    }
+
+    /**
+     * Counts one occurrence of a key with this hash code
+     */
+    public void increment(int hashCode) {
+        boolean added = false;
+        for(int i = 0; i < SEEDS.length; i++) {
+            int h = hash(hashCode, i);
+            if(count(h) < MAX_COUNT) {
+                table[h & (table.length - 1)] += 1L << ((h >>> 28) << 2);
+                added = true;
+            }
+        }
+        if(added && ++additions == sampleSize)
+            reset();
+    }
+
+    /**
+     * Halves every counter
+     */
+    private void reset() {
+        for(int i = 0; i < table.length; i++)
+            table[i] = (table[i] >>> 1) & RESET_MASK;
+        additions /= 2;
+    }
+}
@@ -0,0 +1,255 @@
+package maps;
+
+import util.Entry;
+
+import java.util.ArrayList;
+import java.util.Iterator;
+import java.util.NoSuchElementException;
+import java.util.Random;
+
+/**
+ * An immutable map built once from another map, using a minimal perfect hash function
+ *
+ * The n keys are stored in dense arrays of length n, and the hash function sends every key to
+ * a different index of them, so there are no empty slots and no probing. It is built with the
+ * CHD (hash, displace and compress) algorithm:
+ * - keys are split in about n / 2 buckets by a first hash function
+ * - buckets are processed from the largest to the smallest, and for each one the smallest
+ *   displacement d is searched such that the second hash function, parameterized by d, sends
+ *   every key of the bucket to a free index
+ * - buckets of a single key come last. There are n slots for n keys, so by then a random
+ *   index is almost never free, and each of them is instead given one of the remaining free
+ *   indexes directly, stored as the negative displacement -(index + 1)
+ * get only computes the bucket, reads its displacement, and compares the key at the resulting
+ * index: one call to hashCode and one to equals.
+ *
+ * Keys having the same hash code can not be told apart by any function of it. All but one
+ * key of such a group go to a small overflow map, searched when the key at the index is not
+ * the one being looked up.
+ *
+ * put and remove throw UnsupportedOperationException
+ *
+ * Expected running time
+ * of     : O(n)
+ * get    : O(1)
+ * entrySet : O(n)
+ *
+ * @param <K> key
+ * @param <V> value
+ */
+public class FrozenMap<K,V> extends AbstractMap<K,V> {
+    // average number of keys per bucket
+    private static final int KEYS_PER_BUCKET = 2;
+    // displacements tried for a bucket before starting over with another seed
+    private static final int MAX_DISPLACEMENT = 1 << 20;
+    private static final int MAX_SEEDS = 16;
+
+    private final Object[] keys;
+    private final Object[] values;
+    // displacement of every bucket
+    private final int[] displacements;
+    private final int seed;
+    // keys whose hash code is shared with a key of the arrays, null if there are none
+    private final ProbeHashMap<K,V> overflow;
+
+    private FrozenMap(Object[] keys, Object[] values, int[] displacements, int seed, ProbeHashMap<K,V> overflow) {
+        this.keys = keys;
+        this.values = values;
+        this.displacements = displacements;
+        this.seed = seed;
+        this.overflow = overflow;
+    }
+
+    // -- hash functions --
+    private static int bucket(int hashCode, int seed, int buckets) {
+        return Math.floorMod(PowerOfTwoHashStrategy.mix(hashCode ^ seed), buckets);
+    }
+
+    private static int index(int hashCode, int seed, int displacement, int n) {
+        return Math.floorMod(PowerOfTwoHashStrategy.mix(hashCode + PowerOfTwoHashStrategy.mix(seed + displacement)), n);
+    }
+    // -- end of hash functions --
+
+    /**
+     * Builds a frozen copy of map
+     * Later changes to map are not reflected in the copy
+     * @param map map to copy
+     * @return immutable map having the same entries as map
+     * @throws IllegalStateException in the very unlikely case no perfect hash function is found
+     */
+    public static <K,V> FrozenMap<K,V> of(Map<K,V> map) throws IllegalStateException {
+        // keys with distinct hash codes, the others go to the overflow map
+        ArrayList<Entry<K,V>> entries = new ArrayList<>(map.size());
+        ProbeHashMap<Integer, Boolean> seen = new ProbeHashMap<>(2 * map.size() + 1);
+        ProbeHashMap<K,V> overflow = new ProbeHashMap<>();
+        for(Entry<K,V> e: map.entrySet()) {
+            if(e.getValue() == null)
+                continue;
+            if(seen.putIfAbsent(e.getKey().hashCode(), true) == null)
+                entries.add(new MapEntry<>(e.getKey(), e.getValue()));
+            else
+                overflow.put(e.getKey(), e.getValue());
+        }
+        int n = entries.size();
+        int[] hashCodes = new int[n];
+        for(int i = 0; i < n; i++)
+            hashCodes[i] = entries.get(i).getKey().hashCode();
+
+        Random random = new Random();
+        for(int attempt = 0; attempt < MAX_SEEDS; attempt++) {
+            int seed = random.nextInt();
+            int[] slotOf = new int[n];
+            int[] displacements = search(hashCodes, seed, slotOf);
+            if(displacements == null)
+                continue;
+            Object[] keys = new Object[n];
+            Object[] values = new Object[n];
+            for(int i = 0; i < n; i++) {
+                keys[slotOf[i]] = entries.get(i).getKey();
+                values[slotOf[i]] = entries.get(i).getValue();
+            }
+            return new FrozenMap<>(keys, values, displacements, seed, overflow.isEmpty() ? null : overflow);
+        }
+        throw new IllegalStateException("No perfect hash function found for " + n + " keys");
+    }
+
+    /**
+     * Searches a displacement for every bucket, filling slotOf with the index of each key
+     * @return displacements, or null if some bucket can not be placed with this seed
+     */
+    private static int[] search(int[] hashCodes, int seed, int[] slotOf) {
+        int n = hashCodes.length;
+        int buckets = Math.max(1, (n + KEYS_PER_BUCKET - 1) / KEYS_PER_BUCKET);
+        // keys grouped by bucket, members[start[b]..start[b + 1]) are the keys of bucket b
+        int[] start = new int[buckets + 1];
+        int[] bucketOf = new int[n];
+        for(int i = 0; i < n; i++) {
+            bucketOf[i] = bucket(hashCodes[i], seed, buckets);
+            start[bucketOf[i] + 1]++;
+        }
+        int maxSize = 0;
+        for(int b = 0; b < buckets; b++) {
+            maxSize = Math.max(maxSize, start[b + 1]);
+            start[b + 1] += start[b];
+        }
+        int[] members = new int[n];
+        int[] next = start.clone();
+        for(int i = 0; i < n; i++)
+            members[next[bucketOf[i]]++] = i;
+        // buckets sorted by decreasing size, with a counting sort
+        int[] bySize = new int[maxSize + 2];
+        for(int b = 0; b < buckets; b++)
+            bySize[maxSize - (start[b + 1] - start[b]) + 1]++;
+        for(int s = 0; s <= maxSize; s++)
+            bySize[s + 1] += bySize[s];
+        int[] order = new int[buckets];
+        for(int b = 0; b < buckets; b++)
+            order[bySize[maxSize - (start[b + 1] - start[b])]++] = b;
+
+        int[] displacements = new int[buckets];
+        boolean[] taken = new boolean[n];
+        int[] candidate = new int[maxSize];
+        // next index that may be free, for buckets of a single key
+        int free = 0;
+        for(int b: order) {
+            int size = start[b + 1] - start[b];
+            if(size == 0)
+                break;
+            if(size == 1) {
+                while(taken[free])
+                    free++;
+                taken[free] = true;
+                slotOf[members[start[b]]] = free;
+                displacements[b] = -(free + 1);
+                continue;
+            }
+            int d = 0;
+            for(; d < MAX_DISPLACEMENT; d++) {
+                boolean fits = true;
+                for(int j = 0; j < size && fits; j++) {
+                    candidate[j] = index(hashCodes[members[start[b] + j]], seed, d, n);
+                    fits = !taken[candidate[j]];
+                    // keys of the bucket must not collide with each other either
+                    for(int i = 0; i < j && fits; i++)
+                        fits = candidate[i] != candidate[j];
+                }
+                if(fits)
+                    break;
+            }
+            if(d == MAX_DISPLACEMENT)
+                return null;
+            displacements[b] = d;
+            for(int j = 0; j < size; j++) {
+                taken[candidate[j]] = true;
+                slotOf[members[start[b] + j]] = candidate[j];
+            }
+        }
+        return displacements;
+    }
+
+    public int size() {
+        return keys.length + (overflow == null ? 0 : overflow.size());
+    }
+
+    /**
+     * Returns value associated with key, else null
+     * @param key key
+     * @return value associated with key, else null
+     */
+    public V get(K key) {
+        if(keys.length > 0) {
+            int hashCode = key.hashCode();
+            int d = displacements[bucket(hashCode, seed, displacements.length)];
+            int idx = d < 0 ? -(d + 1) : index(hashCode, seed, d, keys.length);
+            if(keys[idx].equals(key))
+                return (V) values[idx];
+        }
+        return overflow == null ? null : overflow.get(key);
+    }
+
+    /**
+     * Not supported, the map is immutable
+     */
+    public V put(K key, V value) {
+        throw new UnsupportedOperationException("FrozenMap is immutable");
+    }
+
+    /**
+     * Not supported, the map is immutable
+     */
+    public V remove(K key) {
+        throw new UnsupportedOperationException("FrozenMap is immutable");
+    }
+
+    // -- Support for entrySet() method --
+    private class EntryIterator implements Iterator<Entry<K,V>> {
+        private int idx = 0;
+        private final Iterator<Entry<K,V>> overflowEntries =
+                overflow == null ? null : overflow.entrySet().iterator();
+        @Override
+        public boolean hasNext() {
+            return idx < keys.length || (overflowEntries != null && overflowEntries.hasNext());
+        }
+        @Override
+        public Entry<K,V> next() {
+            if(!hasNext()) throw new NoSuchElementException("next");
+            if(idx < keys.length) {
+                Entry<K,V> entry = new MapEntry<>((K) keys[idx], (V) values[idx]);
+                idx++;
+                return entry;
+            }
+            return overflowEntries.next();
+        }
+    }
+    private class EntryIterable implements Iterable<Entry<K,V>> {
+        @Override
+        public Iterator<Entry<K,V>> iterator() { return new EntryIterator(); }
+    }
+    // -- End of support for entrySet() --
+
+    /**
+     * Returns an iterable collection of all key value pairs
+     * @return iterable collection of entries
+     */
+    public Iterable<Entry<K,V>> entrySet() { return new EntryIterable(); }
+}
@@ -0,0 +1,96 @@
+package maps;
+
+/**
+ * Summary of how the keys of a hash map are spread over the buckets of its table
+ * Each key is counted in the bucket its hash value points to (its home bucket), whether
+ * or not the map ended up storing it there, so reports of chaining and probing maps
+ * can be compared directly
+ *
+ * Obtained through AbstractHashMap.distributionReport()
+ */
+public class HashDistributionReport {
+    private final int capacity;
+    private final int size;
+    // bucketSizeCounts[s] is the number of buckets that s keys hash to
+    private final int[] bucketSizeCounts;
+
+    /**
+     * Builds the report from the number of keys hashing to each bucket
+     * @param keysPerBucket keysPerBucket[i] is the number of keys with hash value i
+     */
+    public HashDistributionReport(int[] keysPerBucket) {
+        capacity = keysPerBucket.length;
+        int total = 0;
+        int max = 0;
+        for(int count: keysPerBucket) {
+            total += count;
+            max = Math.max(max, count);
+        }
+        size = total;
+        bucketSizeCounts = new int[max + 1];
+        for(int count: keysPerBucket)
+            bucketSizeCounts[count]++;
+    }
+
+    /**
+     * Returns the number of buckets in the table
+     */
+    public int capacity() { return capacity; }
+
+    /**
+     * Returns the number of keys in the map
+     */
+    public int size() { return size; }
+
+    /**
+     * Returns the number of buckets that at least one key hashes to
+     */
+    public int usedBuckets() { return capacity - bucketSizeCounts[0]; }
+
+    /**
+     * Returns the number of keys that hash to a bucket already claimed by another key
+     */
+    public int collisions() { return size - usedBuckets(); }
+
+    /**
+     * Returns the largest number of keys hashing to a single bucket
+     */
+    public int maxBucketSize() { return bucketSizeCounts.length - 1; }
+
+    /**
+     * Returns the number of collisions expected if the hash values were uniformly random
+     * n - N(1 - (1 - 1/N)^n)
+     */
+    public double expectedCollisions() {
+        if(capacity == 0)
+            return 0;
+        double expectedUsed = capacity * (1 - Math.pow(1 - 1.0 / capacity, size));
+        return size - expectedUsed;
+    }
+
+    /**
+     * Returns a copy of the histogram of bucket sizes
+     * Element s of the returned array is the number of buckets that exactly s keys hash to
+     */
+    public int[] bucketSizeHistogram() {
+        return bucketSizeCounts.clone();
+    }
+
+    @Override
+    public String toString() {
+        StringBuilder sb = new StringBuilder();
+        sb.append("capacity=").append(capacity)
+                .append(" size=").append(size)
+                .append(" usedBuckets=").append(usedBuckets())
+                .append(" collisions=").append(collisions())
+                .append(String.format(" (expected %.1f)", expectedCollisions()))
+                .append(" maxBucketSize=").append(maxBucketSize())
+                .append(" histogram=[");
+        for(int s = 0; s < bucketSizeCounts.length; s++) {
+            if(s > 0)
+                sb.append(", ");
+            sb.append(s).append(':').append(bucketSizeCounts[s]);
+        }
+        return sb.append(']').toString();
+    }
+}
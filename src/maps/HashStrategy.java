@@ -0,0 +1,41 @@
+package maps;
+
+/**
+ * Strategy used by AbstractHashMap to turn the hash code of a key into an index of its table
+ * and to choose the length of the table when it is created or grown
+ *
+ * Implementations
+ * MADHashStrategy        : Multiply-Add-and-Divide compression over tables of any length
+ * PowerOfTwoHashStrategy : bit mixing followed by a mask over tables whose length is a power of two
+ */
+public interface HashStrategy {
+    /**
+     * Returns the table length to use when a table of (at least) the requested length is asked for
+     * @param requested requested capacity
+     * @return capacity supported by the strategy
+     */
+    int capacityFor(int requested);
+
+    /**
+     * Returns the capacity to grow to when a table of the given capacity becomes too full
+     * @param capacity current capacity
+     * @return larger capacity
+     */
+    int grow(int capacity);
+
+    /**
+     * Returns the capacity to shrink to when a table of the given capacity becomes too empty
+     * Growing the result must give back capacity
+     * @param capacity current capacity
+     * @return smaller capacity, or capacity itself if it can not shrink
+     */
+    int shrink(int capacity);
+
+    /**
+     * Maps a hash code into the range [0, capacity-1]
+     * @param hashCode hash code of a key
+     * @param capacity length of the table, as returned by capacityFor or grow
+     * @return index into the table
+     */
+    int compress(int hashCode, int capacity);
+}
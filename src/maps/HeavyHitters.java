@@ -0,0 +1,107 @@
+package maps;
+
+import util.Entry;
+
+import java.util.List;
+
+/**
+ * Finds the most frequent keys of an unbounded stream in bounded memory (Misra-Gries)
+ *
+ * At most m keys are counted, in an ObjectIntCounter. A key already counted, or arriving while
+ * fewer than m keys are, is counted exactly. Otherwise the counts of the m keys and the weight
+ * of the new key are all decreased by the smallest of them, which frees the counter of at
+ * least one key, and the new key is counted with what is left of its weight.
+ *
+ * Every decrease takes the same amount d from m + 1 occurrences, so the total D of the
+ * decreases is at most n / (m + 1) for a stream of total weight n. The count kept for a key is
+ * a lower bound of its true count, which is at most the count kept plus D: errorBound()
+ * returns D. Every key occurring more than n / (m + 1) times is therefore kept.
+ *
+ * Expected running time
+ * offer : O(1) amortized, a decrease costs O(m) and removes at least one key
+ * topK  : O(m log k)
+ *
+ * @param <K> key
+ */
+public class HeavyHitters<K> {
+    // maximum number of keys counted
+    private final int m;
+    private final ObjectIntCounter<K> counters;
+    // keys of counters, gathered when counts are decreased
+    private final Object[] scratch;
+    // total weight offered
+    private long n = 0;
+    // total of the decreases
+    private long decreased = 0;
+
+    /**
+     * Creates an empty summary
+     * @param m maximum number of keys counted
+     * @throws IllegalArgumentException if m is not positive
+     */
+    public HeavyHitters(int m) throws IllegalArgumentException {
+        if(m <= 0)
+            throw new IllegalArgumentException("m must be positive: " + m);
+        this.m = m;
+        counters = new ObjectIntCounter<>(2 * m + 2);
+        scratch = new Object[m];
+    }
+
+    public void offer(K key) { offer(key, 1); }
+
+    /**
+     * Counts weight occurrences of key
+     * @throws IllegalArgumentException if weight is not positive
+     */
+    public void offer(K key, int weight) throws IllegalArgumentException {
+        if(weight <= 0)
+            throw new IllegalArgumentException("weight must be positive: " + weight);
+        n += weight;
+        if(counters.size() < m || counters.get(key) != 0) {
+            counters.add(key, weight);
+            return;
+        }
+        int[] d = { weight };
+        int[] keys = { 0 };
+        counters.forEach((k, count) -> {
+            d[0] = Math.min(d[0], count);
+            scratch[keys[0]++] = k;
+        });
+        for(int i = 0; i < keys[0]; i++) {
+            counters.add((K) scratch[i], -d[0]);
+            scratch[i] = null;
+        }
+        decreased += d[0];
+        if(weight > d[0])
+            counters.add(key, weight - d[0]);
+    }
+
+    /**
+     * Returns a lower bound of the number of occurrences of key, 0 if key is not counted
+     * The true number is at most estimate(key) + errorBound()
+     */
+    public int estimate(K key) { return counters.get(key); }
+
+    /**
+     * Returns the largest amount by which a count may be below the true count, at most
+     * totalWeight() / (m + 1)
+     */
+    public long errorBound() { return decreased; }
+
+    /**
+     * Returns the total weight offered
+     */
+    public long totalWeight() { return n; }
+
+    /**
+     * Returns the number of keys currently counted, at most m
+     */
+    public int size() { return counters.size(); }
+
+    /**
+     * Returns the k keys with the largest estimates, with their estimates, largest first
+     */
+    public List<Entry<K, Integer>> topK(int k) {
+        return TopK.of(counters, k);
+    }
+}
@@ -0,0 +1,187 @@
+package maps;
+
+import java.util.Random;
+
+/**
+ * A map from primitive int keys to primitive int values using open addressing with linear probing
+ * Keys and values are kept in parallel int arrays so no MapEntry or boxed Integer is created per entry
+ * A parallel byte array records the state of each slot, playing the role that null and DEFUNCT
+ * play in ProbeHashMap
+ *
+ * Uses the same MAD compression function, linear probing and load factor policy as AbstractHashMap
+ * ie the table is resized to 2 * capacity - 1 whenever n > capacity / 2, and rehashed at the
+ * same capacity whenever DEFUNCT slots exceed a quarter of it so that misses stay short
+ *
+ * Since an int can not be null, lookups for missing keys return the missing value given at construction
+ * (0 by default), use containsKey or getOrDefault to tell a missing key apart from a stored value
+ *
+ * Expected running time
+ * get    : O(1)
+ * put    : O(1)
+ * remove : O(1)
+ */
+public class IntIntProbeHashMap {
+    // slot states
+    private static final byte EMPTY = 0;
+    private static final byte OCCUPIED = 1;
+    private static final byte DEFUNCT = 2;
+
+    // number of entries in the map
+    private int n = 0;
+    // number of DEFUNCT slots in the table
+    private int defunct = 0;
+    // length of the table
+    private int capacity;
+    // prime factor, scale and shift of the MAD compression function
+    private final int prime;
+    private final long scale, shift;
+    // value reported for keys that are not in the map
+    private final int missingValue;
+
+    // parallel arrays making up the table
+    private int[] keys;
+    private int[] values;
+    private byte[] states;
+
+    // -- constructors --
+    public IntIntProbeHashMap() { this(17); }
+    public IntIntProbeHashMap(int cap) { this(cap, 109345121, 0); }
+
+    /**
+     * Creates an empty map
+     * @param cap initial capacity
+     * @param p prime used by the compression function
+     * @param missing value returned by get, put and remove when a key is not in the map
+     */
+    public IntIntProbeHashMap(int cap, int p, int missing) {
+        capacity = cap;
+        prime = p;
+        missingValue = missing;
+        Random rand = new Random();
+        scale = rand.nextInt(prime - 1) + 1;
+        shift = rand.nextInt(prime);
+        createTable();
+    }
+    // -- end of constructors --
+
+    // -- private utilities --
+    private void createTable() {
+        keys = new int[capacity];
+        values = new int[capacity];
+        states = new byte[capacity];
+        defunct = 0;
+    }
+
+    /**
+     * MAD compression of the key into the range [0, capacity-1]
+     */
+    private int hashValue(int key) {
+        return (int) ((Math.abs(key * scale + shift) % prime) % capacity);
+    }
+
+    /**
+     * Returns index with key k, or -(a + 1) such that k could be added at index a
+     * Follows the same conventions as ProbeHashMap.findSlot
+     */
+    private int findSlot(int k) {
+        int h = hashValue(k);
+        int avail = -1;
+        int idx = h;
+        do {
+            byte state = states[idx];
+            if(state != OCCUPIED) {
+                if(avail == -1)
+                    avail = idx;
+                if(state == EMPTY)
+                    break;
+            } else if(keys[idx] == k)
+                return idx;
+            idx = (idx + 1) % capacity;
+        } while(idx != h);
+        return -(avail + 1);
+    }
+
+    private void resize(int newCap) {
+        int[] oldKeys = keys;
+        int[] oldValues = values;
+        byte[] oldStates = states;
+        capacity = newCap;
+        createTable();
+        for(int i = 0; i < oldStates.length; i++) {
+            if(oldStates[i] == OCCUPIED) {
+                int idx = -(findSlot(oldKeys[i]) + 1);
+                keys[idx] = oldKeys[i];
+                values[idx] = oldValues[i];
+                states[idx] = OCCUPIED;
+            }
+        }
+    }
+    // -- end of private utilities --
+
+    public int size() { return n; }
+    public boolean isEmpty() { return n == 0; }
+
+    /**
+     * Returns whether the map has an entry with key k
+     */
+    public boolean containsKey(int k) {
+        return findSlot(k) >= 0;
+    }
+
+    /**
+     * Returns value associated with key k, or the missing value if there is no such entry
+     */
+    public int get(int k) {
+        return getOrDefault(k, missingValue);
+    }
+
+    /**
+     * Returns value associated with key k, or defaultValue if there is no such entry
+     */
+    public int getOrDefault(int k, int defaultValue) {
+        int idx = findSlot(k);
+        if(idx >= 0)
+            return values[idx];
+        return defaultValue;
+    }
+
+    /**
+     * Associates key k with value v, returns old value or the missing value if a new entry is created
+     */
+    public int put(int k, int v) {
+        int idx = findSlot(k);
+        if(idx >= 0) {
+            int old = values[idx];
+            values[idx] = v;
+            return old;
+        }
+        idx = -(idx + 1);
+        if(states[idx] == DEFUNCT)
+            defunct--;
+        keys[idx] = k;
+        values[idx] = v;
+        states[idx] = OCCUPIED;
+        n++;
+        // keep load factor <= 0.5
+        if(n > capacity / 2)
+            resize(2 * capacity - 1);
+        return missingValue;
+    }
+
+    /**
+     * Removes entry having key k, returns its value or the missing value if there is no such entry
+     */
+    public int remove(int k) {
+        int idx = findSlot(k);
+        if(idx < 0)
+            return missingValue;
+        int answer = values[idx];
+        states[idx] = DEFUNCT;
+        defunct++;
+        n--;
+        if(defunct > capacity / 4)
+            // rehash at the same capacity to get rid of DEFUNCT slots
+            resize(capacity);
+        return answer;
+    }
+}
@@ -0,0 +1,437 @@
+package maps;
+
+import util.Entry;
+
+import java.util.ArrayList;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicReference;
+import java.util.concurrent.atomic.AtomicReferenceArray;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.function.BiFunction;
+
+/**
+ * A thread-safe hash table using open addressing with linear probing in which no operation
+ * ever takes a lock, after Cliff Click's non-blocking hash table
+ *
+ * The table keeps the slot layout of ProbeHashMap, with keys and values in two parallel
+ * atomic arrays instead of MapEntry objects so that each can be updated with compareAndSet:
+ * - a key slot goes from null to a key exactly once and a key never leaves its slot
+ * - removing an entry replaces its value with TOMBSTONE, a later put of the same key reuses the slot
+ *
+ * When the table fills up a new table is allocated and chained to the old one. Any thread that
+ * meets a table being migrated helps by copying chunks of slots. A slot is copied in three steps
+ * - its value is boxed in a Prime, after which no update of the old slot can succeed
+ * - the value is inserted into the new table unless the key already has a newer value there
+ * - the old value is replaced with TOMBPRIME, meaning "look in the new table"
+ * Once every slot has been copied the new table replaces the old one as the top level table.
+ *
+ * Every get, put and remove takes effect at a single compareAndSet (or read), so the
+ * map is linearizable
+ *
+ * Expected running time
+ * get    : O(1), never blocks
+ * put    : O(1), never blocks
+ * remove : O(1), never blocks
+ * entrySet : O(n), weakly consistent snapshot
+ *
+ * @param <K> key
+ * @param <V> value
+ */
+public class LockFreeProbeHashMap<K,V> extends AbstractMap<K,V> {
+    // value of a removed entry
+    private static final Object TOMBSTONE = new Object();
+    // key of a slot that was still empty when its table was migrated, can never be claimed
+    private static final Object TOMB_KEY = new Object();
+    // passed as expected value to put unconditionally
+    private static final Object NO_MATCH_OLD = new Object();
+    // number of slots copied by a thread each time it helps a migration
+    private static final int COPY_CHUNK = 1024;
+    // minimum number of probes before a put gives up on a table and moves to the next one
+    private static final int REPROBE_LIMIT = 10;
+
+    /**
+     * Wraps a value that is being copied to the next table
+     */
+    private static final class Prime {
+        final Object value;
+        Prime(Object v) { value = v; }
+    }
+    // value of a slot whose entry now lives in the next table (or that had none)
+    private static final Prime TOMBPRIME = new Prime(TOMBSTONE);
+
+    /**
+     * A single table, possibly being migrated to its successor
+     */
+    private static final class Table {
+        final int length;
+        final AtomicReferenceArray<Object> keys;
+        final AtomicReferenceArray<Object> vals;
+        // table this one is being migrated to, null if no migration has started
+        final AtomicReference<Table> next = new AtomicReference<>();
+        // number of key slots claimed
+        final AtomicInteger slots = new AtomicInteger();
+        // next chunk of slots to be copied
+        final AtomicInteger copyIdx = new AtomicInteger();
+        // number of slots copied
+        final AtomicInteger copyDone = new AtomicInteger();
+
+        Table(int len) {
+            length = len;
+            keys = new AtomicReferenceArray<>(len);
+            vals = new AtomicReferenceArray<>(len);
+        }
+    }
+
+    private final HashStrategy strategy = new PowerOfTwoHashStrategy();
+    // top level table, every operation starts here
+    private final AtomicReference<Table> top;
+    // number of entries
+    private final LongAdder n = new LongAdder();
+
+    // -- constructors --
+    public LockFreeProbeHashMap() { this(16); }
+    public LockFreeProbeHashMap(int cap) {
+        top = new AtomicReference<>(new Table(strategy.capacityFor(cap)));
+    }
+    // -- end of constructors --
+
+    // -- private utilities --
+    private static int hash(Object key) {
+        return PowerOfTwoHashStrategy.mix(key.hashCode());
+    }
+
+    private static boolean keyEquals(Object k, Object key) {
+        return k == key || (k != TOMB_KEY && k.equals(key));
+    }
+
+    /**
+     * Returns whether v stands for a missing entry
+     */
+    private static boolean isAbsent(Object v) {
+        return v == null || v == TOMBSTONE;
+    }
+
+    private static int reprobeLimit(int len) {
+        return REPROBE_LIMIT + (len >> 2);
+    }
+
+    /**
+     * Looks key up in t, following the chain of tables being migrated if needed
+     * @return raw value, null or TOMBSTONE if missing
+     */
+    private Object getImpl(Table t, Object key, int hash) {
+        int len = t.length;
+        int idx = hash & (len - 1);
+        int reprobes = 0;
+        while(true) {
+            Object k = t.keys.get(idx);
+            Object v = t.vals.get(idx);
+            if(k == null)
+                // keys never leave their slot, so the key was never in this table or the next
+                return null;
+            if(keyEquals(k, key)) {
+                if(!(v instanceof Prime))
+                    return v;
+                // the slot is being copied, finish copying it and look in the next table
+                return getImpl(copySlotAndCheck(t, idx, true), key, hash);
+            }
+            if(++reprobes >= reprobeLimit(len) || k == TOMB_KEY) {
+                Table nt = t.next.get();
+                if(nt == null)
+                    return null;
+                helpCopy();
+                return getImpl(nt, key, hash);
+            }
+            idx = (idx + 1) & (len - 1);
+        }
+    }
+
+    /**
+     * Core update, associates key with putVal in t if the current value matches expVal
+     * expVal is NO_MATCH_OLD to update unconditionally, TOMBSTONE to update only if the key is
+     * missing, null (used by migration only) to update only if the key never had a value in t,
+     * and any other value to update only if the current value equals it
+     * putVal is TOMBSTONE to remove the key
+     * @return the raw value found, null or TOMBSTONE if the key was missing
+     */
+    private Object putIfMatch(Table t, Object key, int hash, Object putVal, Object expVal) {
+        int len = t.length;
+        int idx = hash & (len - 1);
+        int reprobes = 0;
+        Object k;
+        Object v;
+        // Claim a key slot, or find the one already holding key
+        while(true) {
+            v = t.vals.get(idx);
+            k = t.keys.get(idx);
+            if(k == null) {
+                // removing a missing key, nothing to do
+                if(putVal == TOMBSTONE)
+                    return null;
+                if(t.keys.compareAndSet(idx, null, key)) {
+                    t.slots.incrementAndGet();
+                    break;
+                }
+                k = t.keys.get(idx);
+            }
+            if(keyEquals(k, key))
+                break;
+            if(++reprobes >= reprobeLimit(len) || k == TOMB_KEY) {
+                // this table is too crowded (or already migrating) for key, go to the next one
+                Table nt = resize(t);
+                if(expVal != null)
+                    helpCopy();
+                return putIfMatch(nt, key, hash, putVal, expVal);
+            }
+            idx = (idx + 1) & (len - 1);
+        }
+
+        if(putVal == v)
+            return v;
+        Table nt = t.next.get();
+        if(nt == null && ((v == null && t.slots.get() > len / 2) || v instanceof Prime))
+            nt = resize(t);
+        if(nt != null)
+            // updates only ever succeed in the newest table
+            return putIfMatch(copySlotAndCheck(t, idx, expVal != null), key, hash, putVal, expVal);
+
+        // Update the value slot
+        while(true) {
+            if(!matches(v, expVal))
+                return v;
+            if(t.vals.compareAndSet(idx, v, putVal)) {
+                // entries copied by a migration are already counted
+                if(expVal != null) {
+                    if(isAbsent(v) && putVal != TOMBSTONE)
+                        n.increment();
+                    else if(!isAbsent(v) && putVal == TOMBSTONE)
+                        n.decrement();
+                }
+                return v;
+            }
+            v = t.vals.get(idx);
+            if(v instanceof Prime)
+                return putIfMatch(copySlotAndCheck(t, idx, expVal != null), key, hash, putVal, expVal);
+        }
+    }
+
+    /**
+     * Returns whether the current raw value v satisfies the expected value of putIfMatch
+     */
+    private static boolean matches(Object v, Object expVal) {
+        if(expVal == NO_MATCH_OLD)
+            return true;
+        if(expVal == null)
+            return v == null;
+        if(expVal == TOMBSTONE)
+            return isAbsent(v);
+        return !isAbsent(v) && expVal.equals(v);
+    }
+
+    /**
+     * Starts migrating t to a new table unless another thread already did, returns the new table
+     * The new table doubles (or quadruples) when many entries are live, otherwise it keeps the
+     * same length and simply drops the removed entries
+     */
+    private Table resize(Table t) {
+        Table nt = t.next.get();
+        if(nt != null)
+            return nt;
+        int len = t.length;
+        long size = n.sum();
+        int newLen = len;
+        if(size >= len / 4)
+            newLen = len << 1;
+        if(size >= len / 2)
+            newLen = len << 2;
+        t.next.compareAndSet(null, new Table(newLen));
+        return t.next.get();
+    }
+
+    /**
+     * Copies slot idx of t into the next table and returns the next table
+     */
+    private Table copySlotAndCheck(Table t, int idx, boolean shouldHelp) {
+        Table nt = t.next.get();
+        if(copySlot(t, idx, nt))
+            copyCheckAndPromote(t, 1);
+        if(shouldHelp)
+            helpCopy();
+        return nt;
+    }
+
+    /**
+     * Copies slot idx of t into nt, returns true if this thread is the one that finished it
+     */
+    private boolean copySlot(Table t, int idx, Table nt) {
+        // An empty key slot is killed so no key can be claimed there any more
+        Object k;
+        while((k = t.keys.get(idx)) == null)
+            t.keys.compareAndSet(idx, null, TOMB_KEY);
+
+        // Box the value, from now on no update of this slot can succeed
+        Object v = t.vals.get(idx);
+        while(!(v instanceof Prime)) {
+            Prime box = isAbsent(v) ? TOMBPRIME : new Prime(v);
+            if(t.vals.compareAndSet(idx, v, box)) {
+                // nothing to copy for a missing entry
+                if(box == TOMBPRIME)
+                    return true;
+                v = box;
+                break;
+            }
+            v = t.vals.get(idx);
+        }
+        if(v == TOMBPRIME)
+            return false;
+
+        // Insert into the next table, unless a newer value got there first
+        Object old = ((Prime) v).value;
+        putIfMatch(nt, k, hash(k), old, null);
+
+        // Mark the slot as copied
+        while(v != TOMBPRIME) {
+            if(t.vals.compareAndSet(idx, v, TOMBPRIME))
+                return true;
+            v = t.vals.get(idx);
+        }
+        return false;
+    }
+
+    /**
+     * Records that workDone more slots of t were copied, and promotes the next table to top
+     * level once all of them are
+     */
+    private void copyCheckAndPromote(Table t, int workDone) {
+        int done = t.copyDone.addAndGet(workDone);
+        if(done == t.length)
+            top.compareAndSet(t, t.next.get());
+    }
+
+    /**
+     * Copies a chunk of the top level table if it is being migrated
+     */
+    private void helpCopy() {
+        Table t = top.get();
+        Table nt = t.next.get();
+        if(nt == null)
+            return;
+        int len = t.length;
+        int chunk = Math.min(len, COPY_CHUNK);
+        int start = t.copyIdx.getAndAdd(chunk);
+        int workDone = 0;
+        if(start < len) {
+            for(int i = start; i < start + chunk; i++)
+                if(copySlot(t, i, nt))
+                    workDone++;
+        } else if(t.copyDone.get() < len) {
+            // Every chunk was claimed but some thread is slow to finish its own, copy everything
+            for(int i = 0; i < len; i++)
+                if(copySlot(t, i, nt))
+                    workDone++;
+        }
+        if(workDone > 0)
+            copyCheckAndPromote(t, workDone);
+        else if(t.copyDone.get() == len)
+            // t was fully copied before it became the top level table
+            top.compareAndSet(t, nt);
+    }
+    // -- end of private utilities --
+
+    /**
+     * Returns the number of entries, exact when no update is in progress
+     */
+    public int size() { return n.intValue(); }
+
+    /**
+     * Returns value associated with key, else null
+     * @param key key
+     * @return value associated with key, else null
+     */
+    public V get(K key) {
+        Object v = getImpl(top.get(), key, hash(key));
+        return isAbsent(v) ? null : (V) v;
+    }
+
+    /**
+     * Associates key with value, returns old value
+     * @param key key
+     * @param value value, not null
+     * @return old value, null if a new entry is created
+     */
+    public V put(K key, V value) {
+        if(value == null)
+            throw new IllegalArgumentException("Values can not be null");
+        Object old = putIfMatch(top.get(), key, hash(key), value, NO_MATCH_OLD);
+        return isAbsent(old) ? null : (V) old;
+    }
+
+    /**
+     * Removes entry having key, returns value of removed entry
+     * @param key key
+     * @return value of removed entry, null if there was none
+     */
+    public V remove(K key) {
+        Object old = putIfMatch(top.get(), key, hash(key), TOMBSTONE, NO_MATCH_OLD);
+        return isAbsent(old) ? null : (V) old;
+    }
+
+    /**
+     * Associates key with value unless key already has a value, in a single compareAndSet
+     * @return current value, null if value was added
+     */
+    public V putIfAbsent(K key, V value) {
+        if(value == null)
+            throw new IllegalArgumentException("Values can not be null");
+        Object old = putIfMatch(top.get(), key, hash(key), value, TOMBSTONE);
+        return isAbsent(old) ? null : (V) old;
+    }
+
+    /**
+     * Associates key with the value computed from key and its current value, atomically
+     * The new value is only stored if the value it was computed from is still current, else
+     * the function is applied again, so it may be called more than once and should not have
+     * side effects
+     * @param key key
+     * @param remappingFunction function computing the new value, the entry is removed if it returns null
+     * @return new value, null if there is none
+     */
+    public V compute(K key, BiFunction<? super K, ? super V, ? extends V> remappingFunction) {
+        int hash = hash(key);
+        while(true) {
+            Object old = getImpl(top.get(), key, hash);
+            V value = remappingFunction.apply(key, isAbsent(old) ? null : (V) old);
+            if(value == null && isAbsent(old))
+                return null;
+            Object expVal = isAbsent(old) ? TOMBSTONE : old;
+            Object witness = putIfMatch(top.get(), key, hash, value == null ? TOMBSTONE : value, expVal);
+            if(matches(witness, expVal))
+                return value;
+        }
+    }
+
+    /**
+     * Returns a snapshot of the entries
+     * Completes any migration in progress first, then reads the top level table
+     * Weakly consistent: updates made while the snapshot is being taken may or may not be included
+     * @return iterable collection of entries
+     */
+    public Iterable<Entry<K,V>> entrySet() {
+        Table t;
+        while((t = top.get()).next.get() != null)
+            helpCopy();
+        ArrayList<Entry<K,V>> buffer = new ArrayList<>();
+        for(int i = 0; i < t.length; i++) {
+            Object k = t.keys.get(i);
+            if(k == null || k == TOMB_KEY)
+                continue;
+            Object v = t.vals.get(i);
+            if(v instanceof Prime)
+                // migrated since we looked, read it from the newer table
+                v = getImpl(top.get(), k, hash(k));
+            if(!isAbsent(v))
+                buffer.add(new MapEntry<>((K) k, (V) v));
+        }
+        return buffer;
+    }
+}
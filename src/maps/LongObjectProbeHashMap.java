@@ -0,0 +1,185 @@
+package maps;
+
+import java.util.Random;
+
+/**
+ * A map from primitive long keys to object values using open addressing with linear probing
+ * Keys are kept in a long array parallel to the array of values so no MapEntry or boxed Long
+ * is created per entry
+ * A parallel byte array records the state of each slot, playing the role that null and DEFUNCT
+ * play in ProbeHashMap
+ *
+ * Uses the same MAD compression function, linear probing and load factor policy as AbstractHashMap
+ * ie the table is resized to 2 * capacity - 1 whenever n > capacity / 2, and rehashed at the
+ * same capacity whenever DEFUNCT slots exceed a quarter of it so that misses stay short
+ *
+ * Expected running time
+ * get    : O(1)
+ * put    : O(1)
+ * remove : O(1)
+ * @param <V> value
+ */
+public class LongObjectProbeHashMap<V> {
+    // slot states
+    private static final byte EMPTY = 0;
+    private static final byte OCCUPIED = 1;
+    private static final byte DEFUNCT = 2;
+
+    // number of entries in the map
+    private int n = 0;
+    // number of DEFUNCT slots in the table
+    private int defunct = 0;
+    // length of the table
+    private int capacity;
+    // prime factor, scale and shift of the MAD compression function
+    private final int prime;
+    private final long scale, shift;
+
+    // parallel arrays making up the table
+    private long[] keys;
+    private V[] values;
+    private byte[] states;
+
+    // -- constructors --
+    public LongObjectProbeHashMap() { this(17); }
+    public LongObjectProbeHashMap(int cap) { this(cap, 109345121); }
+
+    /**
+     * Creates an empty map
+     * @param cap initial capacity
+     * @param p prime used by the compression function
+     */
+    public LongObjectProbeHashMap(int cap, int p) {
+        capacity = cap;
+        prime = p;
+        Random rand = new Random();
+        scale = rand.nextInt(prime - 1) + 1;
+        shift = rand.nextInt(prime);
+        createTable();
+    }
+    // -- end of constructors --
+
+    // -- private utilities --
+    private void createTable() {
+        keys = new long[capacity];
+        values = (V[]) new Object[capacity];
+        states = new byte[capacity];
+        defunct = 0;
+    }
+
+    /**
+     * Folds the key into an int, the same way Long.hashCode does, then applies MAD compression
+     */
+    private int hashValue(long key) {
+        int hashCode = (int) (key ^ (key >>> 32));
+        return (int) ((Math.abs(hashCode * scale + shift) % prime) % capacity);
+    }
+
+    /**
+     * Returns index with key k, or -(a + 1) such that k could be added at index a
+     * Follows the same conventions as ProbeHashMap.findSlot
+     */
+    private int findSlot(long k) {
+        int h = hashValue(k);
+        int avail = -1;
+        int idx = h;
+        do {
+            byte state = states[idx];
+            if(state != OCCUPIED) {
+                if(avail == -1)
+                    avail = idx;
+                if(state == EMPTY)
+                    break;
+            } else if(keys[idx] == k)
+                return idx;
+            idx = (idx + 1) % capacity;
+        } while(idx != h);
+        return -(avail + 1);
+    }
+
+    private void resize(int newCap) {
+        long[] oldKeys = keys;
+        V[] oldValues = values;
+        byte[] oldStates = states;
+        capacity = newCap;
+        createTable();
+        for(int i = 0; i < oldStates.length; i++) {
+            if(oldStates[i] == OCCUPIED) {
+                int idx = -(findSlot(oldKeys[i]) + 1);
+                keys[idx] = oldKeys[i];
+                values[idx] = oldValues[i];
+                states[idx] = OCCUPIED;
+            }
+        }
+    }
+    // -- end of private utilities --
+
+    public int size() { return n; }
+    public boolean isEmpty() { return n == 0; }
+
+    /**
+     * Returns whether the map has an entry with key k
+     */
+    public boolean containsKey(long k) {
+        return findSlot(k) >= 0;
+    }
+
+    /**
+     * Returns value associated with key k, else null
+     */
+    public V get(long k) {
+        return getOrDefault(k, null);
+    }
+
+    /**
+     * Returns value associated with key k, or defaultValue if there is no such entry
+     */
+    public V getOrDefault(long k, V defaultValue) {
+        int idx = findSlot(k);
+        if(idx >= 0)
+            return values[idx];
+        return defaultValue;
+    }
+
+    /**
+     * Associates key k with value v, returns old value or null if a new entry is created
+     */
+    public V put(long k, V v) {
+        int idx = findSlot(k);
+        if(idx >= 0) {
+            V old = values[idx];
+            values[idx] = v;
+            return old;
+        }
+        idx = -(idx + 1);
+        if(states[idx] == DEFUNCT)
+            defunct--;
+        keys[idx] = k;
+        values[idx] = v;
+        states[idx] = OCCUPIED;
+        n++;
+        // keep load factor <= 0.5
+        if(n > capacity / 2)
+            resize(2 * capacity - 1);
+        return null;
+    }
+
+    /**
+     * Removes entry having key k, returns its value or null if there is no such entry
+     */
+    public V remove(long k) {
+        int idx = findSlot(k);
+        if(idx < 0)
+            return null;
+        V answer = values[idx];
+        // drop the reference so the value can be garbage collected
+        values[idx] = null;
+        states[idx] = DEFUNCT;
+        defunct++;
+        n--;
+        if(defunct > capacity / 4)
+            // rehash at the same capacity to get rid of DEFUNCT slots
+            resize(capacity);
+        return answer;
+    }
+}
@@ -0,0 +1,45 @@
+package maps;
+
+import java.util.Random;
+
+/**
+ * The MAD method (Multiply-Add-and-Divide), Goodrich pg 416
+ * MAD = [(ai + b) mod p] mod N
+ * p is a prime number larger than the number of entries,
+ * a (scale) and b (shift) are random numbers in the range [0, p - 1], a is greater than 0
+ *
+ * Works for tables of any length, tables grow to 2N - 1 since a prime number is
+ * most preferred as capacity
+ */
+public class MADHashStrategy implements HashStrategy {
+    // prime factor
+    private final int prime;
+    // shift and scaling factors
+    private final long scale, shift;
+
+    /**
+     * Uses the default prime
+     */
+    public MADHashStrategy() { this(109345121); }
+
+    /**
+     * Chooses random scale and shift factors for the given prime
+     * @param p prime
+     */
+    public MADHashStrategy(int p) {
+        prime = p;
+        Random rand = new Random();
+        scale = rand.nextInt(prime - 1) + 1;
+        shift = rand.nextInt(prime);
+    }
+
+    public int capacityFor(int requested) { return Math.max(requested, 1); }
+
+    public int grow(int capacity) { return Math.max(2 * capacity - 1, 3); }
+
+    public int shrink(int capacity) { return Math.max((capacity + 1) / 2, 1); }
+
+    public int compress(int hashCode, int capacity) {
+        return (int) ((Math.abs(hashCode * scale + shift) % prime) % capacity);
+    }
+}
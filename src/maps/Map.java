@@ -7,8 +7,18 @@ package maps;
 
 import util.Entry;
 
+import java.util.function.BiFunction;
+import java.util.function.Function;
+
 /**
  * A formal definition of a Java interface for our version of the map ADT.
+ *
+ * The default compute looks the key up with get and then calls put or remove. computeIfAbsent
+ * and merge are built on compute, so implementations override compute to find the key only
+ * once per update. putIfAbsent defaults to get then put: it is not atomic unless overridden,
+ * as the concurrent maps do.
+ * As everywhere else in the ADT, a null value stands for a missing entry: a function returning
+ * null removes the entry
  * @param <K> Key
  * @param <V> Value
  */
@@ -21,4 +31,57 @@ public interface Map<K,V> {
     Iterable<K> keySet();
     Iterable<V> values();
     Iterable<Entry<K,V>>  entrySet();
+
+    /**
+     * Returns value associated with key, else defaultValue
+     */
+    default V getOrDefault(K key, V defaultValue) {
+        V value = get(key);
+        return value == null ? defaultValue : value;
+    }
+
+    /**
+     * Associates key with value unless key already has a value
+     * @return current value, null if value was added
+     */
+    default V putIfAbsent(K key, V value) {
+        V current = get(key);
+        if(current == null)
+            put(key, value);
+        return current;
+    }
+
+    /**
+     * Associates key with the value computed from key and its current value (null if none)
+     * The entry is removed if the computed value is null
+     * @return new value, null if there is none
+     */
+    default V compute(K key, BiFunction<? super K, ? super V, ? extends V> remappingFunction) {
+        V old = get(key);
+        V value = remappingFunction.apply(key, old);
+        if(value != null)
+            put(key, value);
+        else if(old != null)
+            remove(key);
+        return value;
+    }
+
+    /**
+     * Associates key with the value computed from key, unless key already has a value
+     * Nothing is added if the computed value is null
+     * @return current or computed value
+     */
+    default V computeIfAbsent(K key, Function<? super K, ? extends V> mappingFunction) {
+        return compute(key, (k, old) -> old == null ? mappingFunction.apply(k) : old);
+    }
+
+    /**
+     * Associates key with value if it has no value, else with the result of combining its
+     * current value with value, eg merge(word, 1, Integer::sum) to count words
+     * The entry is removed if the combined value is null
+     * @return new value, null if there is none
+     */
+    default V merge(K key, V value, BiFunction<? super V, ? super V, ? extends V> remappingFunction) {
+        return compute(key, (k, old) -> old == null ? value : remappingFunction.apply(old, value));
+    }
 }
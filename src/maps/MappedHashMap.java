@@ -0,0 +1,665 @@
+package maps;
+
+import util.Entry;
+
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.ByteBuffer;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.Iterator;
+import java.util.NoSuchElementException;
+import java.util.zip.CRC32;
+
+/**
+ * A persistent hash map stored in two memory-mapped files
+ *
+ * The log file (path + ".log") is append-only: every put appends a record holding the encoded
+ * key and value and every remove appends a tombstone record. Each record carries a CRC32.
+ * The log is mapped in segments of fixed size, a record never spans two segments.
+ *
+ * The index file (path) holds a header and a table of slots using open addressing with linear
+ * probing, as in ProbeHashMap. A slot holds the log offset of the latest record of its key
+ * (0 for an empty slot and -1 for a DEFUNCT one) and the hash of the encoded key. Hashes are
+ * computed from the encoded bytes, so they are the same in every run of the program.
+ *
+ * force() is the durability point. It flushes the log, then the slots, and only then marks
+ * the header clean. The first update after force() durably marks the header dirty again.
+ * Opening a file with a clean header is O(1): the table is used as it is and pages in lazily
+ * as it is probed. Otherwise, after a crash, the index is rebuilt by replaying the log up to
+ * its last valid record, and anything after it is discarded.
+ *
+ * Growing the table builds the new index in a temporary file which then replaces the old one.
+ * As in ProbeHashMap, the table is also rebuilt at the same capacity once DEFUNCT slots fill a
+ * quarter of it, so that probes always end on an EMPTY slot.
+ *
+ * Updated and removed records stay in the log until dead records take more space than live
+ * ones. The log is then compacted: live records are copied to a new file, which is forced and
+ * replaces the log before the slots are pointed to the copies. The header is dirty while this
+ * happens, so a crash at any point replays either the old log or the new one.
+ *
+ * Expected running time
+ * open   : O(1) after a clean close, O(log size) otherwise, the log being at most about
+ *          twice the size of the live records
+ * get    : O(1)
+ * put    : O(1) amortized
+ * remove : O(1) amortized
+ * force  : O(number of dirty pages)
+ *
+ * @param <K> key
+ * @param <V> value
+ */
+public class MappedHashMap<K,V> extends AbstractMap<K,V> implements AutoCloseable {
+    // -- index file layout --
+    private static final long MAGIC = 0x4d61707065644d32L;
+    private static final int CAPACITY_AT = 8;
+    private static final int SIZE_AT = 12;
+    private static final int LOG_END_AT = 16;
+    private static final int SEGMENT_SIZE_AT = 24;
+    private static final int CLEAN_AT = 28;
+    private static final int DEFUNCT_AT = 32;
+    private static final int LIVE_BYTES_AT = 40;
+    // CRC32 of the header bytes before it
+    private static final int CRC_AT = 48;
+    private static final int HEADER_BYTES = 64;
+    // bytes per slot: long log offset + 1, int key hash, int padding
+    private static final int SLOT_BYTES = 16;
+    private static final long EMPTY = 0;
+    private static final long DEFUNCT = -1;
+
+    // -- log record layout: int kind, int key length, int value length, int CRC32, key, value --
+    private static final int RECORD_HEADER = 16;
+    // kinds of records, unwritten space reads as 0 since mapped files are zero filled
+    private static final int PUT = 1;
+    private static final int TOMBSTONE = 2;
+    // the rest of the segment is unused
+    private static final int PADDING = 3;
+    // dead bytes below which the log is never compacted
+    private static final long MIN_COMPACTION_BYTES = 1 << 16;
+
+    private final Path indexPath;
+    private final Path logPath;
+    private final Codec<K> keyCodec;
+    private final Codec<V> valueCodec;
+    private final HashStrategy strategy = new PowerOfTwoHashStrategy();
+
+    private FileChannel indexChannel;
+    private MappedByteBuffer index;
+    private FileChannel logChannel;
+    // segments of the log, mapped when first used
+    private ArrayList<MappedByteBuffer> segments = new ArrayList<>();
+    private int segmentSize;
+
+    // number of entries
+    private int n;
+    // number of slots
+    private int capacity;
+    // number of DEFUNCT slots
+    private int defunct;
+    // offset in the log at which the next record is appended
+    private long logEnd;
+    // bytes of the log taken by the records the slots point to
+    private long liveBytes;
+    // whether the files have changed since the header was last marked clean
+    private boolean dirty;
+    // heap buffer the key being looked up is encoded into, reused across calls
+    private ByteBuffer scratch = ByteBuffer.allocate(64);
+    private boolean closed = false;
+
+    // -- constructors --
+    public MappedHashMap(Path path, Codec<K> keyCodec, Codec<V> valueCodec) throws IOException {
+        this(path, keyCodec, valueCodec, 1 << 26);
+    }
+
+    /**
+     * Opens the map stored at path, creating it if there is none
+     * @param path path of the index file, the log is stored next to it
+     * @param keyCodec codec for keys, must be canonical
+     * @param valueCodec codec for values
+     * @param segmentSize size of log segments, a multiple of 8 bounding the size of a record
+     *                    Ignored when an existing map with a clean header is opened
+     * @throws IOException if the files cannot be opened or created
+     */
+    public MappedHashMap(Path path, Codec<K> keyCodec, Codec<V> valueCodec, int segmentSize) throws IOException {
+        if(segmentSize <= RECORD_HEADER || segmentSize % 8 != 0)
+            throw new IllegalArgumentException("Invalid segment size: " + segmentSize);
+        this.indexPath = path;
+        this.logPath = path.resolveSibling(path.getFileName() + ".log");
+        this.keyCodec = keyCodec;
+        this.valueCodec = valueCodec;
+        this.segmentSize = segmentSize;
+        logChannel = FileChannel.open(logPath, StandardOpenOption.READ, StandardOpenOption.WRITE, StandardOpenOption.CREATE);
+        if(!openClean())
+            recover();
+    }
+    // -- end of constructors --
+
+    // -- opening and recovery --
+    /**
+     * Maps the existing index if its header is valid and clean, returns whether it did
+     */
+    private boolean openClean() throws IOException {
+        if(!Files.exists(indexPath) || Files.size(indexPath) < HEADER_BYTES)
+            return false;
+        FileChannel channel = FileChannel.open(indexPath, StandardOpenOption.READ, StandardOpenOption.WRITE);
+        ByteBuffer header = channel.map(FileChannel.MapMode.READ_ONLY, 0, HEADER_BYTES);
+        int cap = header.getInt(CAPACITY_AT);
+        boolean valid = header.getLong(0) == MAGIC
+                && header.getLong(CRC_AT) == headerCrc(header)
+                && header.getInt(CLEAN_AT) == 1
+                && Integer.bitCount(cap) == 1
+                && channel.size() == HEADER_BYTES + (long) cap * SLOT_BYTES
+                && logChannel.size() >= header.getLong(LOG_END_AT);
+        if(!valid) {
+            channel.close();
+            return false;
+        }
+        indexChannel = channel;
+        capacity = cap;
+        n = header.getInt(SIZE_AT);
+        defunct = header.getInt(DEFUNCT_AT);
+        logEnd = header.getLong(LOG_END_AT);
+        liveBytes = header.getLong(LIVE_BYTES_AT);
+        segmentSize = header.getInt(SEGMENT_SIZE_AT);
+        index = channel.map(FileChannel.MapMode.READ_WRITE, 0, channel.size());
+        dirty = false;
+        return true;
+    }
+
+    /**
+     * Rebuilds the index by replaying the log up to its last valid record
+     * The log is truncated after that record
+     */
+    private void recover() throws IOException {
+        createIndex(strategy.capacityFor(16));
+        n = 0;
+        logEnd = 0;
+        liveBytes = 0;
+        CRC32 crc = new CRC32();
+        while(true) {
+            int seg = (int) (logEnd / segmentSize);
+            int offset = (int) (logEnd % segmentSize);
+            if((long) seg * segmentSize >= logChannel.size())
+                break;
+            ByteBuffer segment = segment(seg);
+            int kind = segment.getInt(offset);
+            if(kind == PADDING) {
+                logEnd = (long) (seg + 1) * segmentSize;
+                continue;
+            }
+            if(kind != PUT && kind != TOMBSTONE || offset + RECORD_HEADER > segmentSize)
+                break;
+            int keyLength = segment.getInt(offset + 4);
+            int valueLength = segment.getInt(offset + 8);
+            if(keyLength < 0 || valueLength < 0 || (long) offset + recordBytes(keyLength, valueLength) > segmentSize)
+                break;
+            if(segment.getInt(offset + 12) != recordCrc(crc, segment, offset, keyLength, valueLength))
+                break;
+            // replay the record
+            loadKey(segment, offset + RECORD_HEADER, keyLength);
+            int hash = keyHash();
+            int idx = findSlot(hash);
+            int size = recordBytes(keyLength, valueLength);
+            if(kind == PUT && idx >= 0) {
+                liveBytes += size - recordBytesAt(addressAt(idx));
+                setSlot(idx, logEnd, hash);
+            } else if(kind == PUT) {
+                liveBytes += size;
+                addSlot(-(idx + 1), logEnd, hash);
+            } else if(idx >= 0) {
+                liveBytes -= recordBytesAt(addressAt(idx));
+                removeSlot(idx);
+            }
+            logEnd += size;
+        }
+        // drop whatever follows the last valid record, mappings of the old tail are never used again
+        segments = new ArrayList<>();
+        logChannel.truncate(logEnd);
+        dirty = true;
+        compactIfNeeded();
+        force();
+    }
+
+    /**
+     * Builds an index of the given capacity holding the slots of the current one, in a
+     * temporary file that then replaces the index file
+     */
+    private void createIndex(int newCap) throws IOException {
+        Path tmp = indexPath.resolveSibling(indexPath.getFileName() + ".tmp");
+        FileChannel channel = FileChannel.open(tmp, StandardOpenOption.READ, StandardOpenOption.WRITE,
+                StandardOpenOption.CREATE, StandardOpenOption.TRUNCATE_EXISTING);
+        MappedByteBuffer newIndex = channel.map(FileChannel.MapMode.READ_WRITE, 0, HEADER_BYTES + (long) newCap * SLOT_BYTES);
+        newIndex.putLong(0, MAGIC);
+        newIndex.putInt(CAPACITY_AT, newCap);
+        newIndex.putInt(SEGMENT_SIZE_AT, segmentSize);
+        // dirty until the next force()
+        newIndex.putInt(CLEAN_AT, 0);
+        for(int i = 0; index != null && i < capacity; i++) {
+            long address = index.getLong(slotAt(i));
+            if(address == EMPTY || address == DEFUNCT)
+                continue;
+            int hash = index.getInt(slotAt(i) + 8);
+            int idx = strategy.compress(hash, newCap);
+            while(newIndex.getLong(slotAt(idx)) != EMPTY)
+                idx = (idx + 1) & (newCap - 1);
+            newIndex.putLong(slotAt(idx), address);
+            newIndex.putInt(slotAt(idx) + 8, hash);
+        }
+        Files.move(tmp, indexPath, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+        if(indexChannel != null)
+            indexChannel.close();
+        indexChannel = channel;
+        index = newIndex;
+        capacity = newCap;
+        defunct = 0;
+    }
+
+    /**
+     * Copies the live records to a new log that replaces the current one
+     * The header must be durably dirty, so that a crash before the slots are updated
+     * replays whichever log is in place
+     */
+    private void compact() throws IOException {
+        Path tmp = logPath.resolveSibling(logPath.getFileName() + ".tmp");
+        long[] newAddresses = new long[n];
+        long newEnd = 0;
+        try(FileChannel channel = FileChannel.open(tmp, StandardOpenOption.WRITE,
+                StandardOpenOption.CREATE, StandardOpenOption.TRUNCATE_EXISTING)) {
+            int j = 0;
+            for(int i = 0; i < capacity; i++) {
+                long stored = index.getLong(slotAt(i));
+                if(stored == EMPTY || stored == DEFUNCT)
+                    continue;
+                int size = recordBytesAt(stored - 1);
+                if(segmentSize - newEnd % segmentSize < size) {
+                    channel.write(ByteBuffer.allocate(4).putInt(0, PADDING), newEnd);
+                    newEnd = (newEnd / segmentSize + 1) * segmentSize;
+                }
+                int offset = offsetOf(stored - 1);
+                ByteBuffer record = segmentOf(stored - 1).duplicate().position(offset).limit(offset + size);
+                for(long at = newEnd; record.hasRemaining(); )
+                    at += channel.write(record, at);
+                newAddresses[j++] = newEnd;
+                newEnd += size;
+            }
+            channel.force(true);
+        }
+        Files.move(tmp, logPath, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+        logChannel.close();
+        logChannel = FileChannel.open(logPath, StandardOpenOption.READ, StandardOpenOption.WRITE);
+        segments = new ArrayList<>();
+        for(int i = 0, j = 0; i < capacity; i++) {
+            long stored = index.getLong(slotAt(i));
+            if(stored != EMPTY && stored != DEFUNCT)
+                index.putLong(slotAt(i), newAddresses[j++] + 1);
+        }
+        logEnd = newEnd;
+        liveBytes = newEnd;
+    }
+    // -- end of opening and recovery --
+
+    // -- private utilities --
+    private void checkOpen() {
+        if(closed)
+            throw new IllegalStateException("Map is closed");
+    }
+
+    private static long headerCrc(ByteBuffer header) {
+        CRC32 crc = new CRC32();
+        crc.update(header.duplicate().position(0).limit(CRC_AT));
+        return crc.getValue();
+    }
+
+    private static int recordBytes(int keyLength, int valueLength) {
+        // records are 8 byte aligned so that a kind always fits before the end of a segment
+        return (RECORD_HEADER + keyLength + valueLength + 7) & ~7;
+    }
+
+    private static int recordCrc(CRC32 crc, ByteBuffer segment, int offset, int keyLength, int valueLength) {
+        crc.reset();
+        crc.update(segment.duplicate().position(offset).limit(offset + 12));
+        crc.update(segment.duplicate().position(offset + RECORD_HEADER).limit(offset + RECORD_HEADER + keyLength + valueLength));
+        return (int) crc.getValue();
+    }
+
+    private static int slotAt(int idx) { return HEADER_BYTES + idx * SLOT_BYTES; }
+
+    /**
+     * Points slot idx to the record at log offset address, or marks it DEFUNCT
+     */
+    private void setSlot(int idx, long address, int hash) {
+        index.putLong(slotAt(idx), address == DEFUNCT ? DEFUNCT : address + 1);
+        index.putInt(slotAt(idx) + 8, hash);
+    }
+
+    /**
+     * Points the free slot idx to the record of a new key, doubling the table once n exceeds
+     * half the capacity
+     */
+    private void addSlot(int idx, long address, int hash) throws IOException {
+        if(index.getLong(slotAt(idx)) == DEFUNCT)
+            defunct--;
+        setSlot(idx, address, hash);
+        n++;
+        // keep load factor <= 0.5
+        if(n > capacity / 2)
+            createIndex(strategy.grow(capacity));
+    }
+
+    /**
+     * Marks slot idx DEFUNCT, rebuilding the table once tombstones fill a quarter of it
+     */
+    private void removeSlot(int idx) throws IOException {
+        setSlot(idx, DEFUNCT, 0);
+        defunct++;
+        n--;
+        if(defunct > capacity / 4)
+            // rehash at the same capacity to get rid of tombstones
+            createIndex(capacity);
+    }
+
+    /**
+     * Compacts the log once dead records take more space than live ones
+     */
+    private void compactIfNeeded() throws IOException {
+        long deadBytes = logEnd - liveBytes;
+        if(deadBytes > liveBytes && deadBytes > MIN_COMPACTION_BYTES)
+            compact();
+    }
+
+    /**
+     * Returns the log segment seg, mapping it if needed
+     */
+    private MappedByteBuffer segment(int seg) {
+        while(segments.size() <= seg)
+            segments.add(null);
+        MappedByteBuffer segment = segments.get(seg);
+        if(segment == null) {
+            try {
+                segment = logChannel.map(FileChannel.MapMode.READ_WRITE, (long) seg * segmentSize, segmentSize);
+            } catch(IOException e) {
+                throw new UncheckedIOException(e);
+            }
+            segments.set(seg, segment);
+        }
+        return segment;
+    }
+
+    private MappedByteBuffer segmentOf(long address) { return segment((int) (address / segmentSize)); }
+    private int offsetOf(long address) { return (int) (address % segmentSize); }
+
+    private int recordBytesAt(long address) {
+        ByteBuffer segment = segmentOf(address);
+        int offset = offsetOf(address);
+        return recordBytes(segment.getInt(offset + 4), segment.getInt(offset + 8));
+    }
+
+    private void ensureScratch(int size) {
+        if(scratch.capacity() < size)
+            scratch = ByteBuffer.allocate(Math.max(size, 2 * scratch.capacity()));
+        scratch.clear();
+    }
+
+    /**
+     * Encodes key into the scratch buffer and returns its hash
+     */
+    private int encodeKey(K key) {
+        ensureScratch(keyCodec.size(key));
+        keyCodec.write(key, scratch);
+        scratch.flip();
+        return keyHash();
+    }
+
+    /**
+     * Copies length bytes of src at offset into the scratch buffer
+     */
+    private void loadKey(ByteBuffer src, int offset, int length) {
+        ensureScratch(length);
+        scratch.put(src.duplicate().position(offset).limit(offset + length));
+        scratch.flip();
+    }
+
+    private int keyHash() {
+        int h = 1;
+        for(int i = 0; i < scratch.limit(); i++)
+            h = 31 * h + scratch.get(i);
+        return h;
+    }
+
+    /**
+     * Returns whether the record at address has the key held in the scratch buffer
+     */
+    private boolean keyEquals(long address) {
+        ByteBuffer segment = segmentOf(address);
+        int offset = offsetOf(address);
+        int length = scratch.limit();
+        if(segment.getInt(offset + 4) != length)
+            return false;
+        return segment.slice(offset + RECORD_HEADER, length).equals(scratch);
+    }
+
+    /**
+     * Returns index of the slot holding the key in the scratch buffer, or -(a + 1) such that
+     * the key could be added at index a, following the conventions of ProbeHashMap.findSlot
+     * The load factor and the tombstone rebuild leave EMPTY slots, the probe still stops after
+     * visiting every slot
+     */
+    private int findSlot(int hash) {
+        int avail = -1;
+        int idx = strategy.compress(hash, capacity);
+        for(int probes = 0; probes < capacity; probes++) {
+            long stored = index.getLong(slotAt(idx));
+            if(stored == EMPTY) {
+                if(avail == -1)
+                    avail = idx;
+                break;
+            }
+            if(stored == DEFUNCT) {
+                if(avail == -1)
+                    avail = idx;
+            } else if(index.getInt(slotAt(idx) + 8) == hash && keyEquals(stored - 1))
+                return idx;
+            idx = (idx + 1) & (capacity - 1);
+        }
+        if(avail == -1)
+            throw new IllegalStateException("No free slot in a table of " + capacity);
+        return -(avail + 1);
+    }
+
+    private long addressAt(int idx) { return index.getLong(slotAt(idx)) - 1; }
+
+    /**
+     * Appends a record made of the key in the scratch buffer and value, returns its log offset
+     */
+    private long append(int kind, V value) {
+        int keyLength = scratch.limit();
+        int valueLength = kind == PUT ? valueCodec.size(value) : 0;
+        int size = recordBytes(keyLength, valueLength);
+        if(size > segmentSize)
+            throw new IllegalArgumentException("Record of " + size + " bytes exceeds segment size");
+        if(segmentSize - offsetOf(logEnd) < size) {
+            segment((int) (logEnd / segmentSize)).putInt(offsetOf(logEnd), PADDING);
+            logEnd = (logEnd / segmentSize + 1) * segmentSize;
+        }
+        long address = logEnd;
+        MappedByteBuffer segment = segment((int) (address / segmentSize));
+        int offset = offsetOf(address);
+        ByteBuffer dst = segment.duplicate().position(offset + RECORD_HEADER);
+        dst.put(scratch.duplicate());
+        if(kind == PUT)
+            valueCodec.write(value, dst);
+        segment.putInt(offset, kind);
+        segment.putInt(offset + 4, keyLength);
+        segment.putInt(offset + 8, valueLength);
+        segment.putInt(offset + 12, recordCrc(new CRC32(), segment, offset, keyLength, valueLength));
+        logEnd += size;
+        return address;
+    }
+
+    private V readValue(long address) {
+        ByteBuffer segment = segmentOf(address).duplicate();
+        int offset = offsetOf(address);
+        segment.position(offset + RECORD_HEADER + segment.getInt(offset + 4));
+        return valueCodec.read(segment, segment.getInt(offset + 8));
+    }
+
+    private K readKey(long address) {
+        ByteBuffer segment = segmentOf(address).duplicate();
+        int offset = offsetOf(address);
+        segment.position(offset + RECORD_HEADER);
+        return keyCodec.read(segment, segment.getInt(offset + 4));
+    }
+
+    /**
+     * Durably marks the header dirty before the first update following force()
+     */
+    private void markDirty() {
+        if(dirty)
+            return;
+        index.putInt(CLEAN_AT, 0);
+        index.putLong(CRC_AT, headerCrc(index));
+        index.force(0, HEADER_BYTES);
+        dirty = true;
+    }
+    // -- end of private utilities --
+
+    /**
+     * Makes every update so far durable
+     * The log and the slots are flushed before the header is marked clean, so a crash at
+     * any point leaves either a clean consistent map or a dirty header, causing a replay
+     */
+    public void force() {
+        checkOpen();
+        if(!dirty)
+            return;
+        for(MappedByteBuffer segment: segments)
+            if(segment != null)
+                segment.force();
+        index.putInt(SIZE_AT, n);
+        index.putInt(DEFUNCT_AT, defunct);
+        index.putLong(LOG_END_AT, logEnd);
+        index.putLong(LIVE_BYTES_AT, liveBytes);
+        index.force();
+        index.putInt(CLEAN_AT, 1);
+        index.putLong(CRC_AT, headerCrc(index));
+        index.force(0, HEADER_BYTES);
+        dirty = false;
+    }
+
+    public int size() { return n; }
+
+    /**
+     * Returns value associated with key, else null
+     */
+    public V get(K key) {
+        checkOpen();
+        int idx = findSlot(encodeKey(key));
+        if(idx < 0)
+            return null;
+        return readValue(addressAt(idx));
+    }
+
+    /**
+     * Associates key with value, returns old value or null if a new entry is created
+     * Not durable until force() is called
+     */
+    public V put(K key, V value) {
+        checkOpen();
+        markDirty();
+        int hash = encodeKey(key);
+        int idx = findSlot(hash);
+        V old = null;
+        try {
+            if(idx >= 0) {
+                old = readValue(addressAt(idx));
+                liveBytes -= recordBytesAt(addressAt(idx));
+            }
+            long address = append(PUT, value);
+            liveBytes += recordBytesAt(address);
+            if(idx >= 0)
+                setSlot(idx, address, hash);
+            else
+                addSlot(-(idx + 1), address, hash);
+            compactIfNeeded();
+        } catch(IOException e) {
+            throw new UncheckedIOException(e);
+        }
+        return old;
+    }
+
+    /**
+     * Removes entry having key, returns its value or null if there is no such entry
+     * Not durable until force() is called
+     */
+    public V remove(K key) {
+        checkOpen();
+        int hash = encodeKey(key);
+        int idx = findSlot(hash);
+        if(idx < 0)
+            return null;
+        markDirty();
+        V old = readValue(addressAt(idx));
+        liveBytes -= recordBytesAt(addressAt(idx));
+        append(TOMBSTONE, null);
+        try {
+            removeSlot(idx);
+            compactIfNeeded();
+        } catch(IOException e) {
+            throw new UncheckedIOException(e);
+        }
+        return old;
+    }
+
+    /**
+     * Forces pending updates to disk and closes the files
+     */
+    public void close() throws IOException {
+        if(closed)
+            return;
+        force();
+        closed = true;
+        index = null;
+        segments = new ArrayList<>();
+        indexChannel.close();
+        logChannel.close();
+    }
+
+    // -- Support for entrySet() method --
+    private class EntryIterator implements Iterator<Entry<K,V>> {
+        private int idx = seek(0);
+
+        private int seek(int idx) {
+            while(idx < capacity && (index.getLong(slotAt(idx)) == EMPTY || index.getLong(slotAt(idx)) == DEFUNCT))
+                idx++;
+            return idx;
+        }
+        @Override
+        public boolean hasNext() { return idx < capacity; }
+        @Override
+        public Entry<K,V> next() {
+            checkOpen();
+            if(!hasNext()) throw new NoSuchElementException("next");
+            long address = addressAt(idx);
+            idx = seek(idx + 1);
+            return new MapEntry<>(readKey(address), readValue(address));
+        }
+    }
+    private class EntryIterable implements Iterable<Entry<K,V>> {
+        @Override
+        public Iterator<Entry<K,V>> iterator() {
+            checkOpen();
+            return new EntryIterator();
+        }
+    }
+    // -- End of support for entrySet() --
+
+    /**
+     * Returns an iterable of entries, decoded one at a time while iterating
+     */
+    public Iterable<Entry<K,V>> entrySet() { return new EntryIterable(); }
+}
@@ -0,0 +1,183 @@
+package maps;
+
+import java.util.Arrays;
+import java.util.function.ObjIntConsumer;
+
+/**
+ * Counts occurrences of keys in primitive ints, without boxing and without an entry per key
+ *
+ * Keys, their counts and their mixed hash codes are kept in parallel arrays probed linearly,
+ * in a table whose length is a power of two and which doubles whenever n > capacity / 2, as in
+ * AbstractHashMap. Removal shifts the following entries of the cluster back into the hole
+ * instead of leaving a DEFUNCT marker, so the table never fills up with markers.
+ *
+ * A key whose count is 0 is not in the counter: get returns 0 for it, and add removes a key
+ * once its count drops to 0. Counts may be negative.
+ *
+ * Expected running time
+ * add     : O(1)
+ * get     : O(1)
+ * remove  : O(1)
+ * forEach : O(capacity)
+ *
+ * @param <K> key
+ */
+public class ObjectIntCounter<K> {
+    private Object[] keys;
+    private int[] counts;
+    // hashes[i] is the mixed hash code of keys[i]
+    private int[] hashes;
+    private int n = 0;
+    // capacity - 1
+    private int mask;
+
+    // -- constructors --
+    public ObjectIntCounter() { this(16); }
+
+    /**
+     * Creates an empty counter
+     * @param cap initial capacity, rounded up to a power of two
+     */
+    public ObjectIntCounter(int cap) {
+        createTable(new PowerOfTwoHashStrategy().capacityFor(cap));
+    }
+    // -- end of constructors --
+
+    // -- private utilities --
+    private void createTable(int cap) {
+        keys = new Object[cap];
+        counts = new int[cap];
+        hashes = new int[cap];
+        mask = cap - 1;
+    }
+
+    /**
+     * Returns index with key, or -(a + 1) such that key could be added at index a
+     */
+    private int findSlot(Object key, int h) {
+        int idx = h & mask;
+        while(keys[idx] != null) {
+            if(hashes[idx] == h && keys[idx].equals(key))
+                return idx;
+            idx = (idx + 1) & mask;
+        }
+        return -(idx + 1);
+    }
+
+    private void resize(int newCap) {
+        Object[] oldKeys = keys;
+        int[] oldCounts = counts;
+        int[] oldHashes = hashes;
+        createTable(newCap);
+        for(int i = 0; i < oldKeys.length; i++) {
+            if(oldKeys[i] == null)
+                continue;
+            int idx = oldHashes[i] & mask;
+            while(keys[idx] != null)
+                idx = (idx + 1) & mask;
+            keys[idx] = oldKeys[i];
+            counts[idx] = oldCounts[i];
+            hashes[idx] = oldHashes[i];
+        }
+    }
+
+    /**
+     * Removes the entry at idx, moving back every entry of the cluster after it whose probe
+     * sequence went through idx
+     */
+    private void removeAt(int idx) {
+        int hole = idx;
+        for(int i = (idx + 1) & mask; keys[i] != null; i = (i + 1) & mask) {
+            // the entry at i may fill the hole if its home slot is not between the hole and i
+            if(((i - hashes[i]) & mask) >= ((i - hole) & mask)) {
+                keys[hole] = keys[i];
+                counts[hole] = counts[i];
+                hashes[hole] = hashes[i];
+                hole = i;
+            }
+        }
+        keys[hole] = null;
+        counts[hole] = 0;
+        n--;
+    }
+    // -- end of private utilities --
+
+    public int size() { return n; }
+    public boolean isEmpty() { return n == 0; }
+
+    /**
+     * Returns the count of key, 0 if it is not in the counter
+     */
+    public int get(K key) {
+        int idx = findSlot(key, PowerOfTwoHashStrategy.mix(key.hashCode()));
+        return idx < 0 ? 0 : counts[idx];
+    }
+
+    /**
+     * Adds 1 to the count of key
+     * @return new count
+     */
+    public int increment(K key) { return add(key, 1); }
+
+    /**
+     * Adds delta to the count of key, removing key if its count becomes 0
+     * @return new count
+     */
+    public int add(K key, int delta) {
+        int h = PowerOfTwoHashStrategy.mix(key.hashCode());
+        int idx = findSlot(key, h);
+        if(idx >= 0) {
+            int count = counts[idx] += delta;
+            if(count == 0)
+                removeAt(idx);
+            return count;
+        }
+        if(delta == 0)
+            return 0;
+        idx = -(idx + 1);
+        keys[idx] = key;
+        counts[idx] = delta;
+        hashes[idx] = h;
+        if(++n > (mask + 1) / 2)
+            resize(2 * (mask + 1));
+        return delta;
+    }
+
+    /**
+     * Removes key, returns its count or 0 if it was not in the counter
+     */
+    public int remove(K key) {
+        int idx = findSlot(key, PowerOfTwoHashStrategy.mix(key.hashCode()));
+        if(idx < 0)
+            return 0;
+        int count = counts[idx];
+        removeAt(idx);
+        return count;
+    }
+
+    /**
+     * Adds the counts of other to the counts of this counter
+     */
+    public void addAll(ObjectIntCounter<? extends K> other) {
+        other.forEach(this::add);
+    }
+
+    /**
+     * Removes every key, keeping the current capacity
+     */
+    public void clear() {
+        Arrays.fill(keys, null);
+        Arrays.fill(counts, 0);
+        n = 0;
+    }
+
+    /**
+     * Calls action with every key and its count, in no particular order
+     * action must not modify the counter
+     */
+    public void forEach(ObjIntConsumer<? super K> action) {
+        for(int i = 0; i < keys.length; i++)
+            if(keys[i] != null)
+                action.accept((K) keys[i], counts[i]);
+    }
+}
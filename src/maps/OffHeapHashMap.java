@@ -0,0 +1,418 @@
+package maps;
+
+import util.Entry;
+
+import java.nio.ByteBuffer;
+import java.util.ArrayList;
+import java.util.Iterator;
+import java.util.NoSuchElementException;
+
+/**
+ * A hash map that keeps its keys and values outside the Java heap, in direct ByteBuffers
+ *
+ * Keys and values are encoded with codecs into records appended to an arena of fixed size
+ * direct buffers (chunks). A record is laid out as
+ *   [int key length][int value length][key bytes][value bytes]
+ * The table is made of direct buffers of slots using open addressing with linear probing,
+ * as in ProbeHashMap. A ByteBuffer is indexed by int, so the slots are split across buffers
+ * of at most 2^26 slots (1 GB) each. Each slot holds the address of a record (0 for an empty slot and -1
+ * for a DEFUNCT one) and the hash of its key, so probing compares hashes first and only
+ * compares key bytes on a hash match. Keys are never decoded to be compared.
+ * As in ProbeHashMap, the table is rehashed at the same capacity once DEFUNCT slots fill a
+ * quarter of it, so that probes always end on an EMPTY slot.
+ *
+ * Heap usage does not depend on the number of entries: the only per-entry objects are those
+ * returned to the caller. Updating or removing an entry leaves its record behind as garbage,
+ * which is reclaimed by compact(), run automatically once garbage outweighs live records.
+ *
+ * Direct memory is released when the map is closed and its buffers are garbage collected
+ * After close() every operation throws IllegalStateException
+ *
+ * Expected running time
+ * get    : O(1)
+ * put    : O(1)
+ * remove : O(1)
+ * entrySet : O(n), decoding one entry at a time
+ *
+ * @param <K> key
+ * @param <V> value
+ */
+public class OffHeapHashMap<K,V> extends AbstractMap<K,V> implements AutoCloseable {
+    // bytes per slot: long record address, int key hash, int padding
+    private static final int SLOT_BYTES = 16;
+    // slots per buffer of the table, a power of two
+    private static final int SLOT_SHIFT = 26;
+    private static final int SLOT_MASK = (1 << SLOT_SHIFT) - 1;
+    private static final long EMPTY = 0;
+    private static final long DEFUNCT = -1;
+    // bytes before the key in a record
+    private static final int RECORD_HEADER = 8;
+
+    private final Codec<K> keyCodec;
+    private final Codec<V> valueCodec;
+    private final HashStrategy strategy = new PowerOfTwoHashStrategy();
+    // size of arena chunks, larger records get a chunk of their own
+    private final int chunkSize;
+
+    // number of entries
+    private int n = 0;
+    // number of slots
+    private int capacity;
+    // number of DEFUNCT slots
+    private int defunct = 0;
+    private ByteBuffer[] slots;
+    private ArrayList<ByteBuffer> chunks = new ArrayList<>();
+    // bytes taken by live records and by records no longer referenced
+    private long liveBytes = 0;
+    private long garbageBytes = 0;
+    // heap buffer the key being looked up is encoded into, reused across calls
+    private ByteBuffer scratch = ByteBuffer.allocate(64);
+    private boolean closed = false;
+
+    // -- constructors --
+    public OffHeapHashMap(Codec<K> keyCodec, Codec<V> valueCodec) {
+        this(keyCodec, valueCodec, 16, 1 << 20);
+    }
+
+    /**
+     * Creates an empty map
+     * @param keyCodec codec for keys, must be canonical
+     * @param valueCodec codec for values
+     * @param cap initial number of slots
+     * @param chunkSize size in bytes of the direct buffers records are appended to
+     */
+    public OffHeapHashMap(Codec<K> keyCodec, Codec<V> valueCodec, int cap, int chunkSize) {
+        this.keyCodec = keyCodec;
+        this.valueCodec = valueCodec;
+        this.chunkSize = chunkSize;
+        capacity = strategy.capacityFor(cap);
+        slots = allocateSlots(capacity);
+    }
+    // -- end of constructors --
+
+    // -- private utilities --
+    private void checkOpen() {
+        if(closed)
+            throw new IllegalStateException("Map is closed");
+    }
+
+    /**
+     * Encodes key into the scratch buffer and returns the hash of its bytes
+     */
+    private int encodeKey(K key) {
+        int size = keyCodec.size(key);
+        if(scratch.capacity() < size)
+            scratch = ByteBuffer.allocate(Math.max(size, 2 * scratch.capacity()));
+        scratch.clear();
+        keyCodec.write(key, scratch);
+        scratch.flip();
+        int h = 1;
+        for(int i = 0; i < size; i++)
+            h = 31 * h + scratch.get(i);
+        return h;
+    }
+
+    /**
+     * Allocates the buffers of a table of cap slots, cap being a power of two
+     */
+    private static ByteBuffer[] allocateSlots(int cap) {
+        int perBuffer = Math.min(cap, 1 << SLOT_SHIFT);
+        ByteBuffer[] table = new ByteBuffer[cap / perBuffer];
+        for(int i = 0; i < table.length; i++)
+            table[i] = ByteBuffer.allocateDirect(perBuffer * SLOT_BYTES);
+        return table;
+    }
+
+    private static long address(ByteBuffer[] table, int idx) {
+        return table[idx >>> SLOT_SHIFT].getLong((idx & SLOT_MASK) * SLOT_BYTES);
+    }
+    private static int hash(ByteBuffer[] table, int idx) {
+        return table[idx >>> SLOT_SHIFT].getInt((idx & SLOT_MASK) * SLOT_BYTES + 8);
+    }
+    private static void setSlot(ByteBuffer[] table, int idx, long address, int hash) {
+        ByteBuffer buffer = table[idx >>> SLOT_SHIFT];
+        buffer.putLong((idx & SLOT_MASK) * SLOT_BYTES, address);
+        buffer.putInt((idx & SLOT_MASK) * SLOT_BYTES + 8, hash);
+    }
+    private long slotAddress(int idx) { return address(slots, idx); }
+    private int slotHash(int idx) { return hash(slots, idx); }
+
+    // record addresses are 1 + (chunk << 32 | offset) so that 0 means empty
+    private ByteBuffer chunkOf(long address) { return chunks.get((int) ((address - 1) >>> 32)); }
+    private int offsetOf(long address) { return (int) (address - 1); }
+
+    private int recordBytes(long address) {
+        ByteBuffer chunk = chunkOf(address);
+        int offset = offsetOf(address);
+        return RECORD_HEADER + chunk.getInt(offset) + chunk.getInt(offset + 4);
+    }
+
+    /**
+     * Returns whether the record at address has the key held in the scratch buffer
+     */
+    private boolean keyEquals(long address) {
+        ByteBuffer chunk = chunkOf(address);
+        int offset = offsetOf(address);
+        int length = scratch.limit();
+        if(chunk.getInt(offset) != length)
+            return false;
+        int start = offset + RECORD_HEADER;
+        int i = 0;
+        for(; i + Long.BYTES <= length; i += Long.BYTES)
+            if(chunk.getLong(start + i) != scratch.getLong(i))
+                return false;
+        for(; i < length; i++)
+            if(chunk.get(start + i) != scratch.get(i))
+                return false;
+        return true;
+    }
+
+    /**
+     * Returns index of the slot holding the key in the scratch buffer, or -(a + 1) such that
+     * the key could be added at index a, following the conventions of ProbeHashMap.findSlot
+     * The load factor and the tombstone rehash leave EMPTY slots, the probe still stops after
+     * visiting every slot
+     */
+    private int findSlot(int hash) {
+        int avail = -1;
+        int idx = strategy.compress(hash, capacity);
+        for(int probes = 0; probes < capacity; probes++) {
+            long address = slotAddress(idx);
+            if(address == EMPTY) {
+                if(avail == -1)
+                    avail = idx;
+                break;
+            }
+            if(address == DEFUNCT) {
+                if(avail == -1)
+                    avail = idx;
+            } else if(slotHash(idx) == hash && keyEquals(address))
+                return idx;
+            idx = (idx + 1) & (capacity - 1);
+        }
+        if(avail == -1)
+            throw new IllegalStateException("No free slot in a table of " + capacity);
+        return -(avail + 1);
+    }
+
+    /**
+     * Appends a record made of the key in the scratch buffer and the given value, returns its address
+     */
+    private long append(V value) {
+        int keyLength = scratch.limit();
+        int valueLength = valueCodec.size(value);
+        int size = RECORD_HEADER + keyLength + valueLength;
+        ByteBuffer chunk = chunks.isEmpty() ? null : chunks.get(chunks.size() - 1);
+        if(chunk == null || chunk.remaining() < size) {
+            chunk = ByteBuffer.allocateDirect(Math.max(chunkSize, size));
+            chunks.add(chunk);
+        }
+        int offset = chunk.position();
+        chunk.putInt(keyLength);
+        chunk.putInt(valueLength);
+        chunk.put(scratch.duplicate());
+        valueCodec.write(value, chunk);
+        liveBytes += size;
+        return 1 + (((long) (chunks.size() - 1) << 32) | offset);
+    }
+
+    private V readValue(long address) {
+        ByteBuffer chunk = chunkOf(address).duplicate();
+        int offset = offsetOf(address);
+        int keyLength = chunk.getInt(offset);
+        int valueLength = chunk.getInt(offset + 4);
+        chunk.position(offset + RECORD_HEADER + keyLength);
+        return valueCodec.read(chunk, valueLength);
+    }
+
+    private K readKey(long address) {
+        ByteBuffer chunk = chunkOf(address).duplicate();
+        int offset = offsetOf(address);
+        chunk.position(offset + RECORD_HEADER);
+        return keyCodec.read(chunk, chunk.getInt(offset));
+    }
+
+    /**
+     * Marks the record at address as garbage
+     */
+    private void discard(long address) {
+        int size = recordBytes(address);
+        liveBytes -= size;
+        garbageBytes += size;
+    }
+
+    /**
+     * Rebuilds the slot table with the given capacity, copying live records into a fresh
+     * arena if compactArena is true
+     */
+    private void rebuild(int newCap, boolean compactArena) {
+        ByteBuffer[] oldSlots = slots;
+        int oldCap = capacity;
+        ArrayList<ByteBuffer> oldChunks = chunks;
+        ByteBuffer[] newSlots = allocateSlots(newCap);
+        ArrayList<ByteBuffer> newChunks = compactArena ? new ArrayList<>() : chunks;
+        ByteBuffer chunk = null;
+        for(int i = 0; i < oldCap; i++) {
+            long address = address(oldSlots, i);
+            if(address == EMPTY || address == DEFUNCT)
+                continue;
+            int hash = hash(oldSlots, i);
+            if(compactArena) {
+                ByteBuffer src = oldChunks.get((int) ((address - 1) >>> 32)).duplicate();
+                int offset = (int) (address - 1);
+                int size = RECORD_HEADER + src.getInt(offset) + src.getInt(offset + 4);
+                if(chunk == null || chunk.remaining() < size) {
+                    chunk = ByteBuffer.allocateDirect(Math.max(chunkSize, size));
+                    newChunks.add(chunk);
+                }
+                long newAddress = 1 + (((long) (newChunks.size() - 1) << 32) | chunk.position());
+                src.position(offset).limit(offset + size);
+                chunk.put(src);
+                address = newAddress;
+            }
+            int idx = strategy.compress(hash, newCap);
+            while(address(newSlots, idx) != EMPTY)
+                idx = (idx + 1) & (newCap - 1);
+            setSlot(newSlots, idx, address, hash);
+        }
+        slots = newSlots;
+        capacity = newCap;
+        chunks = newChunks;
+        defunct = 0;
+        if(compactArena)
+            garbageBytes = 0;
+    }
+
+    private void compactIfNeeded() {
+        if(garbageBytes > chunkSize && garbageBytes > liveBytes)
+            compact();
+    }
+    // -- end of private utilities --
+
+    /**
+     * Copies the live records into a fresh arena, releasing the space of updated and removed entries
+     */
+    public void compact() {
+        checkOpen();
+        rebuild(capacity, true);
+    }
+
+    /**
+     * Returns the number of bytes of direct memory held by the map
+     */
+    public long offHeapBytes() {
+        long total = 0;
+        if(slots != null)
+            for(ByteBuffer buffer: slots)
+                total += buffer.capacity();
+        for(ByteBuffer chunk: chunks)
+            total += chunk.capacity();
+        return total;
+    }
+
+    public int size() { return n; }
+
+    /**
+     * Returns value associated with key, else null
+     */
+    public V get(K key) {
+        checkOpen();
+        int idx = findSlot(encodeKey(key));
+        if(idx < 0)
+            return null;
+        return readValue(slotAddress(idx));
+    }
+
+    /**
+     * Associates key with value, returns old value or null if a new entry is created
+     */
+    public V put(K key, V value) {
+        checkOpen();
+        int hash = encodeKey(key);
+        int idx = findSlot(hash);
+        if(idx >= 0) {
+            long oldAddress = slotAddress(idx);
+            V old = readValue(oldAddress);
+            discard(oldAddress);
+            setSlot(slots, idx, append(value), hash);
+            compactIfNeeded();
+            return old;
+        }
+        if(slotAddress(-(idx + 1)) == DEFUNCT)
+            defunct--;
+        setSlot(slots, -(idx + 1), append(value), hash);
+        n++;
+        // keep load factor <= 0.5
+        if(n > capacity / 2)
+            rebuild(strategy.grow(capacity), garbageBytes > liveBytes);
+        return null;
+    }
+
+    /**
+     * Removes entry having key, returns its value or null if there is no such entry
+     */
+    public V remove(K key) {
+        checkOpen();
+        int idx = findSlot(encodeKey(key));
+        if(idx < 0)
+            return null;
+        long address = slotAddress(idx);
+        V old = readValue(address);
+        discard(address);
+        setSlot(slots, idx, DEFUNCT, 0);
+        defunct++;
+        n--;
+        if(defunct > capacity / 4)
+            // rehash at the same capacity to get rid of tombstones
+            rebuild(capacity, garbageBytes > liveBytes);
+        else
+            compactIfNeeded();
+        return old;
+    }
+
+    /**
+     * Releases the direct buffers of the map
+     * Their memory is returned to the system once they are garbage collected
+     */
+    public void close() {
+        closed = true;
+        slots = null;
+        chunks = new ArrayList<>();
+        scratch = null;
+        n = 0;
+    }
+
+    // -- Support for entrySet() method --
+    private class EntryIterator implements Iterator<Entry<K,V>> {
+        private int idx = seek(0);
+
+        private int seek(int idx) {
+            while(idx < capacity && (slotAddress(idx) == EMPTY || slotAddress(idx) == DEFUNCT))
+                idx++;
+            return idx;
+        }
+        @Override
+        public boolean hasNext() { return idx < capacity; }
+        @Override
+        public Entry<K,V> next() {
+            checkOpen();
+            if(!hasNext()) throw new NoSuchElementException("next");
+            long address = slotAddress(idx);
+            idx = seek(idx + 1);
+            return new MapEntry<>(readKey(address), readValue(address));
+        }
+    }
+    private class EntryIterable implements Iterable<Entry<K,V>> {
+        @Override
+        public Iterator<Entry<K,V>> iterator() {
+            checkOpen();
+            return new EntryIterator();
+        }
+    }
+    // -- End of support for entrySet() --
+
+    /**
+     * Returns an iterable of entries, decoded one at a time while iterating
+     */
+    public Iterable<Entry<K,V>> entrySet() { return new EntryIterable(); }
+}
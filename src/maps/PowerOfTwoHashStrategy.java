@@ -0,0 +1,51 @@
+package maps;
+
+/**
+ * Compression for tables whose length is a power of two
+ * The hash code is first passed through a bit mixer so that every bit of it affects the low bits,
+ * then the index is taken with a single mask instead of a multiply and two modulo operations
+ *
+ * Tables are doubled when they grow
+ */
+public class PowerOfTwoHashStrategy implements HashStrategy {
+    // largest power of two an int array can have
+    private static final int MAX_CAPACITY = 1 << 30;
+
+    /**
+     * Finalization mix of MurmurHash3
+     * Every input bit affects every output bit with probability close to 1/2
+     * @param h hash code
+     * @return mixed hash code
+     */
+    public static int mix(int h) {
+        h ^= h >>> 16;
+        h *= 0x85ebca6b;
+        h ^= h >>> 13;
+        h *= 0xc2b2ae35;
+        h ^= h >>> 16;
+        return h;
+    }
+
+    /**
+     * Returns the smallest power of two greater than or equal to requested (and at least 2)
+     */
+    public int capacityFor(int requested) {
+        if(requested >= MAX_CAPACITY)
+            return MAX_CAPACITY;
+        return Math.max(2, Integer.highestOneBit(requested - 1) << 1);
+    }
+
+    public int grow(int capacity) {
+        if(capacity >= MAX_CAPACITY)
+            throw new IllegalStateException("Table can not grow beyond " + MAX_CAPACITY);
+        return 2 * capacity;
+    }
+
+    public int shrink(int capacity) {
+        return Math.max(capacity / 2, 2);
+    }
+
+    public int compress(int hashCode, int capacity) {
+        return mix(hashCode) & (capacity - 1);
+    }
+}
@@ -3,7 +3,9 @@ package maps;
 
 import util.Entry;
 
-import java.util.ArrayList;
+import java.util.Iterator;
+import java.util.NoSuchElementException;
+import java.util.function.BiFunction;
 
 /**
  * An implementation of ProbeHashMap using open addressing with linear probing
@@ -16,11 +18,16 @@ public class ProbeHashMap<K,V> extends AbstractHashMap<K,V> {
     // All initially null
     private MapEntry<K,V>[] table;
     private final MapEntry<K,V> DEFUNCT = new MapEntry<>(null, null);
+    // number of DEFUNCT slots in table
+    private int defunct = 0;
+    // Slots still being migrated during an incremental resize, null otherwise
+    private MapEntry<K,V>[] oldTable;
 
     // -- constructors --
     public ProbeHashMap(){super(); }
     public ProbeHashMap(int cap) { super(cap); }
     public ProbeHashMap(int cap, int p) { super(cap, p); }
+    public ProbeHashMap(int cap, HashStrategy strategy) { super(cap, strategy); }
     // -- end of constructors --
 
     /**
@@ -28,6 +35,7 @@ public class ProbeHashMap<K,V> extends AbstractHashMap<K,V> {
      */
     protected void createTable() {
         table = (MapEntry<K,V>[]) new MapEntry[capacity];
+        defunct = 0;
     }
 
     // -- private utility functions --
@@ -102,6 +110,8 @@ public class ProbeHashMap<K,V> extends AbstractHashMap<K,V> {
             return table[idx].setValue(v);
         }
         int newIdx = calculateIdx(idx);
+        if(table[newIdx] == DEFUNCT)
+            defunct--;
         table[newIdx] = new MapEntry<>(k, v);
         n++;
         return null;
@@ -118,6 +128,7 @@ public class ProbeHashMap<K,V> extends AbstractHashMap<K,V> {
         if(idx >= 0) {
             V answer = table[idx].getValue();
             table[idx] = DEFUNCT;
+            defunct++;
             n--;
             return answer;
         }
@@ -125,18 +136,141 @@ public class ProbeHashMap<K,V> extends AbstractHashMap<K,V> {
     }
 
     /**
-     * Returns an iterable collection of all key value pairs
-     * Order does not matter
-     * @return iterable collection of entries
+     * Computes the new value for key k in bucket with hash value h, probing only once
+     * @param h hash value
+     * @param k key
+     * @param remappingFunction function computing the new value from k and its current value
+     * @return new value, null if the entry is removed or was not created
+     */
+    protected V bucketCompute(int h, K k, BiFunction<? super K, ? super V, ? extends V> remappingFunction) {
+        int idx = findSlot(h, k);
+        V value = remappingFunction.apply(k, idx >= 0 ? table[idx].getValue() : null);
+        if(idx >= 0) {
+            if(value != null)
+                table[idx].setValue(value);
+            else {
+                table[idx] = DEFUNCT;
+                defunct++;
+                n--;
+            }
+        } else if(value != null) {
+            int newIdx = calculateIdx(idx);
+            if(table[newIdx] == DEFUNCT)
+                defunct--;
+            table[newIdx] = new MapEntry<>(k, value);
+            n++;
+        }
+        return value;
+    }
+
+    protected int tombstones() { return defunct; }
+
+    /**
+     * Clears the DEFUNCT slots and moves every entry back towards its hash value, in place
+     * Clusters are walked from the empty slot before them, so when an entry is picked up
+     * every entry ahead of it in its cluster is already placed, and the first empty slot
+     * from its hash value is at or before its old slot
      */
-    public Iterable<Entry<K,V>> entrySet() {
-        ArrayList<Entry<K,V>> buffer = new ArrayList<>();
+    protected void purgeTombstones() {
+        // an empty slot, a cluster never wraps past it
+        int start = 0;
+        while(table[start] != null)
+            start++;
         for(int idx = 0; idx < capacity; idx++) {
-            if(!isAvailable(idx))
-                buffer.add(table[idx]);
+            if(table[idx] == DEFUNCT)
+                table[idx] = null;
+        }
+        defunct = 0;
+        for(int i = 1; i <= capacity; i++) {
+            int idx = (start + i) % capacity;
+            MapEntry<K,V> entry = table[idx];
+            if(entry == null)
+                continue;
+            table[idx] = null;
+            int newIdx = hashValue(entry.getKey());
+            while(table[newIdx] != null)
+                newIdx = (newIdx + 1) % capacity;
+            table[newIdx] = entry;
+        }
+    }
+
+    // -- incremental resize hooks --
+    protected boolean supportsIncrementalResize() { return true; }
+
+    protected void beginMigration() {
+        oldTable = table;
+        createTable();
+    }
+
+    /**
+     * Moves the entry in slot idx of the old table, if any, into the current table
+     * The old slot becomes DEFUNCT rather than null so that searches in the old table
+     * can still probe past it
+     * @param idx index into the old table
+     */
+    protected void migrateBucket(int idx) {
+        MapEntry<K,V> entry = oldTable[idx];
+        if(entry == null || entry == DEFUNCT)
+            return;
+        int newIdx = calculateIdx(findSlot(hashValue(entry.getKey()), entry.getKey()));
+        if(table[newIdx] == DEFUNCT)
+            defunct--;
+        table[newIdx] = entry;
+        oldTable[idx] = DEFUNCT;
+    }
+
+    /**
+     * A key with old hash value h can be anywhere in the cluster starting at slot h of the old
+     * table, so every slot up to the next empty one is migrated
+     */
+    protected void migrateChain(int h, K k) {
+        for(int idx = h; oldTable[idx] != null; idx = (idx + 1) % oldCapacity) {
+            migrateBucket(idx);
+        }
+    }
+
+    protected void endMigration() {
+        oldTable = null;
+    }
+    // -- end of incremental resize hooks --
+
+    // -- Support for entrySet() method --
+    private class EntryIterator extends HashIterator<Entry<K,V>> {
+        // index of the next occupied slot, capacity if there is none
+        private int idx = seek(0);
+
+        /**
+         * Returns the index of the first occupied slot at or after idx
+         */
+        private int seek(int idx) {
+            while(idx < capacity && isAvailable(idx))
+                idx++;
+            return idx;
+        }
+        @Override
+        public boolean hasNext() { return idx < capacity; }
+        @Override
+        public Entry<K,V> next() {
+            checkForComodification();
+            if(!hasNext()) throw new NoSuchElementException("next");
+            Entry<K,V> entry = table[idx];
+            idx = seek(idx + 1);
+            return entry;
         }
-        return buffer;
     }
+    private class EntryIterable implements Iterable<Entry<K,V>> {
+        @Override
+        public Iterator<Entry<K,V>> iterator() { return new EntryIterator(); }
+    }
+    // -- End of support for entrySet() --
+
+    /**
+     * Returns an iterable collection of all key value pairs
+     * The table is walked in place, without copying, use snapshotEntries() for a copy
+     * Order does not matter
+     * @return iterable collection of entries
+     */
+    public Iterable<Entry<K,V>> entrySet() { return new EntryIterable(); }
 
 
 
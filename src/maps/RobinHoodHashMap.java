@@ -0,0 +1,245 @@
+package maps;
+
+import util.Entry;
+
+import java.util.Iterator;
+import java.util.NoSuchElementException;
+
+/**
+ * An implementation of a hash map using open addressing with linear probing and Robin Hood hashing
+ *
+ * Every slot records its probe length ie how far its entry sits from the slot it hashes to.
+ * While inserting, an entry that has probed further than the entry occupying a slot takes that
+ * slot and the displaced entry continues probing ("take from the rich, give to the poor").
+ * This keeps probe lengths close to each other and lets a search stop as soon as it meets
+ * an entry with a shorter probe length than its own.
+ *
+ * Removal uses backward-shift deletion: the entries that follow the removed one in its cluster
+ * move back by one slot, so unlike ProbeHashMap no DEFUNCT tombstones are ever left behind.
+ *
+ * Expected running time
+ * bucketGet    : O(1)
+ * bucketPut    : O(1)
+ * bucketRemove : O(1)
+ * entrySet     : O(n)
+ *
+ * @param <K> key
+ * @param <V> value
+ */
+public class RobinHoodHashMap<K,V> extends AbstractHashMap<K,V> {
+    // A fixed array of entries, all initially null
+    private MapEntry<K,V>[] table;
+    // probeLengths[i] is the distance of table[i] from the slot its key hashes to
+    private int[] probeLengths;
+    // probeLengthCounts[d] is the number of entries having probe length d
+    private int[] probeLengthCounts;
+    // sum of the probe lengths of all entries
+    private long totalProbeLength;
+
+    // -- constructors --
+    public RobinHoodHashMap() { super(); }
+    public RobinHoodHashMap(int cap) { super(cap); }
+    public RobinHoodHashMap(int cap, int p) { super(cap, p); }
+    public RobinHoodHashMap(int cap, HashStrategy strategy) { super(cap, strategy); }
+    // -- end of constructors --
+
+    /**
+     * Creates an empty table having length equal to current capacity
+     */
+    protected void createTable() {
+        table = (MapEntry<K,V>[]) new MapEntry[capacity];
+        probeLengths = new int[capacity];
+        probeLengthCounts = new int[8];
+        totalProbeLength = 0;
+    }
+
+    // -- private utility functions --
+    private int next(int idx) {
+        return (idx + 1) % capacity;
+    }
+
+    /**
+     * Stores entry e at index idx with the given probe length and updates the statistics
+     */
+    private void place(int idx, MapEntry<K,V> e, int probeLength) {
+        table[idx] = e;
+        probeLengths[idx] = probeLength;
+        if(probeLength >= probeLengthCounts.length) {
+            int[] counts = new int[Math.max(2 * probeLengthCounts.length, probeLength + 1)];
+            System.arraycopy(probeLengthCounts, 0, counts, 0, probeLengthCounts.length);
+            probeLengthCounts = counts;
+        }
+        probeLengthCounts[probeLength]++;
+        totalProbeLength += probeLength;
+    }
+
+    /**
+     * Empties slot idx and updates the statistics
+     */
+    private void clear(int idx) {
+        probeLengthCounts[probeLengths[idx]]--;
+        totalProbeLength -= probeLengths[idx];
+        table[idx] = null;
+        probeLengths[idx] = 0;
+    }
+
+    /**
+     * Returns index with key k, or -1 if there is no such entry
+     * The search stops at an empty slot or at an entry closer to its home slot than k would be
+     */
+    private int findIndex(int h, K k) {
+        int idx = h;
+        for(int probeLength = 0; table[idx] != null && probeLengths[idx] >= probeLength; probeLength++) {
+            if(table[idx].getKey().equals(k))
+                return idx;
+            idx = next(idx);
+        }
+        return -1;
+    }
+    // -- end of private utilities --
+
+    /**
+     * Returns value associated with key k in bucket with hash value h or null
+     * @param h hash value
+     * @param k key
+     * @return value, null if not found
+     */
+    protected V bucketGet(int h, K k) {
+        int idx = findIndex(h, k);
+        if(idx >= 0)
+            return table[idx].getValue();
+        return null;
+    }
+
+    /**
+     * Associate key k with value v in bucket with hash value h, returns old value
+     * @param h hash value
+     * @param k key
+     * @param v value
+     * @return old value, null if new entry is created
+     */
+    protected V bucketPut(int h, K k, V v) {
+        int idx = h;
+        int probeLength = 0;
+        // Search for an existing entry up to the point where k would have been stored
+        while(table[idx] != null && probeLengths[idx] >= probeLength) {
+            if(table[idx].getKey().equals(k))
+                return table[idx].setValue(v);
+            idx = next(idx);
+            probeLength++;
+        }
+        // Insert at idx, pushing richer entries further along the cluster
+        MapEntry<K,V> carried = new MapEntry<>(k, v);
+        while(table[idx] != null) {
+            if(probeLengths[idx] < probeLength) {
+                MapEntry<K,V> displaced = table[idx];
+                int displacedProbeLength = probeLengths[idx];
+                clear(idx);
+                place(idx, carried, probeLength);
+                carried = displaced;
+                probeLength = displacedProbeLength;
+            }
+            idx = next(idx);
+            probeLength++;
+        }
+        place(idx, carried, probeLength);
+        n++;
+        return null;
+    }
+
+    /**
+     * Removes entry having key k from bucket with hash value h, returns value of removed entry
+     * Entries following it in the cluster are shifted back by one slot
+     * @param h hash value
+     * @param k key
+     * @return value of removed entry
+     */
+    protected V bucketRemove(int h, K k) {
+        int idx = findIndex(h, k);
+        if(idx < 0)
+            return null;
+        V answer = table[idx].getValue();
+        clear(idx);
+        // Shift back until an empty slot or an entry already in its home slot
+        int nextIdx = next(idx);
+        while(table[nextIdx] != null && probeLengths[nextIdx] > 0) {
+            MapEntry<K,V> moved = table[nextIdx];
+            int movedProbeLength = probeLengths[nextIdx];
+            clear(nextIdx);
+            place(idx, moved, movedProbeLength - 1);
+            idx = nextIdx;
+            nextIdx = next(idx);
+        }
+        n--;
+        return answer;
+    }
+
+    // -- probe length statistics --
+    /**
+     * Returns the largest probe length of any entry in the map
+     */
+    public int maxProbeLength() {
+        for(int d = probeLengthCounts.length - 1; d > 0; d--)
+            if(probeLengthCounts[d] > 0)
+                return d;
+        return 0;
+    }
+
+    /**
+     * Returns the mean probe length over all entries in the map
+     */
+    public double averageProbeLength() {
+        if(n == 0)
+            return 0;
+        return (double) totalProbeLength / n;
+    }
+
+    /**
+     * Returns a copy of the probe length histogram
+     * Element d of the returned array is the number of entries with probe length d
+     */
+    public int[] probeLengthHistogram() {
+        int[] histogram = new int[maxProbeLength() + 1];
+        System.arraycopy(probeLengthCounts, 0, histogram, 0, histogram.length);
+        return histogram;
+    }
+    // -- end of probe length statistics --
+
+    // -- Support for entrySet() method --
+    private class EntryIterator extends HashIterator<Entry<K,V>> {
+        // index of the next occupied slot, capacity if there is none
+        private int idx = seek(0);
+
+        /**
+         * Returns the index of the first occupied slot at or after idx
+         */
+        private int seek(int idx) {
+            while(idx < capacity && table[idx] == null)
+                idx++;
+            return idx;
+        }
+        @Override
+        public boolean hasNext() { return idx < capacity; }
+        @Override
+        public Entry<K,V> next() {
+            checkForComodification();
+            if(!hasNext()) throw new NoSuchElementException("next");
+            Entry<K,V> entry = table[idx];
+            idx = seek(idx + 1);
+            return entry;
+        }
+    }
+    private class EntryIterable implements Iterable<Entry<K,V>> {
+        @Override
+        public Iterator<Entry<K,V>> iterator() { return new EntryIterator(); }
+    }
+    // -- End of support for entrySet() --
+
+    /**
+     * Returns an iterable collection of all key value pairs
+     * The table is walked in place, without copying, use snapshotEntries() for a copy
+     * Order does not matter
+     * @return iterable collection of entries
+     */
+    public Iterable<Entry<K,V>> entrySet() { return new EntryIterable(); }
+}
@@ -6,6 +6,7 @@ import util.Entry;
 import java.util.ArrayList;
 import java.util.Comparator;
 import java.util.List;
+import java.util.function.BiFunction;
 
 /**
  * Concrete implementation of the SortedTableMap that supports the sorted map ADT
@@ -163,6 +164,28 @@ public class SortedTableMap<K, V> extends AbstractSortedMap<K, V> {
         return table.remove(idx).getValue();
     }
 
+    /**
+     * Associates key k with the value computed from k and its current value using a single
+     * binary search; the entry is removed if the computed value is null
+     * @param k key
+     * @param remappingFunction function computing the new value
+     * @return new value, null if there is none
+     */
+    @Override
+    public V compute(K k, BiFunction<? super K, ? super V, ? extends V> remappingFunction) {
+        int idx = findIndex(k);
+        boolean found = idx < size() && compare(k, table.get(idx)) == 0;
+        V value = remappingFunction.apply(k, found ? table.get(idx).getValue() : null);
+        if (!found) {
+            if (value != null)
+                table.add(idx, new MapEntry<>(k, value));
+        } else if (value != null)
+            table.get(idx).setValue(value);
+        else
+            table.remove(idx);
+        return value;
+    }
+
     // - end of map functions -
 
     // - Methods specific to sorted map -
@@ -0,0 +1,282 @@
+package maps;
+
+import util.Entry;
+
+import java.util.Arrays;
+import java.util.ConcurrentModificationException;
+import java.util.Iterator;
+import java.util.NoSuchElementException;
+
+/**
+ * An open addressing hash map in the style of SwissTable, probing 8 slots at a time
+ *
+ * Slots are split in groups of 8. Besides the arrays of keys and values, each group has a
+ * control word, a long holding one control byte per slot: EMPTY, DELETED, or for a full slot
+ * the low 7 bits of the hash of its key (H2). The remaining bits of the hash (H1) choose the
+ * first group to probe. A probe compares H2 with the 8 control bytes of a group at once using
+ * bit tricks on the long, so keys are only read, and equals only called, for slots whose
+ * fingerprint matches, about one in 128 of the non matching slots.
+ *
+ * Probing visits groups in triangular order, which reaches every group since the number of
+ * groups is a power of two, and stops at the first group having an EMPTY slot. A removed
+ * slot becomes EMPTY again if its group still has an EMPTY slot, since no probe ever went
+ * past such a group, else it becomes DELETED until the next rehash.
+ *
+ * The table is rehashed once full and DELETED slots exceed 7/8 of the capacity, doubling it
+ * unless DELETED slots make up most of that.
+ *
+ * Expected running time
+ * get    : O(1)
+ * put    : O(1) amortized
+ * remove : O(1)
+ * entrySet : O(capacity)
+ *
+ * @param <K> key
+ * @param <V> value
+ */
+public class SwissHashMap<K,V> extends AbstractMap<K,V> {
+    private static final int GROUP_SIZE = 8;
+    private static final long EMPTY = 0x80;
+    private static final long DELETED = 0xFE;
+    // the same byte repeated in all 8 bytes of a word
+    private static final long LSBS = 0x0101010101010101L;
+    private static final long MSBS = 0x8080808080808080L;
+
+    private final HashStrategy strategy = new PowerOfTwoHashStrategy();
+    // control words, one per group of 8 slots
+    private long[] ctrl;
+    private K[] keys;
+    private V[] values;
+    // number of entries
+    private int n = 0;
+    // number of DELETED slots
+    private int deleted = 0;
+    // number of slots, a power of two and a multiple of GROUP_SIZE
+    private int capacity;
+    // number of structural modifications, used by iterators to fail fast
+    private int modCount = 0;
+
+    // -- constructors --
+    public SwissHashMap() { this(16); }
+
+    /**
+     * Creates an empty map
+     * @param cap initial capacity, rounded up to a power of two of at least 8
+     */
+    public SwissHashMap(int cap) {
+        createTable(Math.max(strategy.capacityFor(cap), GROUP_SIZE));
+    }
+    // -- end of constructors --
+
+    // -- private utilities --
+    private void createTable(int cap) {
+        capacity = cap;
+        ctrl = new long[cap / GROUP_SIZE];
+        Arrays.fill(ctrl, EMPTY * LSBS);
+        keys = (K[]) new Object[cap];
+        values = (V[]) new Object[cap];
+        deleted = 0;
+    }
+
+    private static int hash(Object key) {
+        return PowerOfTwoHashStrategy.mix(key.hashCode());
+    }
+
+    /**
+     * Returns the group a probe for hash h starts at
+     */
+    private int h1(int h) {
+        return (h >>> 7) & (ctrl.length - 1);
+    }
+
+    private static int h2(int h) {
+        return h & 0x7F;
+    }
+
+    // - word at a time matching -
+    /**
+     * Returns a word having the high bit set in every byte of w equal to b, with possible
+     * false positives in bytes above a true match
+     */
+    private static long match(long w, int b) {
+        long x = w ^ (LSBS * b);
+        return (x - LSBS) & ~x & MSBS;
+    }
+
+    /**
+     * Returns a word having the high bit set in every EMPTY byte of w
+     * EMPTY is the only control byte with the high bit set and bit 1 clear
+     */
+    private static long matchEmpty(long w) {
+        return w & ~(w << 6) & MSBS;
+    }
+
+    /**
+     * Returns a word having the high bit set in every EMPTY or DELETED byte of w
+     */
+    private static long matchEmptyOrDeleted(long w) {
+        return w & MSBS;
+    }
+
+    /**
+     * Returns the index within its group of the lowest byte set in a non zero match
+     */
+    private static int lowestSlot(long match) {
+        return Long.numberOfTrailingZeros(match) >>> 3;
+    }
+    // - end of word at a time matching -
+
+    private void setCtrl(int slot, long b) {
+        int shift = (slot % GROUP_SIZE) * 8;
+        int g = slot / GROUP_SIZE;
+        ctrl[g] = (ctrl[g] & ~(0xFFL << shift)) | (b << shift);
+    }
+
+    /**
+     * Returns the slot holding key, or -1 if there is none
+     */
+    private int find(Object key, int h) {
+        int g = h1(h);
+        for(int step = 1; ; step++) {
+            long w = ctrl[g];
+            for(long m = match(w, h2(h)); m != 0; m &= m - 1) {
+                int slot = g * GROUP_SIZE + lowestSlot(m);
+                if(keys[slot].equals(key))
+                    return slot;
+            }
+            if(matchEmpty(w) != 0)
+                return -1;
+            g = (g + step) & (ctrl.length - 1);
+        }
+    }
+
+    /**
+     * Returns the first EMPTY or DELETED slot of the probe sequence for hash h
+     * There always is one since the table is never completely full
+     */
+    private int findInsertSlot(int h) {
+        int g = h1(h);
+        for(int step = 1; ; step++) {
+            long m = matchEmptyOrDeleted(ctrl[g]);
+            if(m != 0)
+                return g * GROUP_SIZE + lowestSlot(m);
+            g = (g + step) & (ctrl.length - 1);
+        }
+    }
+
+    /**
+     * Rebuilds the table, doubling it unless DELETED slots take most of the room
+     */
+    private void rehash() {
+        modCount++;
+        long[] oldCtrl = ctrl;
+        K[] oldKeys = keys;
+        V[] oldValues = values;
+        createTable(n >= capacity * 7 / 16 ? strategy.grow(capacity) : capacity);
+        for(int g = 0; g < oldCtrl.length; g++)
+            for(long m = ~oldCtrl[g] & MSBS; m != 0; m &= m - 1) {
+                int oldSlot = g * GROUP_SIZE + lowestSlot(m);
+                int h = hash(oldKeys[oldSlot]);
+                int slot = findInsertSlot(h);
+                setCtrl(slot, h2(h));
+                keys[slot] = oldKeys[oldSlot];
+                values[slot] = oldValues[oldSlot];
+            }
+    }
+    // -- end of private utilities --
+
+    public int size() { return n; }
+
+    /**
+     * Returns value associated with key, else null
+     */
+    public V get(K key) {
+        int slot = find(key, hash(key));
+        return slot < 0 ? null : values[slot];
+    }
+
+    /**
+     * Associates key with value, returns old value or null if a new entry is created
+     */
+    public V put(K key, V value) {
+        int h = hash(key);
+        int slot = find(key, h);
+        if(slot >= 0) {
+            V old = values[slot];
+            values[slot] = value;
+            return old;
+        }
+        // keep full and DELETED slots <= 7/8 of the capacity
+        if(n + deleted + 1 > capacity - capacity / GROUP_SIZE)
+            rehash();
+        slot = findInsertSlot(h);
+        if(((ctrl[slot / GROUP_SIZE] >>> (slot % GROUP_SIZE * 8)) & 0xFF) == DELETED)
+            deleted--;
+        setCtrl(slot, h2(h));
+        keys[slot] = key;
+        values[slot] = value;
+        n++;
+        modCount++;
+        return null;
+    }
+
+    /**
+     * Removes entry having key, returns its value or null if there is no such entry
+     */
+    public V remove(K key) {
+        int slot = find(key, hash(key));
+        if(slot < 0)
+            return null;
+        V old = values[slot];
+        keys[slot] = null;
+        values[slot] = null;
+        if(matchEmpty(ctrl[slot / GROUP_SIZE]) != 0)
+            setCtrl(slot, EMPTY);
+        else {
+            setCtrl(slot, DELETED);
+            deleted++;
+        }
+        n--;
+        modCount++;
+        return old;
+    }
+
+    // -- Support for entrySet() method --
+    private class EntryIterator implements Iterator<Entry<K,V>> {
+        private final int expectedModCount = modCount;
+        // group being walked and its full slots not returned yet
+        private int g = -1;
+        private long full = 0;
+
+        private EntryIterator() { advance(); }
+
+        private void advance() {
+            while(full == 0 && ++g < ctrl.length)
+                full = ~ctrl[g] & MSBS;
+        }
+        @Override
+        public boolean hasNext() { return full != 0; }
+        @Override
+        public Entry<K,V> next() {
+            if(modCount != expectedModCount)
+                throw new ConcurrentModificationException();
+            if(!hasNext()) throw new NoSuchElementException("next");
+            int slot = g * GROUP_SIZE + lowestSlot(full);
+            full &= full - 1;
+            advance();
+            return new MapEntry<>(keys[slot], values[slot]);
+        }
+    }
+    private class EntryIterable implements Iterable<Entry<K,V>> {
+        @Override
+        public Iterator<Entry<K,V>> iterator() { return new EntryIterator(); }
+    }
+    // -- End of support for entrySet() --
+
+    /**
+     * Returns an iterable collection of all key value pairs
+     * The table is walked in place, entries are created as they are returned
+     * @return iterable collection of entries
+     */
+    public Iterable<Entry<K,V>> entrySet() { return new EntryIterable(); }
+}
@@ -0,0 +1,502 @@
+package maps;
+
+import lists.position.LinkedPositionalList;
+import util.Entry;
+import util.Position;
+
+import java.util.ArrayList;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.Executor;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicReferenceArray;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.concurrent.locks.ReentrantLock;
+import java.util.function.BiFunction;
+import java.util.function.Consumer;
+import java.util.function.Function;
+import java.util.function.LongSupplier;
+
+/**
+ * A thread-safe bounded cache whose admission policy resists scans (W-TinyLFU)
+ *
+ * Entries live in a ConcurrentChainHashMap, so get and the updates are as concurrent as in that
+ * map. The eviction order is kept apart, in structures only touched while holding the eviction
+ * lock, and is brought up to date in batches by a maintenance task run on an executor:
+ * - a hit is recorded in one of several read buffers, chosen by thread, each a small ring
+ *   buffer that drops the record when it is full, so hits never wait on a lock
+ * - every update queues a task in the write buffer, which is never lossy. Writers only run
+ *   maintenance themselves if the write buffer grows too long, to bound the work left behind
+ *
+ * New entries enter a small LRU window holding 1% of the cache. An entry leaving the window is
+ * a candidate for the main LRU region, and once that region is full it is only admitted if a
+ * FrequencySketch says it was accessed more often than the entry it would evict. Keys seen
+ * once, such as those of a scan, go through the window and are rejected without flushing the
+ * popular entries of the main region.
+ *
+ * With expire-after-write, entries older than the given duration are invisible to get, and
+ * are removed by the maintenance task in write order.
+ *
+ * The size of the map may exceed the maximum size, and include expired entries, until the
+ * maintenance task has run. cleanUp() runs it in the calling thread.
+ *
+ * Expected running time
+ * get      : O(1), does not block except for the rare maintenance
+ * put      : O(1) amortized
+ * remove   : O(1) amortized
+ * entrySet : O(n), weakly consistent snapshot
+ *
+ * @param <K> key
+ * @param <V> value
+ */
+public class TinyLfuCache<K,V> extends AbstractMap<K,V> {
+    // writes queued before a writer runs maintenance itself
+    private static final int WRITE_BUFFER_LIMIT = 1 << 12;
+
+    // -- nested Node class --
+    private static class Node<K,V> {
+        private final K key;
+        private volatile V value;
+        private volatile long writeTime;
+        // true once the node is no longer in the map
+        private volatile boolean retired = false;
+        // the following are only used while holding the eviction lock
+        // position in the window or main list, null if the node is not linked
+        private Position<Node<K,V>> accessPosition;
+        private boolean inMain = false;
+        // position in write order, only when entries expire
+        private Position<Node<K,V>> writePosition;
+
+        Node(K key, V value, long writeTime) {
+            this.key = key;
+            this.value = value;
+            this.writeTime = writeTime;
+        }
+    }
+    // -- end of nested Node class --
+
+    // -- nested ReadBuffer class --
+    /**
+     * A bounded ring buffer of nodes that were read, filled by any thread and drained by the
+     * thread holding the eviction lock. Records are dropped when it is full.
+     */
+    private static class ReadBuffer<K,V> {
+        private static final int SIZE = 16;
+        private final AtomicReferenceArray<Node<K,V>> slots = new AtomicReferenceArray<>(SIZE);
+        // number of records claimed by readers
+        private final AtomicLong writes = new AtomicLong();
+        // number of records drained, only written by the drain
+        private volatile long reads = 0;
+
+        /**
+         * Records a read of node, returns false if the buffer is full
+         */
+        boolean offer(Node<K,V> node) {
+            long tail = writes.get();
+            if(tail - reads >= SIZE)
+                return false;
+            // losing the race to another reader drops the record, which is acceptable
+            if(writes.compareAndSet(tail, tail + 1))
+                slots.lazySet((int) (tail & (SIZE - 1)), node);
+            return true;
+        }
+
+        /**
+         * Passes every published record to consumer
+         */
+        void drain(Consumer<Node<K,V>> consumer) {
+            long head = reads;
+            long tail = writes.get();
+            for(; head < tail; head++) {
+                int idx = (int) (head & (SIZE - 1));
+                Node<K,V> node = slots.get(idx);
+                // claimed but not yet published, the next drain will get it
+                if(node == null)
+                    break;
+                slots.lazySet(idx, null);
+                consumer.accept(node);
+            }
+            reads = head;
+        }
+    }
+    // -- end of nested ReadBuffer class --
+
+    private final ConcurrentChainHashMap<K, Node<K,V>> data = new ConcurrentChainHashMap<>();
+    private final long maximumSize;
+    private final long windowMax;
+    private final long mainMax;
+    // 0 if entries never expire
+    private final long expireAfterWriteNanos;
+    private final Executor executor;
+    private final LongSupplier ticker;
+
+    private final ReadBuffer<K,V>[] readBuffers;
+    private final ConcurrentLinkedQueue<Runnable> writeBuffer = new ConcurrentLinkedQueue<>();
+    private final AtomicInteger pendingWrites = new AtomicInteger();
+    private final AtomicBoolean drainScheduled = new AtomicBoolean(false);
+    private final ReentrantLock evictionLock = new ReentrantLock();
+
+    // -- guarded by evictionLock --
+    private final FrequencySketch sketch;
+    private final LinkedPositionalList<Node<K,V>> window = new LinkedPositionalList<>();
+    private final LinkedPositionalList<Node<K,V>> main = new LinkedPositionalList<>();
+    private final LinkedPositionalList<Node<K,V>> writeOrder = new LinkedPositionalList<>();
+    private long windowSize = 0;
+    private long mainSize = 0;
+    // -- end of guarded by evictionLock --
+
+    // -- statistics --
+    private final LongAdder hits = new LongAdder();
+    private final LongAdder misses = new LongAdder();
+    private final LongAdder evictions = new LongAdder();
+
+    // -- constructors --
+    public TinyLfuCache(long maximumSize) {
+        this(maximumSize, 0, TimeUnit.NANOSECONDS);
+    }
+
+    public TinyLfuCache(long maximumSize, long expireAfterWrite, TimeUnit unit) {
+        this(maximumSize, expireAfterWrite, unit, ForkJoinPool.commonPool(), System::nanoTime);
+    }
+
+    /**
+     * Creates an empty cache
+     * @param maximumSize maximum number of entries
+     * @param expireAfterWrite time after which an entry expires once written, 0 if entries never expire
+     * @param unit unit of expireAfterWrite
+     * @param executor runs the maintenance task, Runnable::run runs it in the thread that triggers it
+     * @param ticker current time in nanoseconds
+     * @throws IllegalArgumentException if maximumSize is not positive or expireAfterWrite is negative
+     */
+    public TinyLfuCache(long maximumSize, long expireAfterWrite, TimeUnit unit, Executor executor, LongSupplier ticker) throws IllegalArgumentException {
+        if(maximumSize <= 0)
+            throw new IllegalArgumentException("Maximum size must be positive: " + maximumSize);
+        if(expireAfterWrite < 0)
+            throw new IllegalArgumentException("Expiration must not be negative: " + expireAfterWrite);
+        this.maximumSize = maximumSize;
+        windowMax = Math.max(1, maximumSize / 100);
+        mainMax = maximumSize - windowMax;
+        expireAfterWriteNanos = unit.toNanos(expireAfterWrite);
+        this.executor = executor;
+        this.ticker = ticker;
+        sketch = new FrequencySketch(maximumSize);
+        int stripes = new PowerOfTwoHashStrategy().capacityFor(4 * Runtime.getRuntime().availableProcessors());
+        readBuffers = (ReadBuffer<K,V>[]) new ReadBuffer[stripes];
+        for(int i = 0; i < stripes; i++)
+            readBuffers[i] = new ReadBuffer<>();
+    }
+    // -- end of constructors --
+
+    // -- private utilities --
+    private boolean isExpired(Node<K,V> node, long now) {
+        return expireAfterWriteNanos > 0 && now - node.writeTime >= expireAfterWriteNanos;
+    }
+
+    private void afterRead(Node<K,V> node) {
+        int stripe = PowerOfTwoHashStrategy.mix((int) Thread.currentThread().getId()) & (readBuffers.length - 1);
+        if(!readBuffers[stripe].offer(node))
+            scheduleDrain();
+    }
+
+    private void afterWrite(Runnable task) {
+        writeBuffer.add(task);
+        if(pendingWrites.incrementAndGet() > WRITE_BUFFER_LIMIT)
+            cleanUp();
+        else
+            scheduleDrain();
+    }
+
+    /**
+     * Submits the maintenance task unless it is already pending
+     */
+    private void scheduleDrain() {
+        if(drainScheduled.compareAndSet(false, true)) {
+            try {
+                executor.execute(this::cleanUp);
+            } catch(RejectedExecutionException e) {
+                cleanUp();
+            }
+        }
+    }
+
+    // - policy, only called while holding the eviction lock -
+    private LinkedPositionalList<Node<K,V>> listOf(Node<K,V> node) {
+        return node.inMain ? main : window;
+    }
+
+    private void onAccess(Node<K,V> node) {
+        // the node was evicted or its addition is not drained yet
+        if(node.accessPosition == null)
+            return;
+        sketch.increment(node.key.hashCode());
+        LinkedPositionalList<Node<K,V>> list = listOf(node);
+        list.remove(node.accessPosition);
+        node.accessPosition = list.addLast(node);
+    }
+
+    private void onAdd(Node<K,V> node) {
+        // removed before its addition was drained
+        if(node.retired)
+            return;
+        sketch.increment(node.key.hashCode());
+        node.accessPosition = window.addLast(node);
+        windowSize++;
+        if(expireAfterWriteNanos > 0)
+            node.writePosition = writeOrder.addLast(node);
+    }
+
+    private void onUpdate(Node<K,V> node) {
+        onAccess(node);
+        // writes drained out of order leave write order slightly unsorted, which only delays
+        // the removal of some expired entries, get never returns them
+        if(node.writePosition != null) {
+            writeOrder.remove(node.writePosition);
+            node.writePosition = writeOrder.addLast(node);
+        }
+    }
+
+    private void unlink(Node<K,V> node) {
+        if(node.accessPosition == null)
+            return;
+        listOf(node).remove(node.accessPosition);
+        node.accessPosition = null;
+        if(node.inMain)
+            mainSize--;
+        else
+            windowSize--;
+        if(node.writePosition != null) {
+            writeOrder.remove(node.writePosition);
+            node.writePosition = null;
+        }
+    }
+
+    /**
+     * Removes node from the map and unlinks it, unless it has been rewritten since it expired
+     * @param expiring true if node is removed because it expired
+     * @return true if node is unlinked
+     */
+    private boolean evict(Node<K,V> node, long now, boolean expiring) {
+        boolean[] removed = { false };
+        data.compute(node.key, (k, current) -> {
+            if(current != node || (expiring && !isExpired(current, now)))
+                return current;
+            current.retired = true;
+            removed[0] = true;
+            return null;
+        });
+        if(removed[0])
+            evictions.increment();
+        // else either node was rewritten, or it was removed concurrently and its removal is pending
+        else if(!node.retired)
+            return false;
+        unlink(node);
+        return true;
+    }
+
+    private void moveToMain(Node<K,V> node) {
+        window.remove(node.accessPosition);
+        windowSize--;
+        node.inMain = true;
+        node.accessPosition = main.addLast(node);
+        mainSize++;
+    }
+
+    /**
+     * Removes expired entries, then moves entries from the window to the main region while
+     * the window is too large, evicting the candidate or the victim of the main region
+     */
+    private void evictEntries() {
+        if(expireAfterWriteNanos > 0) {
+            long now = ticker.getAsLong();
+            Position<Node<K,V>> first;
+            while((first = writeOrder.first()) != null && isExpired(first.getElement(), now))
+                if(!evict(first.getElement(), now, true))
+                    break;
+        }
+        while(windowSize > windowMax) {
+            Node<K,V> candidate = window.first().getElement();
+            if(mainSize < mainMax) {
+                moveToMain(candidate);
+                continue;
+            }
+            Position<Node<K,V>> victim = main.first();
+            if(victim != null && sketch.frequency(candidate.key.hashCode()) > sketch.frequency(victim.getElement().key.hashCode())) {
+                evict(victim.getElement(), 0, false);
+                moveToMain(candidate);
+            } else
+                evict(candidate, 0, false);
+        }
+    }
+    // - end of policy -
+    // -- end of private utilities --
+
+    /**
+     * Applies the pending reads and writes to the eviction order, then removes expired entries
+     * and evicts entries beyond the maximum size
+     * Runs in the calling thread, waiting for a maintenance task already running
+     */
+    public void cleanUp() {
+        evictionLock.lock();
+        try {
+            // work queued from now on schedules another run
+            drainScheduled.set(false);
+            for(ReadBuffer<K,V> buffer: readBuffers)
+                buffer.drain(this::onAccess);
+            Runnable task;
+            while((task = writeBuffer.poll()) != null) {
+                pendingWrites.decrementAndGet();
+                task.run();
+            }
+            evictEntries();
+        } finally {
+            evictionLock.unlock();
+        }
+    }
+
+    /**
+     * Returns the number of entries, possibly above the maximum size or including expired
+     * entries until maintenance has run
+     */
+    public int size() { return data.size(); }
+
+    /**
+     * Returns value associated with key, else null, counting a hit or a miss
+     */
+    public V get(K key) {
+        Node<K,V> node = data.get(key);
+        if(node == null || isExpired(node, ticker.getAsLong())) {
+            misses.increment();
+            if(node != null)
+                scheduleDrain();
+            return null;
+        }
+        V value = node.value;
+        hits.increment();
+        afterRead(node);
+        return value;
+    }
+
+    /**
+     * Associates key with value, returns old value or null if a new entry is created
+     * A null value removes the entry
+     */
+    public V put(K key, V value) {
+        return update(key, (k, current) -> value, true, false);
+    }
+
+    /**
+     * Removes entry having key, returns its value or null if there is no such entry
+     */
+    public V remove(K key) {
+        return update(key, (k, current) -> null, true, false);
+    }
+
+    /**
+     * Associates key with value unless key already has a value, atomically
+     * @return current value, null if value was added
+     */
+    public V putIfAbsent(K key, V value) {
+        return update(key, (k, current) -> value, true, true);
+    }
+
+    /**
+     * Associates key with the value computed from key unless key already has a value, atomically
+     * Finding the key present is a read
+     * @return current or computed value
+     */
+    public V computeIfAbsent(K key, Function<? super K, ? extends V> mappingFunction) {
+        return update(key, (k, current) -> mappingFunction.apply(k), false, true);
+    }
+
+    /**
+     * Associates key with the value computed from key and its current value, atomically
+     * An expired entry is passed as null. The function runs while a stripe of the map is
+     * locked, so it should be short and must not update the cache
+     * @param key key
+     * @param remappingFunction function computing the new value, the entry is removed if it returns null
+     * @return new value, null if there is none
+     */
+    public V compute(K key, BiFunction<? super K, ? super V, ? extends V> remappingFunction) {
+        return update(key, remappingFunction, false, false);
+    }
+
+    /**
+     * Computes the new value of key as compute does
+     * Any value computed for a present key is a write, even the same one, so that it restarts
+     * expire-after-write. If onlyIfAbsent is true a present key is left unchanged and only read
+     * @return value of key before the update if returnOld is true, else its current value
+     */
+    private V update(K key, BiFunction<? super K, ? super V, ? extends V> remappingFunction, boolean returnOld, boolean onlyIfAbsent) {
+        long now = ticker.getAsLong();
+        // the function below runs exactly once, these hold what it did: node written, new
+        // value and old value
+        Object[] written = new Object[3];
+        Runnable[] task = new Runnable[1];
+        data.compute(key, (k, node) -> {
+            V old = node == null || isExpired(node, now) ? null : node.value;
+            V value = onlyIfAbsent && old != null ? old : remappingFunction.apply(k, old);
+            written[1] = value;
+            written[2] = old;
+            if(value == null) {
+                if(node != null) {
+                    node.retired = true;
+                    task[0] = () -> unlink(node);
+                }
+                return null;
+            }
+            if(node == null) {
+                Node<K,V> added = new Node<>(k, value, now);
+                task[0] = () -> onAdd(added);
+                written[0] = added;
+                return added;
+            }
+            // computeIfAbsent or putIfAbsent on a present key is only a read
+            if(!(onlyIfAbsent && old != null)) {
+                node.value = value;
+                node.writeTime = now;
+                task[0] = () -> onUpdate(node);
+            }
+            written[0] = node;
+            return node;
+        });
+        if(task[0] != null)
+            afterWrite(task[0]);
+        else if(written[0] != null)
+            afterRead((Node<K,V>) written[0]);
+        return (V) written[returnOld ? 2 : 1];
+    }
+
+    // -- statistics --
+    public long maximumSize() { return maximumSize; }
+    public long hitCount() { return hits.sum(); }
+    public long missCount() { return misses.sum(); }
+    public long evictionCount() { return evictions.sum(); }
+
+    /**
+     * Returns the fraction of calls to get that found their key, 0 if get was never called
+     */
+    public double hitRate() {
+        long h = hits.sum();
+        long lookups = h + misses.sum();
+        return lookups == 0 ? 0 : (double) h / lookups;
+    }
+    // -- end of statistics --
+
+    /**
+     * Returns a snapshot of the entries that have not expired
+     * Weakly consistent, as entrySet of ConcurrentChainHashMap
+     * @return iterable collection of entries
+     */
+    public Iterable<Entry<K,V>> entrySet() {
+        long now = ticker.getAsLong();
+        ArrayList<Entry<K,V>> buffer = new ArrayList<>();
+        for(Entry<K, Node<K,V>> e: data.entrySet())
+            if(!isExpired(e.getValue(), now))
+                buffer.add(new MapEntry<>(e.getKey(), e.getValue().value));
+        return buffer;
+    }
+}
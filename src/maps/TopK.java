@@ -0,0 +1,83 @@
+package maps;
+
+import priorityqueue.HeapPriorityQueue;
+import util.Entry;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+
+/**
+ * Keeps the k keys with the largest counts among the keys offered, in O(k) memory
+ *
+ * The keys are kept in a HeapPriorityQueue keyed by count, whose minimum is the smallest count
+ * of the top k. Once k keys are kept, a key only enters by beating that count, replacing the
+ * key that has it. Among keys having equal counts, the ones offered first are kept.
+ *
+ * Running time
+ * offer     : O(log k)
+ * threshold : O(1)
+ * result    : O(k log k)
+ *
+ * @param <K> key
+ */
+public class TopK<K> {
+    private final int k;
+    // the top k so far, the smallest count at the root
+    private final HeapPriorityQueue<Integer, K> heap = new HeapPriorityQueue<>();
+
+    /**
+     * Creates an empty top k
+     * @throws IllegalArgumentException if k is not positive
+     */
+    public TopK(int k) throws IllegalArgumentException {
+        if(k <= 0)
+            throw new IllegalArgumentException("k must be positive: " + k);
+        this.k = k;
+    }
+
+    /**
+     * Returns the count a key has to exceed to enter the top k, Integer.MIN_VALUE while fewer
+     * than k keys were offered
+     */
+    public int threshold() {
+        return heap.size() < k ? Integer.MIN_VALUE : heap.min().getKey();
+    }
+
+    /**
+     * Offers key with its count, each key must be offered once
+     * @return true if key is now in the top k
+     */
+    public boolean offer(K key, int count) {
+        if(count <= threshold())
+            return false;
+        if(heap.size() == k)
+            heap.removeMin();
+        heap.insert(count, key);
+        return true;
+    }
+
+    /**
+     * Returns the top k keys with their counts, largest count first
+     */
+    public List<Entry<K, Integer>> result() {
+        ArrayList<Entry<K, Integer>> result = new ArrayList<>(heap.size());
+        while(!heap.isEmpty()) {
+            priorityqueue.Entry<Integer, K> e = heap.removeMin();
+            result.add(new AbstractMap.MapEntry<>(e.getValue(), e.getKey()));
+        }
+        for(Entry<K, Integer> e: result)
+            heap.insert(e.getValue(), e.getKey());
+        Collections.reverse(result);
+        return result;
+    }
+
+    /**
+     * Returns the k keys of counter with the largest counts, largest count first
+     */
+    public static <K> List<Entry<K, Integer>> of(ObjectIntCounter<K> counter, int k) {
+        TopK<K> top = new TopK<>(k);
+        counter.forEach(top::offer);
+        return top.result();
+    }
+}
@@ -3,14 +3,26 @@ package maps;
 
 import util.Entry;
 
-import java.util.ArrayList;
+import java.util.Arrays;
 import java.util.Iterator;
 import java.util.NoSuchElementException;
+import java.util.function.BiFunction;
 
 /**
  * A very simple concrete implementation of the map ADT that relies
- * on storing key-value pairs in arbitrary order within a Java ArrayList
+ * on storing key-value pairs in arbitrary order within an array
  *
+ * The hash code of every key is cached in a parallel int array, and the search compares it
+ * before calling equals, so keys with a different hash code are skipped without touching them.
+ *
+ * The table can optionally reorganize itself on every successful get, put or compute so that
+ * frequently used keys are found after fewer comparisons:
+ * - MOVE_TO_FRONT moves the entry found to index 0, shifting the entries before it by one,
+ *   which costs no more than the search that found it
+ * - TRANSPOSE swaps the entry found with the one before it, so that an entry needs many uses
+ *   to reach the front but a single use of a cold key disturbs the order less
+ * With NONE, the default, get never modifies the table, which ConcurrentChainHashMap relies
+ * on to share its buckets between threads. remove always moves the last entry into the hole.
  *
  * Running time
  * get(k)     : O(n)
@@ -24,14 +36,33 @@ import java.util.NoSuchElementException;
  */
 public class UnsortedTableMap<K, V> extends AbstractMap<K, V> {
     /**
-     * Underlying storage for the map of entries
+     * Heuristic moving entries closer to the front when they are used
+     */
+    public enum Reorder { NONE, MOVE_TO_FRONT, TRANSPOSE }
+
+    /**
+     * Underlying storage for the map of entries, entries[0..n) are in use
      */
-    private ArrayList<MapEntry<K, V>> table = new ArrayList<>();
+    private MapEntry<K, V>[] entries = (MapEntry<K, V>[]) new MapEntry[2];
+    // hashes[i] is the hash code of the key of entries[i]
+    private int[] hashes = new int[2];
+    private int n = 0;
+    private final Reorder reorder;
 
     /**
      * Constructs an initially empty map
      */
     public UnsortedTableMap() {
+        this(Reorder.NONE);
+    }
+
+    /**
+     * Constructs an initially empty map reorganizing itself with the given heuristic
+     *
+     * @param reorder heuristic applied when an entry is used
+     */
+    public UnsortedTableMap(Reorder reorder) {
+        this.reorder = reorder;
     }
 
     // -- private utility --
@@ -40,14 +71,49 @@ public class UnsortedTableMap<K, V> extends AbstractMap<K, V> {
      * Returns the index of an entry with equal key, or -1 if no entry is found
      *
      * @param key key
+     * @param hashCode hash code of key
      * @return index of an entry with equal key or -1 if no entry is found
      */
-    private int findIndex(K key) {
-        int n = table.size();
+    private int findIndex(K key, int hashCode) {
         for (int i = 0; i < n; i++)
-            if (table.get(i).getKey().equals(key)) return i;
+            if (hashes[i] == hashCode && entries[i].getKey().equals(key)) return i;
         return -1;
     }
+
+    /**
+     * Applies the reorder heuristic to the entry at idx, returns its new index
+     */
+    private int access(int idx) {
+        if (idx == 0 || reorder == Reorder.NONE) return idx;
+        int to = reorder == Reorder.TRANSPOSE ? idx - 1 : 0;
+        MapEntry<K, V> e = entries[idx];
+        int h = hashes[idx];
+        System.arraycopy(entries, to, entries, to + 1, idx - to);
+        System.arraycopy(hashes, to, hashes, to + 1, idx - to);
+        entries[to] = e;
+        hashes[to] = h;
+        return to;
+    }
+
+    private void add(K k, V v, int hashCode) {
+        if (n == entries.length) {
+            entries = Arrays.copyOf(entries, 2 * n);
+            hashes = Arrays.copyOf(hashes, 2 * n);
+        }
+        entries[n] = new MapEntry<>(k, v);
+        hashes[n] = hashCode;
+        n++;
+    }
+
+    /**
+     * Removes the entry at idx by moving the last entry into its place
+     */
+    private void removeAt(int idx) {
+        n--;
+        entries[idx] = entries[n];
+        hashes[idx] = hashes[n];
+        entries[n] = null;
+    }
     // -- end of private utility --
 
     /**
@@ -55,7 +121,7 @@ public class UnsortedTableMap<K, V> extends AbstractMap<K, V> {
      */
     @Override
     public int size() {
-        return table.size();
+        return n;
     }
 
     /**
@@ -66,9 +132,9 @@ public class UnsortedTableMap<K, V> extends AbstractMap<K, V> {
      */
     @Override
     public V get(K k) {
-        int idx = findIndex(k);
+        int idx = findIndex(k, k.hashCode());
         if (idx == -1) return null;
-        return table.get(idx).getValue();
+        return entries[access(idx)].getValue();
     }
 
     /**
@@ -80,11 +146,12 @@ public class UnsortedTableMap<K, V> extends AbstractMap<K, V> {
      */
     @Override
     public V put(K k, V v) {
-        int idx = findIndex(k);
+        int hashCode = k.hashCode();
+        int idx = findIndex(k, hashCode);
         if (idx == -1) {
-            table.add(new MapEntry<>(k, v));
+            add(k, v, hashCode);
             return null;
-        } else return table.get(idx).setValue(v);
+        } else return entries[access(idx)].setValue(v);
     }
 
     /**
@@ -95,24 +162,42 @@ public class UnsortedTableMap<K, V> extends AbstractMap<K, V> {
      */
     @Override
     public V remove(K key) {
-        int idx = findIndex(key);
+        int idx = findIndex(key, key.hashCode());
         if (idx == -1) return null;
-        MapEntry<K, V> old = table.get(idx);
-        int lastIdx = table.size() - 1;
-        table.set(idx, table.get(lastIdx));
-        table.remove(lastIdx);
+        MapEntry<K, V> old = entries[idx];
+        removeAt(idx);
         return old.getValue();
     }
 
+    /**
+     * Associates key with the value computed from key and its current value, searching the
+     * table once; the entry is removed if the computed value is null
+     *
+     * @param k key
+     * @param remappingFunction function computing the new value
+     * @return new value, null if there is none
+     */
+    @Override
+    public V compute(K k, BiFunction<? super K, ? super V, ? extends V> remappingFunction) {
+        int hashCode = k.hashCode();
+        int idx = findIndex(k, hashCode);
+        V value = remappingFunction.apply(k, idx == -1 ? null : entries[idx].getValue());
+        if (idx == -1) {
+            if (value != null) add(k, value, hashCode);
+        } else if (value != null) entries[access(idx)].setValue(value);
+        else removeAt(idx);
+        return value;
+    }
+
     // -- Support for entrySet() method --
     private class EntryIterator implements Iterator<Entry<K,V>> {
         private int idx = 0;
         @Override
-        public boolean hasNext() { return idx < table.size(); }
+        public boolean hasNext() { return idx < n; }
         @Override
         public MapEntry<K,V> next() {
             if (!hasNext()) throw new NoSuchElementException("next");
-            return table.get(idx++);
+            return entries[idx++];
         }
     }
     private class EntryIterable implements Iterable<Entry<K,V>> {
@@ -32,12 +32,9 @@ public class UseUnsortedTableMap {
         String word = "";
         while (doc.hasNext()) {
             word = doc.next().toLowerCase().trim();
-            Integer count = freq.get(word);
-            if (count == null)
-                count = 0;
-
-            freq.put(word, count + 1);
-            System.out.println(word + " ** " + freq.get(word));
+            // merge finds the word once, whether it is new or already counted
+            int count = freq.merge(word, 1, Integer::sum);
+            System.out.println(word + " ** " + count);
         }
         int maxCount = 0;
         String maxWord = "no word";
@@ -0,0 +1,178 @@
+package maps;
+
+import util.Entry;
+
+import java.util.List;
+
+/**
+ * Counts keys over a window of time that moves forward, without recounting the window
+ *
+ * Time is cut in slices of length slide, and the window is made of the windowSize / slide
+ * most recent slices. Each slice counts its own events in an ObjectIntCounter, kept in a ring
+ * of slices, and a further ObjectIntCounter holds the counts of the whole window. An event
+ * is added to its slice and to the window. When time moves into a new slice, the counts of
+ * the slice leaving the window are subtracted from the window, and the slice is reused. Each
+ * count subtracted was added by an event, so an event costs O(1) amortized.
+ * A window whose slide is its whole size is a tumbling window, cleared at each boundary.
+ *
+ * Events may arrive out of order as long as their slice is still in the window, older events
+ * are dropped.
+ *
+ * topK is recomputed from the window counts when it is asked for after the counts changed,
+ * so that events never pay for it.
+ *
+ * Expected running time
+ * add      : O(1) amortized
+ * get      : O(1)
+ * topK     : O(distinct keys in the window) when counts changed, else O(1)
+ *
+ * @param <K> key
+ */
+public class WindowedCounter<K> {
+    private final long slide;
+    // ring of slices, slice s is at index floorMod(s, slices.length)
+    private final ObjectIntCounter<K>[] slices;
+    private final ObjectIntCounter<K> window = new ObjectIntCounter<>();
+    // number of events in each slice and in the window
+    private final long[] sliceEvents;
+    private long windowEvents = 0;
+    // most recent slice, Long.MIN_VALUE before the first event
+    private long current = Long.MIN_VALUE;
+    // last top k computed, null once counts change
+    private List<Entry<K, Integer>> top = null;
+    private int topSize = 0;
+
+    // -- constructors --
+    /**
+     * Creates an empty counter
+     * @param windowSize length of the window, in the unit of the times given to add
+     * @param slide length of a slice, the window moves by one slice at a time
+     * @throws IllegalArgumentException if slide is not positive or does not divide windowSize
+     */
+    public WindowedCounter(long windowSize, long slide) throws IllegalArgumentException {
+        if(slide <= 0 || windowSize < slide || windowSize % slide != 0)
+            throw new IllegalArgumentException("Window size " + windowSize + " is not a multiple of slide " + slide);
+        if(windowSize / slide > Integer.MAX_VALUE - 8)
+            throw new IllegalArgumentException("Too many slices: " + windowSize / slide);
+        this.slide = slide;
+        int n = (int) (windowSize / slide);
+        slices = (ObjectIntCounter<K>[]) new ObjectIntCounter[n];
+        for(int i = 0; i < n; i++)
+            slices[i] = new ObjectIntCounter<>();
+        sliceEvents = new long[n];
+    }
+
+    /**
+     * Returns a counter whose window of length size moves by size, starting empty each time
+     */
+    public static <K> WindowedCounter<K> tumbling(long size) {
+        return new WindowedCounter<>(size, size);
+    }
+
+    /**
+     * Returns a counter whose window of length size moves by slide
+     */
+    public static <K> WindowedCounter<K> sliding(long size, long slide) {
+        return new WindowedCounter<>(size, slide);
+    }
+    // -- end of constructors --
+
+    // -- private utilities --
+    private int indexOf(long slice) {
+        return (int) Math.floorMod(slice, (long) slices.length);
+    }
+
+    /**
+     * Subtracts the counts of slice s from the window and empties it
+     */
+    private void expire(long s) {
+        ObjectIntCounter<K> slice = slices[indexOf(s)];
+        if(slice.isEmpty())
+            return;
+        slice.forEach((key, count) -> window.add(key, -count));
+        slice.clear();
+        windowEvents -= sliceEvents[indexOf(s)];
+        sliceEvents[indexOf(s)] = 0;
+        top = null;
+    }
+    // -- end of private utilities --
+
+    /**
+     * Moves the window forward so that it ends with the slice holding time
+     * Does nothing if the window is already there or further
+     */
+    public void advanceTo(long time) {
+        long slice = Math.floorDiv(time, slide);
+        if(current == Long.MIN_VALUE) {
+            current = slice;
+            return;
+        }
+        if(slice <= current)
+            return;
+        // past a full window every slice expires, each only once
+        long from = Math.max(current + 1, slice - slices.length + 1);
+        for(long s = from; s <= slice; s++)
+            expire(s);
+        current = slice;
+    }
+
+    public boolean add(K key, long time) { return add(key, time, 1); }
+
+    /**
+     * Counts weight occurrences of key at time, moving the window forward if time is past it
+     * @return false if time is before the window, in which case the event is dropped
+     */
+    public boolean add(K key, long time, int weight) {
+        advanceTo(time);
+        long slice = Math.floorDiv(time, slide);
+        if(slice <= current - slices.length)
+            return false;
+        slices[indexOf(slice)].add(key, weight);
+        sliceEvents[indexOf(slice)] += weight;
+        window.add(key, weight);
+        windowEvents += weight;
+        top = null;
+        return true;
+    }
+
+    /**
+     * Returns the count of key in the window
+     */
+    public int get(K key) { return window.get(key); }
+
+    /**
+     * Returns the number of distinct keys in the window
+     */
+    public int size() { return window.size(); }
+
+    /**
+     * Returns the total weight of the events in the window
+     */
+    public long totalCount() { return windowEvents; }
+
+    /**
+     * Returns the start of the window, inclusive, Long.MIN_VALUE before the first event
+     */
+    public long windowStart() {
+        return current == Long.MIN_VALUE ? Long.MIN_VALUE : (current - slices.length + 1) * slide;
+    }
+
+    /**
+     * Returns the end of the window, exclusive, Long.MIN_VALUE before the first event
+     */
+    public long windowEnd() {
+        return current == Long.MIN_VALUE ? Long.MIN_VALUE : (current + 1) * slide;
+    }
+
+    /**
+     * Returns the k keys with the largest counts in the window, largest first
+     * The result is kept until the counts change
+     */
+    public List<Entry<K, Integer>> topK(int k) {
+        if(top == null || topSize != k) {
+            top = TopK.of(window, k);
+            topSize = k;
+        }
+        return top;
+    }
+}
@@ -1,34 +1,73 @@
 package maps;
 
 
-import java.util.HashMap;
-import java.util.Scanner;
+import util.Entry;
+
+import java.io.IOException;
+import java.nio.channels.Channels;
+import java.nio.channels.FileChannel;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.List;
 
 /**
  * A program that counts words in a document, printing the most frequent
+ *
+ * Words are runs of ASCII letters, counted in lower case by a WordCounter, which only allocates
+ * for each distinct word. Files given as arguments are memory mapped and counted in parallel
+ * on the common ForkJoinPool, and the throughput is reported. Standard input is read if there
+ * are no files.
+ *
+ * Usage: WordCount [-k K] [-approx M] [file...]
+ * -k K      prints the K most frequent words, 10 by default
+ * -approx M streams the words through a HeavyHitters summary of M keys instead of counting
+ *           every distinct word, so memory stays bounded whatever the vocabulary, and prints
+ *           the bound of the error of the counts
  */
 public class WordCount {
-    public static void main(String[] args) {
-//        Map<String, Integer> freq = new ChainHashMap<>();
-//
-//        // Scan input for words, using all non-letters as delimiters
-//        Scanner doc = new Scanner(System.in).useDelimiter("[^a-zA-Z]+");
-//        while (doc.hasNext()) {
-//            String word = doc.next().toLowerCase();
-//            Integer count = freq.get(word);
-//            if (count == null)
-//                count = 0;
-//            freq.put(word, count + 1);
-//        }
-//        int maxCount = 0;
-//        String maxWord = "no word";
-//        for (Entry<String, Integer> ent : freq.entrySet())
-//            if (ent.getValue() > maxCount) {
-//                maxCount = ent.getValue();
-//                maxWord = ent.getKey();
-//            }
-//
-//        System.out.println("The most frequent word is " + maxWord);
-//        System.out.println("Max count is " + maxCount);
+    public static void main(String[] args) throws IOException {
+        int k = 10;
+        int approx = 0;
+        List<Path> files = new ArrayList<>();
+        for(int i = 0; i < args.length; i++) {
+            if(args[i].equals("-k"))
+                k = Integer.parseInt(args[++i]);
+            else if(args[i].equals("-approx"))
+                approx = Integer.parseInt(args[++i]);
+            else
+                files.add(Path.of(args[i]));
+        }
+
+        List<Entry<String, Integer>> top;
+        if(approx > 0) {
+            HeavyHitters<String> freq = new HeavyHitters<>(approx);
+            if(files.isEmpty())
+                WordCounter.forEachWord(Channels.newChannel(System.in), freq::offer);
+            for(Path file: files)
+                try(FileChannel channel = FileChannel.open(file, StandardOpenOption.READ)) {
+                    WordCounter.forEachWord(channel, freq::offer);
+                }
+            top = freq.topK(k);
+            System.out.println("Counts are at most " + freq.errorBound() + " below the true counts, out of " + freq.totalWeight() + " words");
+        } else {
+            WordCounter freq = new WordCounter();
+            if(files.isEmpty())
+                freq.count(Channels.newChannel(System.in));
+            for(Path file: files) {
+                long start = System.nanoTime();
+                freq.addAll(WordCounter.countFile(file));
+                double seconds = (System.nanoTime() - start) / 1e9;
+                double megabytes = Files.size(file) / 1e6;
+                System.out.printf("%s: %.1f MB in %.3f s, %.1f MB/s%n", file, megabytes, seconds, megabytes / seconds);
+            }
+            top = freq.topK(k);
+        }
+
+        if(top.isEmpty())
+            System.out.println("The most frequent word is no word");
+        for(int i = 0; i < top.size(); i++)
+            System.out.println((i + 1) + ". " + top.get(i).getKey() + " " + top.get(i).getValue());
     }
 }
@@ -0,0 +1,436 @@
+package maps;
+
+import util.Entry;
+
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.channels.ReadableByteChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.Arrays;
+import java.util.List;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.RecursiveTask;
+import java.util.function.Consumer;
+import java.util.function.ObjIntConsumer;
+
+/**
+ * Counts the words of ASCII text read from byte buffers, allocating nothing per occurrence
+ *
+ * A word is a maximal run of ASCII letters, every other byte is a delimiter, and words are
+ * counted in lower case, as with a Scanner using the delimiter [^a-zA-Z]+ and toLowerCase.
+ * Text in a UTF-8 or Latin-1 encoding can be counted this way, non-ASCII letters simply
+ * split words.
+ *
+ * The tokenizer hashes a word while scanning it in the buffer, then probes a table whose
+ * slots refer to distinct words by offset and length in a byte arena, comparing bytes in
+ * place. Only the first occurrence of a word copies it, to the end of the arena, which grows
+ * by doubling. Strings are only created when the words are reported.
+ *
+ * The table uses linear probing in parallel int arrays, with a power of two length doubled
+ * whenever n > capacity / 2.
+ *
+ * countFile counts a file in parallel: the file is split in chunks whose boundaries are moved
+ * forward to the end of the word they fall in, each chunk is memory mapped and counted by a
+ * ForkJoinPool worker into a counter of its own, and the counters are merged pairwise as the
+ * tasks complete. The counts are the same as those of a single counter reading the file.
+ *
+ * Expected running time
+ * count   : O(length of the text)
+ * get     : O(length of the word)
+ * forEach : O(capacity + length of the distinct words)
+ */
+public class WordCounter {
+    private static final int CHUNK_SIZE = 1 << 16;
+    // bounds of the size of the chunks of a file counted in parallel, a mapping is at most 2 GB
+    private static final long MIN_FILE_CHUNK = 1 << 20;
+    private static final long MAX_FILE_CHUNK = 1 << 30;
+
+    // distinct words, in lower case, one after the other
+    private byte[] arena = new byte[1 << 12];
+    private int arenaSize = 0;
+    // table of distinct words, an empty slot has count 0
+    private int[] offsets;
+    private int[] lengths;
+    private int[] counts;
+    private int[] hashes;
+    private int mask;
+    // number of distinct words
+    private int n = 0;
+    // number of words counted
+    private long total = 0;
+
+    // -- constructors --
+    public WordCounter() { this(1 << 10); }
+
+    /**
+     * Creates an empty counter
+     * @param cap initial capacity, rounded up to a power of two
+     */
+    public WordCounter(int cap) {
+        createTable(new PowerOfTwoHashStrategy().capacityFor(cap));
+    }
+    // -- end of constructors --
+
+    // -- private utilities --
+    private void createTable(int cap) {
+        offsets = new int[cap];
+        lengths = new int[cap];
+        counts = new int[cap];
+        hashes = new int[cap];
+        mask = cap - 1;
+    }
+
+    private static boolean isLetter(byte b) {
+        // clearing bit 5 maps lower case letters to upper case
+        int upper = b & 0xDF;
+        return upper >= 'A' && upper <= 'Z';
+    }
+
+    /**
+     * Returns the lower case of an ASCII letter
+     */
+    private static byte lower(byte b) {
+        return (byte) (b | 0x20);
+    }
+
+    /**
+     * Returns the hash of the word of the given length ending at the given hash state
+     */
+    private static int finish(int h, int length) {
+        return PowerOfTwoHashStrategy.mix(h ^ length);
+    }
+
+    /**
+     * Returns the slot of the word buffer[start..start + length), in lower case, or -(a + 1)
+     * such that it could be added at slot a
+     */
+    private int findSlot(ByteBuffer buffer, int start, int length, int h) {
+        int idx = h & mask;
+        for(; counts[idx] != 0; idx = (idx + 1) & mask) {
+            if(hashes[idx] != h || lengths[idx] != length)
+                continue;
+            int offset = offsets[idx];
+            int j = 0;
+            while(j < length && lower(buffer.get(start + j)) == arena[offset + j])
+                j++;
+            if(j == length)
+                return idx;
+        }
+        return -(idx + 1);
+    }
+
+    /**
+     * Adds delta occurrences of the word buffer[start..start + length)
+     */
+    private void add(ByteBuffer buffer, int start, int length, int h, int delta) {
+        int idx = findSlot(buffer, start, length, h);
+        if(idx >= 0) {
+            counts[idx] += delta;
+            return;
+        }
+        idx = -(idx + 1);
+        if(arenaSize + length > arena.length)
+            arena = Arrays.copyOf(arena, Math.max(2 * arena.length, arenaSize + length));
+        for(int j = 0; j < length; j++)
+            arena[arenaSize + j] = lower(buffer.get(start + j));
+        offsets[idx] = arenaSize;
+        lengths[idx] = length;
+        counts[idx] = delta;
+        hashes[idx] = h;
+        arenaSize += length;
+        if(++n > (mask + 1) / 2)
+            resize();
+    }
+
+    private void resize() {
+        int[] oldOffsets = offsets, oldLengths = lengths, oldCounts = counts, oldHashes = hashes;
+        createTable(2 * oldCounts.length);
+        for(int i = 0; i < oldCounts.length; i++) {
+            if(oldCounts[i] == 0)
+                continue;
+            int idx = oldHashes[i] & mask;
+            while(counts[idx] != 0)
+                idx = (idx + 1) & mask;
+            offsets[idx] = oldOffsets[i];
+            lengths[idx] = oldLengths[i];
+            counts[idx] = oldCounts[i];
+            hashes[idx] = oldHashes[i];
+        }
+    }
+
+    /**
+     * Receives the words found by scan, as a range of the buffer being scanned and its hash
+     */
+    private interface WordSink {
+        void accept(ByteBuffer buffer, int start, int length, int h);
+    }
+
+    /**
+     * Passes the words of buffer from its position to its limit to sink, and moves its position
+     * past them. Unless endOfInput, a word running up to the limit may continue in the next
+     * buffer, so it is left out and the position is left at its start.
+     */
+    private static void scan(ByteBuffer buffer, boolean endOfInput, WordSink sink) {
+        int pos = buffer.position();
+        int limit = buffer.limit();
+        while(true) {
+            while(pos < limit && !isLetter(buffer.get(pos)))
+                pos++;
+            if(pos == limit)
+                break;
+            int start = pos;
+            int h = 0;
+            for(byte b; pos < limit && isLetter(b = buffer.get(pos)); pos++)
+                h = 31 * h + lower(b);
+            if(pos == limit && !endOfInput) {
+                pos = start;
+                break;
+            }
+            sink.accept(buffer, start, pos - start, finish(h, pos - start));
+        }
+        buffer.position(pos);
+    }
+
+    /**
+     * Passes every word read from channel until its end to sink, reusing a single buffer
+     */
+    private static void read(ReadableByteChannel channel, WordSink sink) throws IOException {
+        ByteBuffer buffer = ByteBuffer.allocate(CHUNK_SIZE);
+        while(channel.read(buffer) >= 0) {
+            buffer.flip();
+            scan(buffer, false, sink);
+            buffer.compact();
+            // a single word fills the buffer
+            if(!buffer.hasRemaining()) {
+                ByteBuffer larger = ByteBuffer.allocate(2 * buffer.capacity());
+                buffer.flip();
+                larger.put(buffer);
+                buffer = larger;
+            }
+        }
+        buffer.flip();
+        scan(buffer, true, sink);
+    }
+
+    private void countWord(ByteBuffer buffer, int start, int length, int h) {
+        add(buffer, start, length, h, 1);
+        total++;
+    }
+
+    /**
+     * Returns the word in the arena at slot idx
+     */
+    private String word(int idx) {
+        return new String(arena, offsets[idx], lengths[idx], StandardCharsets.US_ASCII);
+    }
+    // -- end of private utilities --
+
+    /**
+     * Counts every word between the position and the limit of buffer, the limit ends the last
+     * word. Moves the position to the limit.
+     */
+    public void count(ByteBuffer buffer) {
+        scan(buffer, true, this::countWord);
+    }
+
+    /**
+     * Counts every word read from channel until its end, reusing a single buffer
+     * @throws IOException if reading fails
+     */
+    public void count(ReadableByteChannel channel) throws IOException {
+        read(channel, this::countWord);
+    }
+
+    /**
+     * Passes every word read from channel until its end to action, in lower case, without
+     * counting them. Unlike count, this creates a String per word.
+     * @throws IOException if reading fails
+     */
+    public static void forEachWord(ReadableByteChannel channel, Consumer<String> action) throws IOException {
+        read(channel, (buffer, start, length, h) -> {
+            byte[] word = new byte[length];
+            for(int j = 0; j < length; j++)
+                word[j] = lower(buffer.get(start + j));
+            action.accept(new String(word, StandardCharsets.US_ASCII));
+        });
+    }
+
+    /**
+     * Adds the counts of other to the counts of this counter
+     */
+    public void addAll(WordCounter other) {
+        ByteBuffer words = ByteBuffer.wrap(other.arena);
+        for(int i = 0; i < other.counts.length; i++)
+            if(other.counts[i] != 0)
+                add(words, other.offsets[i], other.lengths[i], other.hashes[i], other.counts[i]);
+        total += other.total;
+    }
+
+    /**
+     * Returns the number of times word was counted, ignoring case
+     */
+    public int get(String word) {
+        byte[] bytes = word.getBytes(StandardCharsets.US_ASCII);
+        int h = 0;
+        for(byte b: bytes) {
+            if(!isLetter(b))
+                return 0;
+            h = 31 * h + lower(b);
+        }
+        int idx = findSlot(ByteBuffer.wrap(bytes), 0, bytes.length, finish(h, bytes.length));
+        return idx < 0 ? 0 : counts[idx];
+    }
+
+    /**
+     * Returns the number of distinct words
+     */
+    public int size() { return n; }
+
+    /**
+     * Returns the number of words counted
+     */
+    public long totalWords() { return total; }
+
+    /**
+     * Calls action with every distinct word and its count, in no particular order
+     */
+    public void forEach(ObjIntConsumer<String> action) {
+        for(int i = 0; i < counts.length; i++)
+            if(counts[i] != 0)
+                action.accept(word(i), counts[i]);
+    }
+
+    // -- parallel counting of files --
+    /**
+     * Counts the chunks of a file from chunk from to chunk to - 1
+     */
+    private static class CountTask extends RecursiveTask<WordCounter> {
+        private static final long serialVersionUID = 1L;
+
+        private final FileChannel channel;
+        // chunk i goes from bounds[i] to bounds[i + 1]
+        private final long[] bounds;
+        private final int from, to;
+
+        CountTask(FileChannel channel, long[] bounds, int from, int to) {
+            this.channel = channel;
+            this.bounds = bounds;
+            this.from = from;
+            this.to = to;
+        }
+
+        @Override
+        protected WordCounter compute() {
+            if(to - from == 1) {
+                WordCounter counter = new WordCounter();
+                try {
+                    counter.count(channel.map(FileChannel.MapMode.READ_ONLY, bounds[from], bounds[to] - bounds[from]));
+                } catch(IOException e) {
+                    throw new UncheckedIOException(e);
+                }
+                return counter;
+            }
+            int mid = (from + to) >>> 1;
+            CountTask left = new CountTask(channel, bounds, from, mid);
+            left.fork();
+            WordCounter right = new CountTask(channel, bounds, mid, to).compute();
+            WordCounter counter = left.join();
+            // merge the smaller counter into the larger one
+            if(right.size() > counter.size()) {
+                WordCounter tmp = counter;
+                counter = right;
+                right = tmp;
+            }
+            counter.addAll(right);
+            return counter;
+        }
+    }
+
+    /**
+     * Returns the first position at or after position that is not inside a word
+     */
+    private static long alignToWord(FileChannel channel, long position, long size, ByteBuffer probe) throws IOException {
+        // the byte before position is read first, then the bytes from position on
+        long p = position - 1;
+        boolean first = true;
+        while(p < size) {
+            probe.clear();
+            if(channel.read(probe, p) <= 0)
+                return size;
+            probe.flip();
+            while(probe.hasRemaining()) {
+                if(!isLetter(probe.get()))
+                    return first ? position : p;
+                first = false;
+                p++;
+            }
+        }
+        return size;
+    }
+
+    /**
+     * Counts the words of a file in parallel, see the class comment
+     * @param file file to count
+     * @param pool pool running the counting tasks
+     * @param chunkSize approximate size of a chunk, at most 1 GB
+     * @return counts of the words of the file
+     * @throws IOException if the file can not be read
+     */
+    public static WordCounter countFile(Path file, ForkJoinPool pool, long chunkSize) throws IOException {
+        chunkSize = Math.max(1, Math.min(chunkSize, MAX_FILE_CHUNK));
+        try(FileChannel channel = FileChannel.open(file, StandardOpenOption.READ)) {
+            long size = channel.size();
+            long[] bounds = new long[(int) Math.min(size / chunkSize + 2, Integer.MAX_VALUE - 8)];
+            int chunks = 0;
+            ByteBuffer probe = ByteBuffer.allocate(4096);
+            for(long b = chunkSize; b < size; b = bounds[chunks] + chunkSize) {
+                b = alignToWord(channel, b, size, probe);
+                if(b == size)
+                    break;
+                bounds[++chunks] = b;
+            }
+            bounds[++chunks] = size;
+            try {
+                return pool.invoke(new CountTask(channel, bounds, 0, chunks));
+            } catch(UncheckedIOException e) {
+                throw e.getCause();
+            }
+        }
+    }
+
+    /**
+     * Counts the words of a file in parallel on the common pool, in chunks sized so that
+     * every worker gets a few of them
+     */
+    public static WordCounter countFile(Path file) throws IOException {
+        ForkJoinPool pool = ForkJoinPool.commonPool();
+        long size = file.toFile().length();
+        return countFile(file, pool, Math.max(MIN_FILE_CHUNK, size / (4L * pool.getParallelism()) + 1));
+    }
+    // -- end of parallel counting of files --
+
+    /**
+     * Returns the k most frequent words with their counts, most frequent first
+     * Only creates a String for words that enter the top k while the table is walked
+     */
+    public List<Entry<String, Integer>> topK(int k) {
+        TopK<String> top = new TopK<>(k);
+        for(int i = 0; i < counts.length; i++)
+            if(counts[i] != 0 && counts[i] > top.threshold())
+                top.offer(word(i), counts[i]);
+        return top.result();
+    }
+
+    /**
+     * Returns the counts in an ObjectIntCounter keyed by String
+     */
+    public ObjectIntCounter<String> toCounter() {
+        ObjectIntCounter<String> counter = new ObjectIntCounter<>(2 * n);
+        forEach(counter::add);
+        return counter;
+    }
+}
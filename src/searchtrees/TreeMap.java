@@ -6,6 +6,7 @@ import maps.AbstractSortedMap;
 import java.util.ArrayList;
 import java.util.Comparator;
 import java.util.List;
+import java.util.function.BiFunction;
 
 import util.Entry;
 import util.Position;
@@ -242,7 +243,47 @@ public class TreeMap<K, V> extends AbstractSortedMap<K, V> {
             return null;
         }
         V result = p.getElement().getValue();
+        removeInternal(p);
+        return result;
+    }
+
+    /**
+     * Associates key with the value computed from key and its current value using a single
+     * tree search; the entry is removed if the computed value is null
+     *
+     * @param key               key
+     * @param remappingFunction function computing the new value
+     * @return new value (null if there is none)
+     */
+    @Override
+    public V compute(K key, BiFunction<? super K, ? super V, ? extends V> remappingFunction) {
+        checkKey(key);
+        Position<Entry<K, V>> p = treeSearch(root(), key);
+        V value = remappingFunction.apply(key, isExternal(p) ? null : p.getElement().getValue());
+        if (isExternal(p)) {
+            if (value == null) {
+                // Hook for balanced tree subclasses
+                rebalanceAccess(p);
+                return null;
+            }
+            expandExternal(p, new MapEntry<>(key, value));
+            // hook for balanced tree subclasses
+            rebalanceInsert(p);
+        } else if (value != null) {
+            set(p, new MapEntry<>(key, value));
+            // hook for balanced tree subclasses
+            rebalanceAccess(p);
+        } else
+            removeInternal(p);
+        return value;
+    }
 
+    /**
+     * Removes the entry at internal position p
+     *
+     * @param p internal position
+     */
+    private void removeInternal(Position<Entry<K, V>> p) {
         if (isInternal(left(p)) && isInternal(right(p))) {
             // Both children of the nodes are internal
             // We replace it with subtree node with highest value
@@ -261,7 +302,6 @@ public class TreeMap<K, V> extends AbstractSortedMap<K, V> {
         tree.remove(p);
         // Hook for balanced tree subclasses
         rebalanceDelete(sib);
-        return result;
     }
 
     // -- public methods specific to sorted map interface --
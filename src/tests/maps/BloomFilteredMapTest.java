@@ -0,0 +1,105 @@
+package tests.maps;
+
+import maps.BloomFilter;
+import maps.BloomFilteredMap;
+import maps.BloomFilteredSortedMap;
+import maps.ChainHashMap;
+import maps.SortedTableMap;
+import org.junit.Before;
+import org.junit.Test;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+
+public class BloomFilteredMapTest {
+    BloomFilteredSortedMap<Integer, Integer> map;
+
+    @Before
+    public void createMap() {
+        map = new BloomFilteredSortedMap<>(new SortedTableMap<>());
+        map.put(1, 3);
+        map.put(2, 10);
+    }
+
+    @Test
+    public void get() {
+        assertThat(map.get(1)).isEqualTo(3);
+        assertThat(map.get(2)).isNotEqualTo(5);
+        assertThat(map.get(3)).isNull();
+        assertThat(map.lookupCount()).isEqualTo(3L);
+        assertThat(map.filterHitCount() + map.falsePositiveCount()).isEqualTo(1L);
+    }
+
+    @Test
+    public void navigation() {
+        map.put(5, 50);
+        assertThat(map.firstEntry().getKey()).isEqualTo(1);
+        assertThat(map.lastEntry().getKey()).isEqualTo(5);
+        assertThat(map.ceilingEntry(3).getKey()).isEqualTo(5);
+        assertThat(map.floorEntry(3).getKey()).isEqualTo(2);
+        assertThat(map.remove(2)).isEqualTo(10);
+        assertThat(map.remove(2)).isNull();
+        assertThat(map.size()).isEqualTo(2);
+    }
+
+    @Test
+    public void growthAndFalsePositives() {
+        map.remove(1);
+        // grows far past the initial filter, which must be rebuilt to stay accurate
+        for(int i = 0; i < 20000; i++)
+            map.put(2 * i, i);
+        for(int i = 0; i < 20000; i++)
+            assertThat(map.get(2 * i)).isEqualTo(i);
+        for(int i = 0; i < 20000; i++)
+            assertThat(map.get(2 * i + 1)).isNull();
+        assertThat(map.filterHitCount() + map.falsePositiveCount()).isEqualTo(20000L);
+        assertThat(map.observedFalsePositiveRate()).isLessThan(0.03);
+    }
+
+    @Test
+    public void removalsAndCompute() {
+        BloomFilteredMap<Integer, Integer> filtered = new BloomFilteredMap<>(new ChainHashMap<>(), 0.001);
+        for(int i = 0; i < 1000; i++)
+            filtered.merge(i, 1, Integer::sum);
+        for(int i = 0; i < 1000; i++)
+            filtered.compute(i, (k, v) -> k % 10 == 0 ? v : null);
+        assertThat(filtered.size()).isEqualTo(100);
+        for(int i = 0; i < 1000; i++)
+            assertThat(filtered.get(i)).isEqualTo(i % 10 == 0 ? 1 : null);
+        // removed keys are forgotten once they outnumber the entries, so at most about 100
+        // of the 900 removed keys still pass the filter
+        assertThat(filtered.falsePositiveCount()).isLessThanOrEqualTo(110L);
+    }
+
+    @Test
+    public void filter() {
+        BloomFilter<String> filter = new BloomFilter<>(10000, 0.01);
+        for(int i = 0; i < 10000; i++)
+            filter.add("in" + i);
+        for(int i = 0; i < 10000; i++)
+            assertThat(filter.mightContain("in" + i)).isTrue();
+        int falsePositives = 0;
+        for(int i = 0; i < 10000; i++)
+            if(filter.mightContain("out" + i))
+                falsePositives++;
+        assertThat(falsePositives).isLessThan(200);
+        assertThat(filter.hashCount()).isEqualTo(7);
+        assertThat(filter.expectedFalsePositiveRate()).isLessThan(0.011);
+        assertThatThrownBy(() -> new BloomFilter<>(10, 1.5)).isInstanceOf(IllegalArgumentException.class);
+    }
+
+    @Test
+    public void customComparator() {
+        assertThatThrownBy(() -> new BloomFilteredSortedMap<>(new SortedTableMap<String, Integer>(String.CASE_INSENSITIVE_ORDER)))
+                .isInstanceOf(IllegalArgumentException.class);
+        // keys equal ignoring case must hash the same
+        BloomFilteredSortedMap<String, Integer> m = new BloomFilteredSortedMap<>(
+                new SortedTableMap<>(String.CASE_INSENSITIVE_ORDER), 0.01, k -> k.toLowerCase().hashCode());
+        m.put("Foo", 1);
+        assertThat(m.get("foo")).isEqualTo(1);
+        assertThat(m.get("FOO")).isEqualTo(1);
+        assertThat(m.get("bar")).isNull();
+        assertThat(m.remove("foo")).isEqualTo(1);
+        assertThat(m.size()).isEqualTo(0);
+    }
+}
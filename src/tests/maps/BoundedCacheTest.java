@@ -0,0 +1,158 @@
+package tests.maps;
+
+import maps.BoundedCache;
+import org.junit.Before;
+import org.junit.Test;
+import util.Entry;
+
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.Random;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+
+public class BoundedCacheTest {
+    BoundedCache<Integer, Integer> map;
+
+    @Before
+    public void createMap() {
+        map = new BoundedCache<>(3, BoundedCache.Policy.LRU);
+        map.put(1, 3);
+        map.put(2, 10);
+    }
+
+    private static ArrayList<Integer> keys(BoundedCache<Integer, Integer> cache) {
+        ArrayList<Integer> keys = new ArrayList<>();
+        for(Entry<Integer, Integer> e: cache.entrySet())
+            keys.add(e.getKey());
+        return keys;
+    }
+
+    @Test
+    public void get() {
+        assertThat(map.get(1)).isEqualTo(3);
+        assertThat(map.get(2)).isNotEqualTo(5);
+        assertThat(map.get(3)).isNull();
+        assertThat(map.hitCount()).isEqualTo(2L);
+        assertThat(map.missCount()).isEqualTo(1L);
+        assertThat(map.hitRate()).isEqualTo(2.0 / 3);
+    }
+
+    @Test
+    public void lru() {
+        map.put(3, 7);
+        // 1 becomes the most recently used
+        map.get(1);
+        map.put(4, 8);
+        assertThat(map.get(2)).isNull();
+        assertThat(keys(map)).containsExactly(3, 1, 4);
+        assertThat(map.evictionCount()).isEqualTo(1L);
+        assertThat(map.size()).isEqualTo(3);
+    }
+
+    @Test
+    public void fifo() {
+        BoundedCache<Integer, Integer> cache = new BoundedCache<>(3, BoundedCache.Policy.FIFO);
+        for(int i = 1; i <= 3; i++)
+            cache.put(i, i);
+        cache.get(1);
+        cache.put(1, 100);
+        cache.put(4, 4);
+        assertThat(keys(cache)).containsExactly(2, 3, 4);
+    }
+
+    @Test
+    public void lfu() {
+        BoundedCache<Integer, Integer> cache = new BoundedCache<>(3, BoundedCache.Policy.LFU);
+        for(int i = 1; i <= 3; i++)
+            cache.put(i, i);
+        cache.get(1);
+        cache.get(1);
+        cache.get(3);
+        // 2 is the least frequently used
+        cache.put(4, 4);
+        assertThat(keys(cache)).containsExactly(4, 3, 1);
+        // 4 and 3 have the same frequency once 4 is read, 3 was accessed first
+        cache.get(4);
+        cache.put(5, 5);
+        assertThat(keys(cache)).containsExactly(5, 4, 1);
+        assertThat(cache.remove(1)).isEqualTo(1);
+        assertThat(keys(cache)).containsExactly(5, 4);
+    }
+
+    @Test
+    public void weigherAndListeners() {
+        BoundedCache<String, String> cache = new BoundedCache<>(10, BoundedCache.Policy.LRU, (k, v) -> v.length());
+        HashMap<String, String> evicted = new HashMap<>();
+        cache.addEvictionListener(evicted::put);
+        cache.put("a", "aaaa");
+        cache.put("b", "bbbb");
+        assertThat(cache.weight()).isEqualTo(8L);
+        cache.put("c", "cccc");
+        assertThat(evicted.keySet()).containsExactly("a");
+        // replacing a value changes the weight of its entry
+        cache.put("b", "b");
+        assertThat(cache.weight()).isEqualTo(5L);
+        // an entry heavier than the cache does not stay, and is the only one evicted
+        cache.put("d", "ddddddddddd");
+        assertThat(cache.get("d")).isNull();
+        assertThat(cache.size()).isEqualTo(2);
+        assertThat(cache.evictionCount()).isEqualTo(2L);
+        // explicit removal is not an eviction
+        cache.put("e", "e");
+        cache.remove("e");
+        assertThat(evicted.containsKey("e")).isFalse();
+        assertThatThrownBy(() -> new BoundedCache<>(0, BoundedCache.Policy.LFU)).isInstanceOf(IllegalArgumentException.class);
+    }
+
+    @Test
+    public void oversize() {
+        for(BoundedCache.Policy policy: BoundedCache.Policy.values()) {
+            BoundedCache<Integer, String> cache = new BoundedCache<>(6, policy, (k, v) -> v.length());
+            ArrayList<Integer> evicted = new ArrayList<>();
+            cache.addEvictionListener((k, v) -> evicted.add(k));
+            cache.put(1, "aa");
+            cache.put(2, "bb");
+            cache.put(3, "cc");
+            // a new entry heavier than the cache, on a full cache
+            assertThat(cache.put(4, "ddddddd")).isNull();
+            assertThat(evicted).containsExactly(4);
+            assertThat(cache.size()).isEqualTo(3);
+            assertThat(cache.weight()).isEqualTo(6L);
+            // an update making an entry heavier than the cache evicts that entry alone
+            assertThat(cache.put(2, "bbbbbbb")).isEqualTo("bb");
+            assertThat(evicted).containsExactly(4, 2);
+            assertThat(cache.get(2)).isNull();
+            assertThat(cache.get(1)).isEqualTo("aa");
+            assertThat(cache.get(3)).isEqualTo("cc");
+            assertThat(cache.weight()).isEqualTo(4L);
+            assertThat(cache.evictionCount()).isEqualTo(2L);
+        }
+    }
+
+    @Test
+    public void churn() {
+        for(BoundedCache.Policy policy: BoundedCache.Policy.values()) {
+            BoundedCache<Integer, Integer> cache = new BoundedCache<>(100, policy);
+            HashMap<Integer, Integer> written = new HashMap<>();
+            Random random = new Random(5);
+            for(int i = 0; i < 20000; i++) {
+                int key = random.nextInt(300);
+                if(random.nextInt(4) == 0)
+                    cache.remove(key);
+                else if(random.nextBoolean()) {
+                    cache.put(key, i);
+                    written.put(key, i);
+                } else {
+                    Integer value = cache.get(key);
+                    if(value != null)
+                        assertThat(value).isEqualTo(written.get(key));
+                }
+                assertThat(cache.size()).isLessThanOrEqualTo(100);
+            }
+            assertThat(cache.weight()).isEqualTo((long) cache.size());
+            assertThat(keys(cache)).hasSize(cache.size());
+        }
+    }
+}
@@ -1,9 +1,15 @@
 package tests.maps;
 
+import maps.AbstractHashMap;
 import maps.ChainHashMap;
 import maps.Map;
 import org.junit.Before;
 import org.junit.Test;
+import util.Entry;
+
+import java.util.ConcurrentModificationException;
+import java.util.List;
+
 import static org.assertj.core.api.Assertions.*;
 
 public class ChainHashMapTest {
@@ -54,6 +60,198 @@ public class ChainHashMapTest {
         assertThat(map.size()).isEqualTo(s1 - 1);
     }
 
+    @Test
+    public void incrementalResize() {
+        ChainHashMap<Integer, Integer> m = new ChainHashMap<>();
+        m.setIncrementalResize(true);
+        java.util.Map<Integer, Integer> expected = new java.util.HashMap<>();
+        for(int i = 0; i < 1000; i++) {
+            m.put(i, i * 2);
+            expected.put(i, i * 2);
+            if(i % 7 == 0) {
+                m.remove(i / 2);
+                expected.remove(i / 2);
+            }
+        }
+        assertThat(m.size()).isEqualTo(expected.size());
+        for(int i = 0; i < 1000; i++)
+            assertThat(m.get(i)).isEqualTo(expected.get(i));
+        int count = 0;
+        for(Integer key: m.keySet())
+            count++;
+        assertThat(count).isEqualTo(m.size());
+        m.setIncrementalResize(false);
+        assertThat(m.isResizing()).isFalse();
+    }
+
+    /**
+     * Comparable key whose instances all land in the same bucket
+     */
+    static class CollidingKey implements Comparable<CollidingKey> {
+        final int id;
+        CollidingKey(int id) { this.id = id; }
+        @Override
+        public int hashCode() { return 42; }
+        @Override
+        public boolean equals(Object o) { return o instanceof CollidingKey && ((CollidingKey) o).id == id; }
+        @Override
+        public int compareTo(CollidingKey o) { return Integer.compare(id, o.id); }
+    }
+
+    @Test
+    public void collidingKeys() {
+        ChainHashMap<Object, Integer> m = new ChainHashMap<>();
+        for(int i = 0; i < 200; i++)
+            m.put(new CollidingKey(i), i);
+        for(int i = 0; i < 200; i++)
+            assertThat(m.get(new CollidingKey(i))).isEqualTo(i);
+        assertThat(m.get(new CollidingKey(500))).isNull();
+        // a key of another class colliding with a sorted bucket
+        assertThat(m.get("other")).isNull();
+        m.put("other", -1);
+        assertThat(m.size()).isEqualTo(201);
+        assertThat(m.get("other")).isEqualTo(-1);
+        assertThat(m.get(new CollidingKey(7))).isEqualTo(7);
+        for(int i = 0; i < 198; i++)
+            assertThat(m.remove(new CollidingKey(i))).isEqualTo(i);
+        assertThat(m.size()).isEqualTo(3);
+        assertThat(m.get(new CollidingKey(199))).isEqualTo(199);
+        assertThat(m.remove("other")).isEqualTo(-1);
+    }
+
+    /**
+     * Key in the same bucket as CollidingKey whose ordering disagrees with equals, as
+     * BigDecimal 1.0 and 1.00 do: keys having the same id but different scales compare equal
+     */
+    static class ScaledKey implements Comparable<ScaledKey> {
+        final int id, scale;
+        ScaledKey(int id, int scale) { this.id = id; this.scale = scale; }
+        @Override
+        public int hashCode() { return 42; }
+        @Override
+        public boolean equals(Object o) {
+            return o instanceof ScaledKey && ((ScaledKey) o).id == id && ((ScaledKey) o).scale == scale;
+        }
+        @Override
+        public int compareTo(ScaledKey o) { return Integer.compare(id, o.id); }
+    }
+
+    @Test
+    public void orderingInconsistentWithEquals() {
+        ChainHashMap<ScaledKey, Integer> m = new ChainHashMap<>();
+        // enough to treeify the bucket, then keys comparing equal to those already in it
+        for(int i = 0; i < 20; i++)
+            m.put(new ScaledKey(i, 1), i);
+        for(int i = 0; i < 20; i++)
+            assertThat(m.put(new ScaledKey(i, 2), -i)).isNull();
+        assertThat(m.size()).isEqualTo(40);
+        for(int i = 0; i < 20; i++) {
+            assertThat(m.get(new ScaledKey(i, 1))).isEqualTo(i);
+            assertThat(m.get(new ScaledKey(i, 2))).isEqualTo(-i);
+            assertThat(m.get(new ScaledKey(i, 3))).isNull();
+            assertThat(m.remove(new ScaledKey(i, 3))).isNull();
+        }
+        for(int i = 0; i < 20; i++)
+            assertThat(m.remove(new ScaledKey(i, 1))).isEqualTo(i);
+        assertThat(m.size()).isEqualTo(20);
+        // the remaining keys are consistent again and the bucket can be sorted
+        for(int i = 20; i < 40; i++)
+            m.put(new ScaledKey(i, 2), -i);
+        for(int i = 0; i < 40; i++) {
+            assertThat(m.get(new ScaledKey(i, 2))).isEqualTo(-i);
+            assertThat(m.get(new ScaledKey(i, 1))).isNull();
+        }
+    }
+
+    @Test
+    public void liveIteration() {
+        assertLiveIteration(new ChainHashMap<>());
+    }
 
+    /**
+     * Checks that iterating over m allows updating values but fails fast on removals, and that
+     * a snapshot does not see updates, m being empty
+     */
+    static void assertLiveIteration(AbstractHashMap<Integer, Integer> m) {
+        for(int i = 0; i < 100; i++)
+            m.put(i, i);
+        List<Entry<Integer, Integer>> snapshot = m.snapshotEntries();
+        int sum = 0;
+        for(Entry<Integer, Integer> e: m.entrySet()) {
+            // updating values of existing keys is not a structural modification
+            m.put(e.getKey(), e.getValue() + 1);
+            sum += e.getKey();
+        }
+        assertThat(sum).isEqualTo(4950);
+        assertThat(m.get(5)).isEqualTo(6);
+        assertThat(snapshot).hasSize(100);
+        for(Entry<Integer, Integer> e: snapshot)
+            assertThat(e.getValue()).isEqualTo(e.getKey());
+        assertThatThrownBy(() -> {
+            for(Integer key: m.keySet())
+                m.remove(key);
+        }).isInstanceOf(ConcurrentModificationException.class);
+    }
 
+    @Test
+    public void shrinkAfterPurge() {
+        ChainHashMap<Integer, Integer> m = new ChainHashMap<>();
+        m.setIncrementalResize(true);
+        for(int i = 0; i < 10000; i++)
+            m.put(i, i);
+        int peak = m.distributionReport().capacity();
+        for(int i = 0; i < 10000; i++)
+            if(i % 10 != 0)
+                m.remove(i);
+        assertThat(m.distributionReport().capacity()).isLessThan(peak / 2);
+        assertThat(m.size()).isEqualTo(1000);
+        for(int i = 0; i < 10000; i++)
+            assertThat(m.get(i)).isEqualTo(i % 10 == 0 ? i : null);
+        m.trimToSize();
+        assertThat(m.isResizing()).isFalse();
+        assertThat(m.distributionReport().capacity()).isGreaterThanOrEqualTo(2000);
+        assertThat(m.keySet()).hasSize(1000);
+    }
+
+    @Test
+    public void computeAndMerge() {
+        assertThat(map.getOrDefault(1, 0)).isEqualTo(3);
+        assertThat(map.getOrDefault(7, 0)).isEqualTo(0);
+        assertThat(map.putIfAbsent(1, 50)).isEqualTo(3);
+        assertThat(map.putIfAbsent(7, 70)).isNull();
+        assertThat(map.get(7)).isEqualTo(70);
+        assertThat(map.merge(1, 1, Integer::sum)).isEqualTo(4);
+        assertThat(map.merge(8, 1, Integer::sum)).isEqualTo(1);
+        assertThat(map.computeIfAbsent(9, k -> k * 10)).isEqualTo(90);
+        assertThat(map.computeIfAbsent(9, k -> -1)).isEqualTo(90);
+        // a null result removes the entry
+        assertThat(map.compute(2, (k, v) -> null)).isNull();
+        assertThat(map.get(2)).isNull();
+        assertThat(map.compute(2, (k, v) -> null)).isNull();
+        assertThat(map.size()).isEqualTo(4);
+        // counting words, one lookup per update
+        for(int i = 0; i < 1000; i++)
+            map.merge(100 + i % 10, 1, Integer::sum);
+        for(int i = 0; i < 10; i++)
+            assertThat(map.get(100 + i)).isEqualTo(100);
+        assertThat(map.size()).isEqualTo(14);
+    }
+
+    @Test
+    public void largeRebuild() {
+        // large enough to be rebuilt in parallel when the common pool has several threads
+        ChainHashMap<Integer, Integer> m = new ChainHashMap<>();
+        for(int i = 0; i < 200000; i++)
+            m.put(i, -i);
+        assertThat(m.size()).isEqualTo(200000);
+        for(int i = 0; i < 200000; i++)
+            assertThat(m.get(i)).isEqualTo(-i);
+        for(int i = 0; i < 200000; i += 2)
+            m.remove(i);
+        m.trimToSize();
+        assertThat(m.size()).isEqualTo(100000);
+        assertThat(m.keySet()).hasSize(100000);
+        assertThat(m.get(1)).isEqualTo(-1);
+        assertThat(m.get(2)).isNull();
+    }
 }
@@ -0,0 +1,136 @@
+package tests.maps;
+
+import maps.CompactProbeHashMap;
+import org.junit.Before;
+import org.junit.Test;
+import util.Entry;
+
+import java.util.HashMap;
+import java.util.List;
+import java.util.Random;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+public class CompactProbeHashMapTest {
+    CompactProbeHashMap<Integer, Integer> map;
+
+    @Before
+    public void createMap() {
+        map = new CompactProbeHashMap<>();
+        map.put(1, 3);
+        map.put(2, 10);
+    }
+
+    @Test
+    public void get() {
+        assertThat(map.get(1)).isEqualTo(3);
+        assertThat(map.get(2)).isNotEqualTo(5);
+        assertThat(map.get(3)).isNull();
+    }
+
+    @Test
+    public void putAndRemove() {
+        assertThat(map.put(1, 100)).isEqualTo(3);
+        assertThat(map.size()).isEqualTo(2);
+        assertThat(map.remove(1)).isEqualTo(100);
+        assertThat(map.remove(1)).isNull();
+        assertThat(map.merge(2, 5, Integer::sum)).isEqualTo(15);
+        assertThat(map.size()).isEqualTo(1);
+    }
+
+    @Test
+    public void churn() {
+        HashMap<Integer, Integer> expected = new HashMap<>();
+        expected.put(1, 3);
+        expected.put(2, 10);
+        Random random = new Random(5);
+        for(int i = 0; i < 30000; i++) {
+            int key = random.nextInt(i < 20000 ? 4000 : 100);
+            if(random.nextBoolean())
+                assertThat(map.remove(key)).isEqualTo(expected.remove(key));
+            else
+                assertThat(map.put(key, i)).isEqualTo(expected.put(key, i));
+        }
+        assertThat(map.size()).isEqualTo(expected.size());
+        for(int key = 0; key < 4000; key++)
+            assertThat(map.get(key)).isEqualTo(expected.get(key));
+    }
+
+    /**
+     * Key counting the calls to its hashCode
+     */
+    static class CountingKey {
+        static int hashCodeCalls = 0;
+        final int id;
+        CountingKey(int id) { this.id = id; }
+        @Override
+        public int hashCode() {
+            hashCodeCalls++;
+            return id;
+        }
+        @Override
+        public boolean equals(Object o) { return o instanceof CountingKey && ((CountingKey) o).id == id; }
+    }
+
+    @Test
+    public void resizeReusesHashCodes() {
+        CompactProbeHashMap<CountingKey, Integer> m = new CompactProbeHashMap<>();
+        CountingKey.hashCodeCalls = 0;
+        for(int i = 0; i < 1000; i++)
+            m.put(new CountingKey(i), i);
+        // one call to find the bucket, whose result is also cached, none while resizing
+        assertThat(CountingKey.hashCodeCalls).isEqualTo(1000);
+        for(int i = 0; i < 1000; i++)
+            assertThat(m.get(new CountingKey(i))).isEqualTo(i);
+    }
+
+    @Test
+    public void flyweightEntries() {
+        Entry<Integer, Integer> first = null;
+        int count = 0;
+        for(Entry<Integer, Integer> e: map.entrySet()) {
+            if(first == null)
+                first = e;
+            // the same entry object is moved along the table
+            assertThat(e).isSameAs(first);
+            assertThat(map.get(e.getKey())).isEqualTo(e.getValue());
+            count++;
+        }
+        assertThat(count).isEqualTo(2);
+        List<Entry<Integer, Integer>> snapshot = map.snapshotEntries();
+        assertThat(snapshot.get(0)).isNotEqualTo(snapshot.get(1));
+        assertThat(map.keySet()).containsExactlyInAnyOrder(1, 2);
+        assertThat(map.values()).containsExactlyInAnyOrder(3, 10);
+    }
+
+    @Test
+    public void hashCodeOncePerOperation() {
+        CompactProbeHashMap<CountingKey, Integer> m = new CompactProbeHashMap<>(1024);
+        CountingKey.hashCodeCalls = 0;
+        m.put(new CountingKey(1), 1);
+        m.get(new CountingKey(1));
+        m.get(new CountingKey(2));
+        m.compute(new CountingKey(1), (k, v) -> v + 1);
+        m.putIfAbsent(new CountingKey(3), 3);
+        m.remove(new CountingKey(1));
+        assertThat(CountingKey.hashCodeCalls).isEqualTo(6);
+    }
+
+    @Test
+    public void purgeReusesHashCodes() {
+        CompactProbeHashMap<CountingKey, Integer> m = new CompactProbeHashMap<>(101);
+        CountingKey.hashCodeCalls = 0;
+        for(int i = 0; i < 1000; i++) {
+            m.put(new CountingKey(i * 101 + i % 3), i);
+            if(i >= 20)
+                assertThat(m.remove(new CountingKey((i - 20) * 101 + (i - 20) % 3))).isEqualTo(i - 20);
+        }
+        // one call per operation, none while purging DEFUNCT slots
+        assertThat(CountingKey.hashCodeCalls).isEqualTo(1980);
+        assertThat(m.distributionReport().capacity()).isEqualTo(101);
+        assertThat(m.size()).isEqualTo(20);
+        for(int i = 980; i < 1000; i++)
+            assertThat(m.get(new CountingKey(i * 101 + i % 3))).isEqualTo(i);
+        assertThat(m.get(new CountingKey(0))).isNull();
+    }
+}
@@ -0,0 +1,93 @@
+package tests.maps;
+
+import maps.ConcurrentChainHashMap;
+import maps.Map;
+import org.junit.Before;
+import org.junit.Test;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+public class ConcurrentChainHashMapTest {
+    Map<Integer, Integer> map;
+
+    @Before
+    public void createMap() {
+        map = new ConcurrentChainHashMap<>();
+        map.put(1, 3);
+        map.put(2, 10);
+    }
+
+    @Test
+    public void get() {
+        assertThat(map.get(1)).isEqualTo(3);
+        assertThat(map.get(2)).isNotEqualTo(5);
+        assertThat(map.get(3)).isNull();
+    }
+
+    @Test
+    public void size() {
+        assertThat(map.size()).isEqualTo(2);
+        map.put(1, 100);
+        assertThat(map.size()).isEqualTo(2);
+        map.put(5, 50);
+        assertThat(map.size()).isEqualTo(3);
+        map.remove(5);
+        assertThat(map.size()).isEqualTo(2);
+        map.remove(10);
+        assertThat(map.size()).isEqualTo(2);
+    }
+
+    @Test
+    public void concurrentWriters() throws InterruptedException {
+        int threads = 8;
+        int perThread = 5000;
+        AtomicInteger readErrors = new AtomicInteger();
+        List<Thread> workers = new ArrayList<>();
+        for(int t = 0; t < threads; t++) {
+            int base = t * perThread;
+            workers.add(new Thread(() -> {
+                for(int i = base; i < base + perThread; i++) {
+                    map.put(i + 100, i);
+                    if(!Integer.valueOf(i).equals(map.get(i + 100)))
+                        readErrors.incrementAndGet();
+                    if(i % 2 == 0)
+                        map.remove(i + 100);
+                }
+            }));
+        }
+        for(Thread w: workers)
+            w.start();
+        for(Thread w: workers)
+            w.join();
+        assertThat(readErrors.get()).isEqualTo(0);
+        assertThat(map.size()).isEqualTo(2 + threads * perThread / 2);
+        for(int i = 0; i < threads * perThread; i++)
+            assertThat(map.get(i + 100)).isEqualTo(i % 2 == 0 ? null : i);
+    }
+
+    @Test
+    public void concurrentMerge() throws InterruptedException {
+        int threads = 8;
+        int perThread = 10000;
+        List<Thread> workers = new ArrayList<>();
+        for(int t = 0; t < threads; t++)
+            workers.add(new Thread(() -> {
+                for(int i = 0; i < perThread; i++)
+                    map.merge(100 + i % 500, 1, Integer::sum);
+            }));
+        for(Thread w: workers)
+            w.start();
+        for(Thread w: workers)
+            w.join();
+        // no update is lost
+        for(int i = 0; i < 500; i++)
+            assertThat(map.get(100 + i)).isEqualTo(threads * perThread / 500);
+        assertThat(map.putIfAbsent(100, 0)).isEqualTo(threads * perThread / 500);
+        assertThat(map.compute(100, (k, v) -> null)).isNull();
+        assertThat(map.size()).isEqualTo(501);
+    }
+}
@@ -0,0 +1,81 @@
+package tests.maps;
+
+import maps.CuckooHashMap;
+import org.junit.Before;
+import org.junit.Test;
+import util.Entry;
+
+import java.util.HashMap;
+import java.util.Random;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+public class CuckooHashMapTest {
+    CuckooHashMap<Integer, Integer> map;
+
+    @Before
+    public void createMap() {
+        map = new CuckooHashMap<>();
+        map.put(1, 3);
+        map.put(2, 10);
+    }
+
+    @Test
+    public void get() {
+        assertThat(map.get(1)).isEqualTo(3);
+        assertThat(map.get(2)).isNotEqualTo(5);
+        assertThat(map.get(3)).isNull();
+    }
+
+    @Test
+    public void putAndRemove() {
+        assertThat(map.put(1, 100)).isEqualTo(3);
+        assertThat(map.size()).isEqualTo(2);
+        assertThat(map.remove(1)).isEqualTo(100);
+        assertThat(map.remove(1)).isNull();
+        assertThat(map.get(2)).isEqualTo(10);
+        assertThat(map.size()).isEqualTo(1);
+    }
+
+    @Test
+    public void churn() {
+        HashMap<Integer, Integer> expected = new HashMap<>();
+        expected.put(1, 3);
+        expected.put(2, 10);
+        Random random = new Random(7);
+        for(int i = 0; i < 20000; i++) {
+            int key = random.nextInt(5000);
+            if(random.nextInt(3) == 0) {
+                assertThat(map.remove(key)).isEqualTo(expected.remove(key));
+            } else {
+                assertThat(map.put(key, i)).isEqualTo(expected.put(key, i));
+            }
+        }
+        assertThat(map.size()).isEqualTo(expected.size());
+        for(int key = 0; key < 5000; key++)
+            assertThat(map.get(key)).isEqualTo(expected.get(key));
+        int count = 0;
+        for(Entry<Integer, Integer> e: map.entrySet()) {
+            assertThat(e.getValue()).isEqualTo(expected.get(e.getKey()));
+            count++;
+        }
+        assertThat(count).isEqualTo(expected.size());
+    }
+
+    @Test
+    public void collidingKeys() {
+        CuckooHashMap<ChainHashMapTest.CollidingKey, Integer> m = new CuckooHashMap<>();
+        // equal hash codes can only be told apart in the stash
+        for(int i = 0; i < 40; i++)
+            m.put(new ChainHashMapTest.CollidingKey(i), i);
+        assertThat(m.size()).isEqualTo(40);
+        assertThat(m.stashSize()).isEqualTo(38);
+        for(int i = 0; i < 40; i++)
+            assertThat(m.get(new ChainHashMapTest.CollidingKey(i))).isEqualTo(i);
+        for(int i = 0; i < 40; i += 2)
+            assertThat(m.remove(new ChainHashMapTest.CollidingKey(i))).isEqualTo(i);
+        assertThat(m.size()).isEqualTo(20);
+        assertThat(m.get(new ChainHashMapTest.CollidingKey(1))).isEqualTo(1);
+        assertThat(m.get(new ChainHashMapTest.CollidingKey(2))).isNull();
+    }
+}
@@ -0,0 +1,35 @@
+package tests.maps;
+
+import maps.FrequencySketch;
+import org.junit.Test;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+public class FrequencySketchTest {
+    @Test
+    public void frequency() {
+        FrequencySketch sketch = new FrequencySketch(1000);
+        for(int i = 0; i < 5; i++)
+            sketch.increment(42);
+        sketch.increment(7);
+        assertThat(sketch.frequency(42)).isEqualTo(5);
+        assertThat(sketch.frequency(7)).isEqualTo(1);
+        assertThat(sketch.frequency(8)).isEqualTo(0);
+        // counters saturate
+        for(int i = 0; i < 100; i++)
+            sketch.increment(42);
+        assertThat(sketch.frequency(42)).isEqualTo(15);
+    }
+
+    @Test
+    public void aging() {
+        FrequencySketch sketch = new FrequencySketch(100);
+        for(int i = 0; i < 12; i++)
+            sketch.increment(42);
+        // 10 * 100 increments halve every counter
+        for(int i = 0; i < 1000; i++)
+            sketch.increment(1000 + i);
+        assertThat(sketch.frequency(42)).isLessThanOrEqualTo(7);
+        assertThat(sketch.frequency(42)).isGreaterThanOrEqualTo(3);
+    }
+}
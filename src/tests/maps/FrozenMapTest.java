@@ -0,0 +1,96 @@
+package tests.maps;
+
+import maps.ChainHashMap;
+import maps.FrozenMap;
+import maps.ProbeHashMap;
+import org.junit.Before;
+import org.junit.Test;
+import util.Entry;
+
+import java.util.HashMap;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+
+public class FrozenMapTest {
+    FrozenMap<Integer, Integer> map;
+
+    @Before
+    public void createMap() {
+        ChainHashMap<Integer, Integer> source = new ChainHashMap<>();
+        source.put(1, 3);
+        source.put(2, 10);
+        map = FrozenMap.of(source);
+    }
+
+    @Test
+    public void get() {
+        assertThat(map.get(1)).isEqualTo(3);
+        assertThat(map.get(2)).isNotEqualTo(5);
+        assertThat(map.get(3)).isNull();
+        assertThat(map.size()).isEqualTo(2);
+    }
+
+    @Test
+    public void immutable() {
+        assertThatThrownBy(() -> map.put(3, 4)).isInstanceOf(UnsupportedOperationException.class);
+        assertThatThrownBy(() -> map.remove(1)).isInstanceOf(UnsupportedOperationException.class);
+        assertThatThrownBy(() -> map.merge(1, 1, Integer::sum)).isInstanceOf(UnsupportedOperationException.class);
+        assertThat(map.get(1)).isEqualTo(3);
+    }
+
+    @Test
+    public void empty() {
+        FrozenMap<Integer, Integer> empty = FrozenMap.of(new ChainHashMap<>());
+        assertThat(empty.size()).isEqualTo(0);
+        assertThat(empty.get(1)).isNull();
+        assertThat(empty.entrySet().iterator().hasNext()).isFalse();
+    }
+
+    @Test
+    public void manyKeys() {
+        ChainHashMap<String, Integer> source = new ChainHashMap<>();
+        for(int i = 0; i < 100000; i++)
+            source.put("key" + i, i);
+        FrozenMap<String, Integer> frozen = FrozenMap.of(source);
+        assertThat(frozen.size()).isEqualTo(100000);
+        for(int i = 0; i < 100000; i++)
+            assertThat(frozen.get("key" + i)).isEqualTo(i);
+        for(int i = 100000; i < 101000; i++)
+            assertThat(frozen.get("key" + i)).isNull();
+        HashMap<String, Integer> seen = new HashMap<>();
+        for(Entry<String, Integer> e: frozen.entrySet())
+            assertThat(seen.put(e.getKey(), e.getValue())).isNull();
+        assertThat(seen.size()).isEqualTo(100000);
+    }
+
+    @Test
+    public void equalHashCodes() {
+        ChainHashMap<ChainHashMapTest.CollidingKey, Integer> source = new ChainHashMap<>();
+        for(int i = 0; i < 20; i++)
+            source.put(new ChainHashMapTest.CollidingKey(i), i);
+        source.put(new ChainHashMapTest.CollidingKey(99), null);
+        FrozenMap<ChainHashMapTest.CollidingKey, Integer> frozen = FrozenMap.of(source);
+        // entries with a null value are absent
+        assertThat(frozen.size()).isEqualTo(20);
+        for(int i = 0; i < 20; i++)
+            assertThat(frozen.get(new ChainHashMapTest.CollidingKey(i))).isEqualTo(i);
+        assertThat(frozen.get(new ChainHashMapTest.CollidingKey(20))).isNull();
+        int count = 0;
+        for(Entry<ChainHashMapTest.CollidingKey, Integer> e: frozen.entrySet())
+            count++;
+        assertThat(count).isEqualTo(20);
+    }
+
+    @Test(timeout = 60000)
+    public void millionKeys() {
+        ProbeHashMap<Integer, Integer> source = new ProbeHashMap<>(1 << 21);
+        for(int i = 0; i < 1000000; i++)
+            source.put(i * 7919, i);
+        FrozenMap<Integer, Integer> frozen = FrozenMap.of(source);
+        assertThat(frozen.size()).isEqualTo(1000000);
+        for(int i = 0; i < 1000000; i++)
+            assertThat(frozen.get(i * 7919)).isEqualTo(i);
+        assertThat(frozen.get(1)).isNull();
+    }
+}
@@ -0,0 +1,48 @@
+package tests.maps;
+
+import maps.ChainHashMap;
+import maps.HashDistributionReport;
+import maps.MADHashStrategy;
+import maps.PowerOfTwoHashStrategy;
+import maps.ProbeHashMap;
+import org.junit.Test;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+public class HashStrategyTest {
+
+    @Test
+    public void powerOfTwoCapacity() {
+        PowerOfTwoHashStrategy strategy = new PowerOfTwoHashStrategy();
+        assertThat(strategy.capacityFor(1)).isEqualTo(2);
+        assertThat(strategy.capacityFor(16)).isEqualTo(16);
+        assertThat(strategy.capacityFor(17)).isEqualTo(32);
+        assertThat(strategy.grow(32)).isEqualTo(64);
+        for(int h = -1000; h < 1000; h++)
+            assertThat(strategy.compress(h, 32)).isBetween(0, 31);
+    }
+
+    @Test
+    public void madSpreadsKeys() {
+        ChainHashMap<Integer, Integer> map = new ChainHashMap<>(17, new MADHashStrategy());
+        for(int i = 0; i < 1000; i++)
+            map.put(i, i);
+        HashDistributionReport report = map.distributionReport();
+        assertThat(report.size()).isEqualTo(1000);
+        // keys no longer all share one bucket
+        assertThat(report.maxBucketSize()).isLessThan(10);
+    }
+
+    @Test
+    public void powerOfTwoSpreadsKeys() {
+        ProbeHashMap<Integer, Integer> map = new ProbeHashMap<>(10, new PowerOfTwoHashStrategy());
+        for(int i = 0; i < 1000; i++)
+            map.put(i * 1024, i);
+        for(int i = 0; i < 1000; i++)
+            assertThat(map.get(i * 1024)).isEqualTo(i);
+        HashDistributionReport report = map.distributionReport();
+        assertThat(report.capacity()).isEqualTo(2048);
+        assertThat(report.usedBuckets() + report.collisions()).isEqualTo(1000);
+        assertThat((double) report.collisions()).isLessThan(2 * report.expectedCollisions() + 10);
+    }
+}
@@ -0,0 +1,79 @@
+package tests.maps;
+
+import maps.IntIntProbeHashMap;
+import org.junit.Before;
+import org.junit.Test;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+public class IntIntProbeHashMapTest {
+    IntIntProbeHashMap map;
+
+    @Before
+    public void createMap() {
+        map = new IntIntProbeHashMap();
+        map.put(1, 3);
+        map.put(2, 10);
+    }
+
+    @Test
+    public void get() {
+        assertThat(map.get(1)).isEqualTo(3);
+        assertThat(map.get(2)).isNotEqualTo(5);
+        assertThat(map.get(3)).isEqualTo(0);
+        assertThat(map.getOrDefault(3, -1)).isEqualTo(-1);
+        assertThat(map.containsKey(3)).isFalse();
+    }
+
+    @Test
+    public void size() {
+        assertThat(map.size()).isEqualTo(2);
+        map.put(1, 100);
+        assertThat(map.size()).isEqualTo(2);
+        map.put(5, 50);
+        assertThat(map.size()).isEqualTo(3);
+        map.remove(5);
+        assertThat(map.size()).isEqualTo(2);
+        map.remove(10);
+        assertThat(map.size()).isEqualTo(2);
+    }
+
+    @Test
+    public void remove() {
+        assertThat(map.remove(100)).isEqualTo(0);
+        assertThat(map.remove(1)).isEqualTo(3);
+        assertThat(map.containsKey(1)).isFalse();
+        map.put(1, 7);
+        assertThat(map.get(1)).isEqualTo(7);
+    }
+
+    @Test
+    public void resize() {
+        for(int i = -500; i < 500; i++)
+            map.put(i, i * 2);
+        for(int i = -500; i < 500; i += 2)
+            map.remove(i);
+        assertThat(map.size()).isEqualTo(500);
+        for(int i = -499; i < 500; i += 2)
+            assertThat(map.get(i)).isEqualTo(i * 2);
+        assertThat(map.containsKey(-500)).isFalse();
+    }
+
+    @Test(timeout = 10000)
+    public void churn() {
+        // fresh keys inserted and removed at a stable size, a miss used to probe past every
+        // DEFUNCT slot left behind until the table grew
+        IntIntProbeHashMap m = new IntIntProbeHashMap(100003);
+        for(int i = 0; i < 200000; i++) {
+            m.put(i, i * 2);
+            if(i >= 10)
+                assertThat(m.remove(i - 10)).isEqualTo((i - 10) * 2);
+        }
+        assertThat(m.size()).isEqualTo(10);
+        for(int i = 0; i < 200000; i++)
+            assertThat(m.get(-i - 1)).isEqualTo(0);
+        for(int i = 199990; i < 200000; i++)
+            assertThat(m.get(i)).isEqualTo(i * 2);
+        assertThat(m.containsKey(199989)).isFalse();
+    }
+}
@@ -0,0 +1,142 @@
+package tests.maps;
+
+import maps.LockFreeProbeHashMap;
+import maps.Map;
+import org.junit.Before;
+import org.junit.Test;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+public class LockFreeProbeHashMapTest {
+    Map<Integer, Integer> map;
+
+    @Before
+    public void createMap() {
+        map = new LockFreeProbeHashMap<>();
+        map.put(1, 3);
+        map.put(2, 10);
+    }
+
+    @Test
+    public void get() {
+        assertThat(map.get(1)).isEqualTo(3);
+        assertThat(map.get(2)).isNotEqualTo(5);
+        assertThat(map.get(3)).isNull();
+    }
+
+    @Test
+    public void size() {
+        assertThat(map.size()).isEqualTo(2);
+        map.put(1, 100);
+        assertThat(map.size()).isEqualTo(2);
+        map.put(5, 50);
+        assertThat(map.size()).isEqualTo(3);
+        map.remove(5);
+        assertThat(map.size()).isEqualTo(2);
+        map.remove(10);
+        assertThat(map.size()).isEqualTo(2);
+    }
+
+    @Test
+    public void removeAndPutAgain() {
+        for(int round = 0; round < 20; round++) {
+            for(int i = 0; i < 1000; i++)
+                map.put(i, round);
+            for(int i = 0; i < 1000; i += 2)
+                map.remove(i);
+        }
+        assertThat(map.size()).isEqualTo(500);
+        for(int i = 0; i < 1000; i++)
+            assertThat(map.get(i)).isEqualTo(i % 2 == 0 ? null : 19);
+        int count = 0;
+        for(Integer key: map.keySet())
+            count++;
+        assertThat(count).isEqualTo(500);
+    }
+
+    /**
+     * Writers own disjoint key ranges and write increasing values, while readers check that
+     * the value they see for a key never goes back in time
+     */
+    @Test
+    public void stress() throws InterruptedException {
+        int writers = 4;
+        int readers = 4;
+        int keysPerWriter = 2000;
+        int rounds = 10;
+        AtomicInteger errors = new AtomicInteger();
+        AtomicInteger running = new AtomicInteger(writers);
+        List<Thread> threads = new ArrayList<>();
+        for(int w = 0; w < writers; w++) {
+            int base = 100 + w * keysPerWriter;
+            threads.add(new Thread(() -> {
+                for(int r = 1; r <= rounds; r++) {
+                    for(int k = base; k < base + keysPerWriter; k++) {
+                        Integer old = map.put(k, r);
+                        if(old != null && old != r - 1)
+                            errors.incrementAndGet();
+                    }
+                    // remove every third key, it is put back in the next round
+                    for(int k = base; k < base + keysPerWriter; k += 3)
+                        if(!Integer.valueOf(r).equals(map.remove(k)))
+                            errors.incrementAndGet();
+                }
+                running.decrementAndGet();
+            }));
+        }
+        for(int rd = 0; rd < readers; rd++) {
+            threads.add(new Thread(() -> {
+                int[] seen = new int[writers * keysPerWriter];
+                while(running.get() > 0) {
+                    for(int i = 0; i < seen.length; i++) {
+                        Integer v = map.get(i + 100);
+                        if(v != null) {
+                            if(v < seen[i])
+                                errors.incrementAndGet();
+                            seen[i] = v;
+                        }
+                    }
+                }
+            }));
+        }
+        for(Thread t: threads)
+            t.start();
+        for(Thread t: threads)
+            t.join();
+        assertThat(errors.get()).isEqualTo(0);
+        int expectedSize = 2;
+        for(int k = 0; k < writers * keysPerWriter; k++) {
+            boolean removed = (k % keysPerWriter) % 3 == 0;
+            assertThat(map.get(k + 100)).isEqualTo(removed ? null : rounds);
+            if(!removed)
+                expectedSize++;
+        }
+        assertThat(map.size()).isEqualTo(expectedSize);
+    }
+
+    @Test
+    public void concurrentMerge() throws InterruptedException {
+        int threads = 8;
+        int perThread = 10000;
+        List<Thread> workers = new ArrayList<>();
+        for(int t = 0; t < threads; t++)
+            workers.add(new Thread(() -> {
+                for(int i = 0; i < perThread; i++)
+                    map.merge(100 + i % 500, 1, Integer::sum);
+            }));
+        for(Thread w: workers)
+            w.start();
+        for(Thread w: workers)
+            w.join();
+        // no update is lost
+        for(int i = 0; i < 500; i++)
+            assertThat(map.get(100 + i)).isEqualTo(threads * perThread / 500);
+        assertThat(map.putIfAbsent(100, 0)).isEqualTo(threads * perThread / 500);
+        assertThat(map.compute(100, (k, v) -> null)).isNull();
+        assertThat(map.size()).isEqualTo(501);
+    }
+}
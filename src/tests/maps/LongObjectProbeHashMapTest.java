@@ -0,0 +1,96 @@
+package tests.maps;
+
+import maps.LongObjectProbeHashMap;
+import org.junit.Before;
+import org.junit.Test;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+public class LongObjectProbeHashMapTest {
+    LongObjectProbeHashMap<String> map;
+
+    @Before
+    public void createMap() {
+        map = new LongObjectProbeHashMap<>();
+        map.put(1, "3");
+        map.put(2, "10");
+    }
+
+    @Test
+    public void get() {
+        assertThat(map.get(1)).isEqualTo("3");
+        assertThat(map.get(2)).isNotEqualTo("5");
+        assertThat(map.get(3)).isNull();
+        assertThat(map.getOrDefault(3, "none")).isEqualTo("none");
+        assertThat(map.containsKey(3)).isFalse();
+        map.put(Long.MAX_VALUE, "max");
+        map.put(Long.MIN_VALUE, "min");
+        assertThat(map.get(Long.MAX_VALUE)).isEqualTo("max");
+        assertThat(map.get(Long.MIN_VALUE)).isEqualTo("min");
+    }
+
+    @Test
+    public void putAndRemove() {
+        assertThat(map.put(1, "100")).isEqualTo("3");
+        assertThat(map.size()).isEqualTo(2);
+        assertThat(map.remove(100)).isNull();
+        assertThat(map.remove(1)).isEqualTo("100");
+        assertThat(map.containsKey(1)).isFalse();
+        assertThat(map.size()).isEqualTo(1);
+        map.put(1, "7");
+        assertThat(map.get(1)).isEqualTo("7");
+        assertThat(map.isEmpty()).isFalse();
+    }
+
+    @Test
+    public void resize() {
+        for(long i = -500; i < 500; i++)
+            map.put(i << 20, "v" + i);
+        for(long i = -500; i < 500; i += 2)
+            map.remove(i << 20);
+        // plus keys 1 and 2
+        assertThat(map.size()).isEqualTo(502);
+        for(long i = -499; i < 500; i += 2)
+            assertThat(map.get(i << 20)).isEqualTo("v" + i);
+        assertThat(map.get(2)).isEqualTo("10");
+        assertThat(map.containsKey(-500L << 20)).isFalse();
+    }
+
+    @Test
+    public void probePastRemoved() {
+        // i << 32 | i folds to the same hash code for every i, so all keys share one cluster
+        LongObjectProbeHashMap<String> m = new LongObjectProbeHashMap<>(17);
+        for(long i = 1; i <= 5; i++)
+            m.put(i << 32 | i, "v" + i);
+        assertThat(m.remove(2L << 32 | 2)).isEqualTo("v2");
+        assertThat(m.remove(4L << 32 | 4)).isEqualTo("v4");
+        // the search for later keys continues past the removed slots
+        assertThat(m.get(5L << 32 | 5)).isEqualTo("v5");
+        assertThat(m.get(3L << 32 | 3)).isEqualTo("v3");
+        assertThat(m.get(4L << 32 | 4)).isNull();
+        // a key already present is updated rather than added to a removed slot
+        assertThat(m.put(5L << 32 | 5, "w5")).isEqualTo("v5");
+        assertThat(m.put(2L << 32 | 2, "w2")).isNull();
+        assertThat(m.size()).isEqualTo(4);
+        assertThat(m.get(5L << 32 | 5)).isEqualTo("w5");
+        assertThat(m.get(2L << 32 | 2)).isEqualTo("w2");
+    }
+
+    @Test(timeout = 10000)
+    public void churn() {
+        // fresh keys inserted and removed at a stable size, a miss used to probe past every
+        // DEFUNCT slot left behind until the table grew
+        LongObjectProbeHashMap<String> m = new LongObjectProbeHashMap<>(100003);
+        for(long i = 0; i < 200000; i++) {
+            m.put(i << 20, "v" + i);
+            if(i >= 10)
+                assertThat(m.remove((i - 10) << 20)).isEqualTo("v" + (i - 10));
+        }
+        assertThat(m.size()).isEqualTo(10);
+        for(long i = 0; i < 200000; i++)
+            assertThat(m.get(-i - 1)).isNull();
+        for(long i = 199990; i < 200000; i++)
+            assertThat(m.get(i << 20)).isEqualTo("v" + i);
+        assertThat(m.containsKey(199989L << 20)).isFalse();
+    }
+}
@@ -0,0 +1,144 @@
+package tests.maps;
+
+import maps.Codecs;
+import maps.MappedHashMap;
+import org.junit.Before;
+import org.junit.Test;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+
+public class MappedHashMapTest {
+    Path path;
+
+    @Before
+    public void createDirectory() throws IOException {
+        path = Files.createTempDirectory("mapped").resolve("map");
+    }
+
+    MappedHashMap<String, Integer> open() throws IOException {
+        return new MappedHashMap<>(path, Codecs.STRING, Codecs.INTEGER, 4096);
+    }
+
+    @Test
+    public void putGetRemove() throws IOException {
+        MappedHashMap<String, Integer> map = open();
+        assertThat(map.put("one", 1)).isNull();
+        assertThat(map.put("two", 2)).isNull();
+        assertThat(map.put("one", 10)).isEqualTo(1);
+        assertThat(map.get("one")).isEqualTo(10);
+        assertThat(map.remove("two")).isEqualTo(2);
+        assertThat(map.get("two")).isNull();
+        assertThat(map.size()).isEqualTo(1);
+        map.close();
+        assertThatThrownBy(() -> map.get("one")).isInstanceOf(IllegalStateException.class);
+    }
+
+    @Test
+    public void reopenAfterClose() throws IOException {
+        MappedHashMap<String, Integer> map = open();
+        // enough to grow the index and fill several log segments
+        for(int i = 0; i < 2000; i++)
+            map.put("key" + i, i);
+        for(int i = 0; i < 2000; i += 2)
+            map.remove("key" + i);
+        map.close();
+        MappedHashMap<String, Integer> reopened = open();
+        assertThat(reopened.size()).isEqualTo(1000);
+        for(int i = 0; i < 2000; i++)
+            assertThat(reopened.get("key" + i)).isEqualTo(i % 2 == 0 ? null : i);
+        assertThat(reopened.keySet()).hasSize(1000);
+        reopened.close();
+    }
+
+    @Test
+    public void recoverWithoutClose() throws IOException {
+        MappedHashMap<String, Integer> map = open();
+        for(int i = 0; i < 100; i++)
+            map.put("key" + i, i);
+        map.force();
+        map.remove("key0");
+        map.put("key1", -1);
+        // the process "crashes": the header is dirty so the log is replayed
+        MappedHashMap<String, Integer> recovered = open();
+        assertThat(recovered.size()).isEqualTo(99);
+        assertThat(recovered.get("key0")).isNull();
+        assertThat(recovered.get("key1")).isEqualTo(-1);
+        assertThat(recovered.get("key99")).isEqualTo(99);
+        recovered.close();
+    }
+
+    @Test
+    public void recoverFromTornRecord() throws IOException {
+        MappedHashMap<String, Integer> map = open();
+        map.put("kept", 1);
+        map.put("torn", 2);
+        map.force();
+        // corrupt the last record and make the header dirty, as a crash during an update would
+        map.put("later", 3);
+        try(FileChannel log = FileChannel.open(path.resolveSibling("map.log"), StandardOpenOption.WRITE)) {
+            log.write(ByteBuffer.wrap(new byte[]{42}), 40);
+        }
+        MappedHashMap<String, Integer> recovered = open();
+        assertThat(recovered.get("kept")).isEqualTo(1);
+        // records from the corrupt one onwards are discarded
+        assertThat(recovered.get("torn")).isNull();
+        assertThat(recovered.get("later")).isNull();
+        assertThat(recovered.size()).isEqualTo(1);
+        recovered.put("new", 4);
+        recovered.close();
+        MappedHashMap<String, Integer> reopened = open();
+        assertThat(reopened.get("new")).isEqualTo(4);
+        assertThat(reopened.size()).isEqualTo(2);
+        reopened.close();
+    }
+
+    @Test(timeout = 60000)
+    public void churn() throws IOException {
+        MappedHashMap<String, Integer> map = open();
+        map.put("kept", 0);
+        // fresh keys every time, so removed slots never get reused by the same key
+        for(int i = 0; i < 20000; i++) {
+            map.put("key" + i, i);
+            assertThat(map.remove("key" + i)).isEqualTo(i);
+            map.put("kept", i);
+        }
+        assertThat(map.size()).isEqualTo(1);
+        assertThat(map.get("missing")).isNull();
+        // compaction keeps the log near the size of the live records
+        assertThat(Files.size(path.resolveSibling("map.log"))).isLessThan(1L << 20);
+        map.close();
+        MappedHashMap<String, Integer> reopened = open();
+        assertThat(reopened.get("kept")).isEqualTo(19999);
+        assertThat(reopened.size()).isEqualTo(1);
+        reopened.close();
+    }
+
+    @Test
+    public void recoverAfterCompaction() throws IOException {
+        MappedHashMap<String, Integer> map = open();
+        for(int i = 0; i < 100; i++)
+            map.put("key" + i, i);
+        map.force();
+        for(int round = 1; round < 500; round++)
+            for(int i = 0; i < 100; i += 10)
+                map.put("key" + i, i * round);
+        map.remove("key1");
+        assertThat(Files.size(path.resolveSibling("map.log"))).isLessThan(1L << 17);
+        // the process "crashes" after the log was compacted
+        MappedHashMap<String, Integer> recovered = open();
+        assertThat(recovered.size()).isEqualTo(99);
+        assertThat(recovered.get("key0")).isEqualTo(0);
+        assertThat(recovered.get("key10")).isEqualTo(10 * 499);
+        assertThat(recovered.get("key1")).isNull();
+        assertThat(recovered.get("key99")).isEqualTo(99);
+        recovered.close();
+    }
+}
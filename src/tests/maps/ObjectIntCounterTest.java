@@ -0,0 +1,89 @@
+package tests.maps;
+
+import maps.ObjectIntCounter;
+import org.junit.Before;
+import org.junit.Test;
+
+import java.util.HashMap;
+import java.util.Random;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+public class ObjectIntCounterTest {
+    ObjectIntCounter<Integer> counter;
+
+    @Before
+    public void createCounter() {
+        counter = new ObjectIntCounter<>();
+        counter.add(1, 3);
+        counter.add(2, 10);
+    }
+
+    @Test
+    public void get() {
+        assertThat(counter.get(1)).isEqualTo(3);
+        assertThat(counter.get(2)).isNotEqualTo(5);
+        assertThat(counter.get(3)).isEqualTo(0);
+        assertThat(counter.increment(1)).isEqualTo(4);
+        assertThat(counter.increment(3)).isEqualTo(1);
+        assertThat(counter.size()).isEqualTo(3);
+    }
+
+    @Test
+    public void zeroCountRemoves() {
+        assertThat(counter.add(1, -3)).isEqualTo(0);
+        assertThat(counter.size()).isEqualTo(1);
+        assertThat(counter.add(5, 0)).isEqualTo(0);
+        assertThat(counter.size()).isEqualTo(1);
+        assertThat(counter.remove(2)).isEqualTo(10);
+        assertThat(counter.remove(2)).isEqualTo(0);
+        assertThat(counter.isEmpty()).isTrue();
+    }
+
+    @Test
+    public void churn() {
+        HashMap<Integer, Integer> expected = new HashMap<>();
+        expected.put(1, 3);
+        expected.put(2, 10);
+        Random random = new Random(17);
+        for(int i = 0; i < 100000; i++) {
+            // keys share hash clusters so that removal has to shift entries back
+            int key = random.nextInt(2000) * 64;
+            if(random.nextInt(4) == 0) {
+                Integer count = expected.remove(key);
+                assertThat(counter.remove(key)).isEqualTo(count == null ? 0 : count);
+            } else {
+                int delta = random.nextInt(5) - 1;
+                int count = expected.getOrDefault(key, 0) + delta;
+                if(count == 0)
+                    expected.remove(key);
+                else
+                    expected.put(key, count);
+                assertThat(counter.add(key, delta)).isEqualTo(count);
+            }
+        }
+        assertThat(counter.size()).isEqualTo(expected.size());
+        for(int key: expected.keySet())
+            assertThat(counter.get(key)).isEqualTo(expected.get(key));
+        int[] seen = { 0 };
+        counter.forEach((k, c) -> {
+            assertThat(c).isEqualTo(expected.get(k));
+            seen[0]++;
+        });
+        assertThat(seen[0]).isEqualTo(expected.size());
+    }
+
+    @Test
+    public void addAll() {
+        ObjectIntCounter<Integer> other = new ObjectIntCounter<>();
+        other.add(2, 5);
+        other.add(7, 1);
+        counter.addAll(other);
+        assertThat(counter.get(1)).isEqualTo(3);
+        assertThat(counter.get(2)).isEqualTo(15);
+        assertThat(counter.get(7)).isEqualTo(1);
+        counter.clear();
+        assertThat(counter.size()).isEqualTo(0);
+        assertThat(counter.get(2)).isEqualTo(0);
+    }
+}
@@ -0,0 +1,110 @@
+package tests.maps;
+
+import maps.Codecs;
+import maps.OffHeapHashMap;
+import org.junit.Before;
+import org.junit.Test;
+import util.Entry;
+
+import java.util.HashMap;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+
+public class OffHeapHashMapTest {
+    OffHeapHashMap<String, Integer> map;
+
+    @Before
+    public void createMap() {
+        map = new OffHeapHashMap<>(Codecs.STRING, Codecs.INTEGER);
+        map.put("one", 1);
+        map.put("two", 2);
+    }
+
+    @Test
+    public void get() {
+        assertThat(map.get("one")).isEqualTo(1);
+        assertThat(map.get("two")).isEqualTo(2);
+        assertThat(map.get("three")).isNull();
+    }
+
+    @Test
+    public void putAndRemove() {
+        assertThat(map.put("one", 100)).isEqualTo(1);
+        assertThat(map.get("one")).isEqualTo(100);
+        assertThat(map.size()).isEqualTo(2);
+        assertThat(map.remove("one")).isEqualTo(100);
+        assertThat(map.remove("one")).isNull();
+        assertThat(map.get("one")).isNull();
+        assertThat(map.size()).isEqualTo(1);
+    }
+
+    @Test
+    public void unicodeKeys() {
+        map.put("\u00e9t\u00e9", 3);
+        map.put("\u6f22\u5b57", 4);
+        map.put("\ud83d\ude00", 5);
+        assertThat(map.get("\u00e9t\u00e9")).isEqualTo(3);
+        assertThat(map.get("\u6f22\u5b57")).isEqualTo(4);
+        assertThat(map.get("\ud83d\ude00")).isEqualTo(5);
+        assertThat(map.keySet()).contains("\ud83d\ude00");
+    }
+
+    @Test
+    public void byteArrayKeys() {
+        OffHeapHashMap<byte[], Long> m = new OffHeapHashMap<>(Codecs.BYTES, Codecs.LONG);
+        m.put(new byte[]{1, 2, 3}, 6L);
+        // keys are compared by their bytes, not by identity
+        assertThat(m.get(new byte[]{1, 2, 3})).isEqualTo(6L);
+        assertThat(m.get(new byte[]{1, 2})).isNull();
+    }
+
+    @Test
+    public void churnWithCompaction() {
+        // small chunks so that compaction runs many times
+        OffHeapHashMap<String, Integer> m = new OffHeapHashMap<>(Codecs.STRING, Codecs.INTEGER, 4, 256);
+        HashMap<String, Integer> expected = new HashMap<>();
+        for(int round = 0; round < 10; round++) {
+            for(int i = 0; i < 500; i++) {
+                m.put("key" + i, i * round);
+                expected.put("key" + i, i * round);
+            }
+            for(int i = round; i < 500; i += 7) {
+                m.remove("key" + i);
+                expected.remove("key" + i);
+            }
+        }
+        assertThat(m.size()).isEqualTo(expected.size());
+        for(int i = 0; i < 500; i++)
+            assertThat(m.get("key" + i)).isEqualTo(expected.get("key" + i));
+        int count = 0;
+        for(Entry<String, Integer> e: m.entrySet()) {
+            assertThat(e.getValue()).isEqualTo(expected.get(e.getKey()));
+            count++;
+        }
+        assertThat(count).isEqualTo(expected.size());
+        long before = m.offHeapBytes();
+        m.compact();
+        assertThat(m.offHeapBytes()).isLessThanOrEqualTo(before);
+    }
+
+    @Test(timeout = 10000)
+    public void churnWithDefaultChunks() {
+        // fresh keys every time, so removed slots never get reused by the same key
+        OffHeapHashMap<String, Integer> m = new OffHeapHashMap<>(Codecs.STRING, Codecs.INTEGER);
+        for(int i = 0; i < 100000; i++) {
+            m.put("key" + i, i);
+            assertThat(m.remove("key" + i)).isEqualTo(i);
+        }
+        assertThat(m.size()).isEqualTo(0);
+        assertThat(m.get("missing")).isNull();
+        assertThat(m.offHeapBytes()).isLessThan(8L << 20);
+    }
+
+    @Test
+    public void close() {
+        map.close();
+        assertThatThrownBy(() -> map.get("one")).isInstanceOf(IllegalStateException.class);
+        assertThatThrownBy(() -> map.put("one", 1)).isInstanceOf(IllegalStateException.class);
+    }
+}
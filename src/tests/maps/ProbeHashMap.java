@@ -55,7 +55,112 @@ public class ProbeHashMap {
         assertThat(map.size()).isEqualTo(s1 - 1);
     }
 
+    @Test
+    public void incrementalResize() {
+        maps.ProbeHashMap<Integer, Integer> m = new maps.ProbeHashMap<>();
+        m.setIncrementalResize(true);
+        java.util.Map<Integer, Integer> expected = new java.util.HashMap<>();
+        for(int i = 0; i < 1000; i++) {
+            m.put(i, i * 2);
+            expected.put(i, i * 2);
+            if(i % 7 == 0) {
+                m.remove(i / 2);
+                expected.remove(i / 2);
+            }
+        }
+        assertThat(m.size()).isEqualTo(expected.size());
+        for(int i = 0; i < 1000; i++)
+            assertThat(m.get(i)).isEqualTo(expected.get(i));
+        int count = 0;
+        for(Integer key: m.keySet())
+            count++;
+        assertThat(count).isEqualTo(m.size());
+        m.setIncrementalResize(false);
+        assertThat(m.isResizing()).isFalse();
+    }
 
-}
+    @Test
+    public void liveIteration() {
+        ChainHashMapTest.assertLiveIteration(new maps.ProbeHashMap<>());
+    }
+
+    @Test
+    public void shrinkAfterPurge() {
+        maps.ProbeHashMap<Integer, Integer> m = new maps.ProbeHashMap<>();
+        for(int i = 0; i < 10000; i++)
+            m.put(i, i);
+        int peak = m.distributionReport().capacity();
+        for(int i = 0; i < 10000; i++)
+            if(i % 10 != 0)
+                m.remove(i);
+        assertThat(m.size()).isEqualTo(1000);
+        assertThat(m.distributionReport().capacity()).isLessThan(peak / 2);
+        for(int i = 0; i < 10000; i++)
+            assertThat(m.get(i)).isEqualTo(i % 10 == 0 ? i : null);
+        // never shrinks below the initial capacity on its own
+        for(int i = 0; i < 10000; i += 10)
+            m.remove(i);
+        assertThat(m.distributionReport().capacity()).isEqualTo(17);
+    }
 
+    @Test
+    public void trimToSize() {
+        maps.ProbeHashMap<Integer, Integer> m = new maps.ProbeHashMap<>(1000);
+        // churn leaves DEFUNCT slots behind without shrinking
+        for(int round = 0; round < 20; round++)
+            for(int i = 0; i < 100; i++) {
+                m.put(round * 100 + i, i);
+                m.remove(round * 100 + i);
+            }
+        m.put(7, 7);
+        m.trimToSize();
+        assertThat(m.distributionReport().capacity()).isEqualTo(2);
+        assertThat(m.get(7)).isEqualTo(7);
+        m.put(8, 8);
+        assertThat(m.get(8)).isEqualTo(8);
+    }
+
+    @Test
+    public void computeAndMerge() {
+        assertThat(map.getOrDefault(1, 0)).isEqualTo(3);
+        assertThat(map.getOrDefault(7, 0)).isEqualTo(0);
+        assertThat(map.putIfAbsent(1, 50)).isEqualTo(3);
+        assertThat(map.putIfAbsent(7, 70)).isNull();
+        assertThat(map.get(7)).isEqualTo(70);
+        assertThat(map.merge(1, 1, Integer::sum)).isEqualTo(4);
+        assertThat(map.merge(8, 1, Integer::sum)).isEqualTo(1);
+        assertThat(map.computeIfAbsent(9, k -> k * 10)).isEqualTo(90);
+        assertThat(map.computeIfAbsent(9, k -> -1)).isEqualTo(90);
+        // a null result removes the entry
+        assertThat(map.compute(2, (k, v) -> null)).isNull();
+        assertThat(map.get(2)).isNull();
+        assertThat(map.compute(2, (k, v) -> null)).isNull();
+        assertThat(map.size()).isEqualTo(4);
+        // counting words, one lookup per update
+        for(int i = 0; i < 1000; i++)
+            map.merge(100 + i % 10, 1, Integer::sum);
+        for(int i = 0; i < 10; i++)
+            assertThat(map.get(100 + i)).isEqualTo(100);
+        assertThat(map.size()).isEqualTo(14);
+    }
 
+    @Test
+    public void purgeInPlace() {
+        // keys sharing a few clusters, inserted and removed at a stable size
+        maps.ProbeHashMap<Integer, Integer> m = new maps.ProbeHashMap<>(101);
+        java.util.Map<Integer, Integer> expected = new java.util.HashMap<>();
+        java.util.Random random = new java.util.Random(3);
+        for(int i = 0; i < 20000; i++) {
+            int key = random.nextInt(40) * 101 + random.nextInt(3);
+            if(expected.size() > 30)
+                assertThat(m.remove(key)).isEqualTo(expected.remove(key));
+            else
+                assertThat(m.put(key, i)).isEqualTo(expected.put(key, i));
+        }
+        // the DEFUNCT slots were purged without changing the capacity
+        assertThat(m.distributionReport().capacity()).isEqualTo(101);
+        assertThat(m.size()).isEqualTo(expected.size());
+        for(int key = 0; key < 40 * 101; key++)
+            assertThat(m.get(key)).isEqualTo(expected.get(key));
+    }
+}
@@ -0,0 +1,79 @@
+package tests.maps;
+
+import maps.Map;
+import maps.RobinHoodHashMap;
+import org.junit.Before;
+import org.junit.Test;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+public class RobinHoodHashMapTest {
+    RobinHoodHashMap<Integer, Integer> map;
+
+    @Before
+    public void createMap() {
+        map = new RobinHoodHashMap<>();
+        map.put(1, 3);
+        map.put(2, 10);
+    }
+
+    @Test
+    public void get() {
+        assertThat(map.get(1)).isEqualTo(3);
+        assertThat(map.get(2)).isNotEqualTo(5);
+        assertThat(map.get(3)).isNull();
+    }
+
+    @Test
+    public void size() {
+        assertThat(map.size()).isEqualTo(2);
+        map.put(1, 100);
+        assertThat(map.size()).isEqualTo(2);
+        map.put(5, 50);
+        assertThat(map.size()).isEqualTo(3);
+        map.remove(5);
+        assertThat(map.size()).isEqualTo(2);
+        map.remove(10);
+        assertThat(map.size()).isEqualTo(2);
+    }
+
+    @Test
+    public void remove() {
+        assertThat(map.remove(100)).isNull();
+        assertThat(map.remove(1)).isEqualTo(3);
+        assertThat(map.get(1)).isNull();
+        assertThat(map.get(2)).isEqualTo(10);
+    }
+
+    @Test
+    public void churn() {
+        Map<Integer, Integer> m = map;
+        for(int round = 0; round < 5; round++) {
+            for(int i = 0; i < 300; i++)
+                m.put(i, i + round);
+            for(int i = 0; i < 300; i += 3)
+                m.remove(i);
+            for(int i = 0; i < 300; i++)
+                assertThat(m.get(i)).isEqualTo(i % 3 == 0 ? null : i + round);
+        }
+        assertThat(m.size()).isEqualTo(200);
+    }
+
+    @Test
+    public void probeLengthStatistics() {
+        for(int i = 0; i < 100; i++)
+            map.put(i, i);
+        int[] histogram = map.probeLengthHistogram();
+        int total = 0;
+        for(int count: histogram)
+            total += count;
+        assertThat(total).isEqualTo(map.size());
+        assertThat(histogram.length).isEqualTo(map.maxProbeLength() + 1);
+        // backward shift deletion leaves nothing behind
+        for(int i = 0; i < 100; i++)
+            map.remove(i);
+        assertThat(map.size()).isEqualTo(0);
+        assertThat(map.maxProbeLength()).isEqualTo(0);
+        assertThat(map.averageProbeLength()).isEqualTo(0.0);
+    }
+}
@@ -156,6 +156,27 @@ public class SortedTableMapTest {
         return list;
     }
 
+    @Test
+    public void computeAndMerge() {
+        assertThat(map.getOrDefault(1, 0)).isEqualTo(3);
+        assertThat(map.getOrDefault(7, 0)).isEqualTo(0);
+        assertThat(map.putIfAbsent(1, 50)).isEqualTo(3);
+        assertThat(map.putIfAbsent(7, 70)).isNull();
+        assertThat(map.get(7)).isEqualTo(70);
+        assertThat(map.merge(1, 1, Integer::sum)).isEqualTo(4);
+        assertThat(map.merge(8, 1, Integer::sum)).isEqualTo(1);
+        assertThat(map.computeIfAbsent(9, k -> k * 10)).isEqualTo(90);
+        assertThat(map.computeIfAbsent(9, k -> -1)).isEqualTo(90);
+        // a null result removes the entry
+        assertThat(map.compute(2, (k, v) -> null)).isNull();
+        assertThat(map.get(2)).isNull();
+        assertThat(map.compute(2, (k, v) -> null)).isNull();
+        assertThat(map.size()).isEqualTo(4);
+        // counting words, one lookup per update
+        for(int i = 0; i < 1000; i++)
+            map.merge(100 + i % 10, 1, Integer::sum);
+        for(int i = 0; i < 10; i++)
+            assertThat(map.get(100 + i)).isEqualTo(100);
+        assertThat(map.size()).isEqualTo(14);
+    }
 }
-
-
@@ -0,0 +1,87 @@
+package tests.maps;
+
+import maps.SwissHashMap;
+import org.junit.Before;
+import org.junit.Test;
+import util.Entry;
+
+import java.util.ConcurrentModificationException;
+import java.util.HashMap;
+import java.util.Iterator;
+import java.util.Random;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+
+public class SwissHashMapTest {
+    SwissHashMap<Integer, Integer> map;
+
+    @Before
+    public void createMap() {
+        map = new SwissHashMap<>();
+        map.put(1, 3);
+        map.put(2, 10);
+    }
+
+    @Test
+    public void get() {
+        assertThat(map.get(1)).isEqualTo(3);
+        assertThat(map.get(2)).isNotEqualTo(5);
+        assertThat(map.get(3)).isNull();
+    }
+
+    @Test
+    public void putAndRemove() {
+        assertThat(map.put(1, 100)).isEqualTo(3);
+        assertThat(map.size()).isEqualTo(2);
+        assertThat(map.remove(1)).isEqualTo(100);
+        assertThat(map.remove(1)).isNull();
+        assertThat(map.get(2)).isEqualTo(10);
+        assertThat(map.size()).isEqualTo(1);
+    }
+
+    @Test
+    public void churn() {
+        HashMap<Integer, Integer> expected = new HashMap<>();
+        expected.put(1, 3);
+        expected.put(2, 10);
+        Random random = new Random(11);
+        // small key range so that groups fill up and DELETED slots are reused
+        for(int i = 0; i < 50000; i++) {
+            int key = random.nextInt(i < 25000 ? 3000 : 60);
+            if(random.nextBoolean())
+                assertThat(map.remove(key)).isEqualTo(expected.remove(key));
+            else
+                assertThat(map.put(key, i)).isEqualTo(expected.put(key, i));
+        }
+        assertThat(map.size()).isEqualTo(expected.size());
+        for(int key = 0; key < 3000; key++)
+            assertThat(map.get(key)).isEqualTo(expected.get(key));
+        int count = 0;
+        for(Entry<Integer, Integer> e: map.entrySet()) {
+            assertThat(e.getValue()).isEqualTo(expected.get(e.getKey()));
+            count++;
+        }
+        assertThat(count).isEqualTo(expected.size());
+    }
+
+    @Test
+    public void collidingKeys() {
+        SwissHashMap<ChainHashMapTest.CollidingKey, Integer> m = new SwissHashMap<>();
+        for(int i = 0; i < 100; i++)
+            m.put(new ChainHashMapTest.CollidingKey(i), i);
+        for(int i = 0; i < 100; i += 2)
+            assertThat(m.remove(new ChainHashMapTest.CollidingKey(i))).isEqualTo(i);
+        for(int i = 0; i < 100; i++)
+            assertThat(m.get(new ChainHashMapTest.CollidingKey(i))).isEqualTo(i % 2 == 0 ? null : i);
+        assertThat(m.size()).isEqualTo(50);
+    }
+
+    @Test
+    public void failFastIteration() {
+        Iterator<Entry<Integer, Integer>> it = map.entrySet().iterator();
+        it.next();
+        map.put(3, 30);
+        assertThatThrownBy(it::next).isInstanceOf(ConcurrentModificationException.class);
+    }
+}
@@ -0,0 +1,158 @@
+package tests.maps;
+
+import maps.Map;
+import maps.TinyLfuCache;
+import org.junit.Before;
+import org.junit.Test;
+import util.Entry;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Random;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+
+public class TinyLfuCacheTest {
+    TinyLfuCache<Integer, Integer> map;
+
+    @Before
+    public void createMap() {
+        // maintenance runs in the calling thread, so that tests are deterministic
+        map = new TinyLfuCache<>(100, 0, TimeUnit.NANOSECONDS, Runnable::run, System::nanoTime);
+        map.put(1, 3);
+        map.put(2, 10);
+    }
+
+    @Test
+    public void get() {
+        assertThat(map.get(1)).isEqualTo(3);
+        assertThat(map.get(2)).isNotEqualTo(5);
+        assertThat(map.get(3)).isNull();
+        assertThat(map.hitCount()).isEqualTo(2L);
+        assertThat(map.missCount()).isEqualTo(1L);
+    }
+
+    @Test
+    public void putAndRemove() {
+        assertThat(map.put(1, 100)).isEqualTo(3);
+        assertThat(map.size()).isEqualTo(2);
+        assertThat(map.remove(1)).isEqualTo(100);
+        assertThat(map.remove(1)).isNull();
+        assertThat(map.get(2)).isEqualTo(10);
+        assertThat(map.size()).isEqualTo(1);
+        assertThatThrownBy(() -> new TinyLfuCache<>(0)).isInstanceOf(IllegalArgumentException.class);
+    }
+
+    @Test
+    public void computeAndMerge() {
+        assertThat(map.merge(1, 5, Integer::sum)).isEqualTo(8);
+        assertThat(map.merge(7, 5, Integer::sum)).isEqualTo(5);
+        assertThat(map.computeIfAbsent(7, k -> 0)).isEqualTo(5);
+        assertThat(map.putIfAbsent(2, 0)).isEqualTo(10);
+        assertThat(map.compute(2, (k, v) -> null)).isNull();
+        assertThat(map.get(2)).isNull();
+        assertThat(map.size()).isEqualTo(2);
+    }
+
+    @Test
+    public void sizeIsBounded() {
+        for(int i = 0; i < 1000; i++)
+            map.put(i, i);
+        map.cleanUp();
+        assertThat(map.size()).isEqualTo(100);
+        assertThat(map.evictionCount()).isEqualTo(900L);
+        for(Entry<Integer, Integer> e: map.entrySet())
+            assertThat(e.getValue()).isEqualTo(e.getKey());
+    }
+
+    @Test
+    public void scanResistance() {
+        for(int i = 0; i < 50; i++)
+            map.put(i, i);
+        // keys 0 to 49 keep being read while a long scan goes through the cache
+        for(int i = 0; i < 20000; i++) {
+            map.put(1000 + i, i);
+            map.get(i % 50);
+        }
+        map.cleanUp();
+        for(int i = 0; i < 50; i++)
+            assertThat(map.get(i)).isEqualTo(i);
+        assertThat(map.size()).isEqualTo(100);
+    }
+
+    @Test
+    public void rewriteSameValue() {
+        AtomicLong time = new AtomicLong();
+        TinyLfuCache<String, Integer> cache = new TinyLfuCache<>(100, 10, TimeUnit.NANOSECONDS, Runnable::run, time::get);
+        Integer value = 7;
+        cache.put("a", value);
+        cache.put("b", value);
+        time.addAndGet(9);
+        // the very same value, put again just before it expires, is still a write
+        assertThat(cache.put("a", value)).isSameAs(value);
+        // finding the key present is only a read
+        assertThat(cache.computeIfAbsent("b", k -> 0)).isSameAs(value);
+        assertThat(cache.putIfAbsent("b", 0)).isSameAs(value);
+        time.addAndGet(5);
+        cache.cleanUp();
+        assertThat(cache.get("a")).isEqualTo(7);
+        assertThat(cache.get("b")).isNull();
+    }
+
+    @Test
+    public void expireAfterWrite() {
+        AtomicLong time = new AtomicLong();
+        TinyLfuCache<Integer, Integer> cache = new TinyLfuCache<>(100, 10, TimeUnit.NANOSECONDS, Runnable::run, time::get);
+        cache.put(1, 1);
+        time.addAndGet(5);
+        cache.put(2, 2);
+        time.addAndGet(6);
+        assertThat(cache.get(1)).isNull();
+        assertThat(cache.get(2)).isEqualTo(2);
+        // an expired entry is absent for compute
+        assertThat(cache.merge(1, 5, Integer::sum)).isEqualTo(5);
+        time.addAndGet(5);
+        cache.cleanUp();
+        // 2 was written 11 ago, 1 was rewritten 5 ago
+        assertThat(cache.size()).isEqualTo(1);
+        assertThat(cache.get(1)).isEqualTo(5);
+        int count = 0;
+        for(Entry<Integer, Integer> e: cache.entrySet())
+            count++;
+        assertThat(count).isEqualTo(1);
+    }
+
+    @Test
+    public void concurrentUpdates() throws InterruptedException {
+        Map<Integer, Integer> cache = new TinyLfuCache<>(100);
+        List<Thread> threads = new ArrayList<>();
+        for(int t = 0; t < 4; t++) {
+            int seed = t;
+            threads.add(new Thread(() -> {
+                Random random = new Random(seed);
+                for(int i = 0; i < 50000; i++) {
+                    int key = random.nextInt(500);
+                    switch(random.nextInt(3)) {
+                        case 0: cache.put(key, key); break;
+                        case 1: cache.remove(key); break;
+                        default:
+                            Integer value = cache.get(key);
+                            if(value != null)
+                                assertThat(value).isEqualTo(key);
+                    }
+                }
+            }));
+        }
+        for(Thread thread: threads)
+            thread.start();
+        for(Thread thread: threads)
+            thread.join();
+        ((TinyLfuCache<Integer, Integer>) cache).cleanUp();
+        assertThat(cache.size()).isLessThanOrEqualTo(100);
+        for(Entry<Integer, Integer> e: cache.entrySet())
+            assertThat(e.getValue()).isEqualTo(e.getKey());
+    }
+}
@@ -0,0 +1,76 @@
+package tests.maps;
+
+import maps.HeavyHitters;
+import maps.ObjectIntCounter;
+import maps.TopK;
+import org.junit.Before;
+import org.junit.Test;
+import util.Entry;
+
+import java.util.List;
+import java.util.Random;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+
+public class TopKTest {
+    TopK<String> top;
+
+    @Before
+    public void createTopK() {
+        top = new TopK<>(3);
+        top.offer("a", 3);
+        top.offer("b", 10);
+    }
+
+    @Test
+    public void offer() {
+        assertThat(top.threshold()).isEqualTo(Integer.MIN_VALUE);
+        assertThat(top.offer("c", 1)).isTrue();
+        assertThat(top.threshold()).isEqualTo(1);
+        assertThat(top.offer("d", 1)).isFalse();
+        assertThat(top.offer("e", 7)).isTrue();
+        List<Entry<String, Integer>> result = top.result();
+        assertThat(result).hasSize(3);
+        assertThat(result.get(0).getKey()).isEqualTo("b");
+        assertThat(result.get(1).getKey()).isEqualTo("e");
+        assertThat(result.get(2).getKey()).isEqualTo("a");
+        // result does not consume the top k
+        assertThat(top.result()).hasSize(3);
+        assertThatThrownBy(() -> new TopK<>(0)).isInstanceOf(IllegalArgumentException.class);
+    }
+
+    @Test
+    public void ofCounter() {
+        ObjectIntCounter<Integer> counter = new ObjectIntCounter<>();
+        for(int i = 0; i < 1000; i++)
+            counter.add(i, (i * 37) % 1000);
+        List<Entry<Integer, Integer>> result = TopK.of(counter, 5);
+        for(int i = 0; i < 5; i++)
+            assertThat(result.get(i).getValue()).isEqualTo(999 - i);
+    }
+
+    @Test
+    public void heavyHitters() {
+        HeavyHitters<Integer> summary = new HeavyHitters<>(20);
+        ObjectIntCounter<Integer> exact = new ObjectIntCounter<>();
+        Random random = new Random(31);
+        for(int i = 0; i < 200000; i++) {
+            // keys 0 to 4 make up half of a stream of 100000 distinct keys
+            int key = random.nextBoolean() ? random.nextInt(5) : 5 + random.nextInt(100000);
+            int weight = 1 + random.nextInt(3);
+            summary.offer(key, weight);
+            exact.add(key, weight);
+        }
+        assertThat(summary.size()).isLessThanOrEqualTo(20);
+        assertThat(summary.errorBound()).isLessThanOrEqualTo(summary.totalWeight() / 21);
+        for(int key = 0; key < 10; key++) {
+            assertThat(summary.estimate(key)).isLessThanOrEqualTo(exact.get(key));
+            assertThat(summary.estimate(key) + summary.errorBound()).isGreaterThanOrEqualTo((long) exact.get(key));
+        }
+        List<Entry<Integer, Integer>> result = summary.topK(5);
+        assertThat(result).hasSize(5);
+        for(Entry<Integer, Integer> e: result)
+            assertThat(e.getKey()).isLessThan(5);
+    }
+}
@@ -0,0 +1,97 @@
+package tests.maps;
+
+import maps.UnsortedTableMap;
+import org.junit.Before;
+import org.junit.Test;
+import util.Entry;
+
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.Random;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+public class UnsortedTableMapTest {
+    UnsortedTableMap<Integer, Integer> map;
+
+    @Before
+    public void createMap() {
+        map = new UnsortedTableMap<>();
+        map.put(1, 3);
+        map.put(2, 10);
+    }
+
+    private static ArrayList<Integer> keys(UnsortedTableMap<Integer, Integer> m) {
+        ArrayList<Integer> keys = new ArrayList<>();
+        for(Entry<Integer, Integer> e: m.entrySet())
+            keys.add(e.getKey());
+        return keys;
+    }
+
+    @Test
+    public void get() {
+        assertThat(map.get(1)).isEqualTo(3);
+        assertThat(map.get(2)).isNotEqualTo(5);
+        assertThat(map.get(3)).isNull();
+        // without a heuristic reads leave the order alone
+        assertThat(keys(map)).containsExactly(1, 2);
+    }
+
+    @Test
+    public void equalHashCodes() {
+        UnsortedTableMap<ChainHashMapTest.CollidingKey, Integer> m = new UnsortedTableMap<>();
+        for(int i = 0; i < 10; i++)
+            m.put(new ChainHashMapTest.CollidingKey(i), i);
+        for(int i = 0; i < 10; i++)
+            assertThat(m.get(new ChainHashMapTest.CollidingKey(i))).isEqualTo(i);
+        assertThat(m.remove(new ChainHashMapTest.CollidingKey(4))).isEqualTo(4);
+        assertThat(m.get(new ChainHashMapTest.CollidingKey(4))).isNull();
+        assertThat(m.size()).isEqualTo(9);
+    }
+
+    @Test
+    public void moveToFront() {
+        UnsortedTableMap<Integer, Integer> m = new UnsortedTableMap<>(UnsortedTableMap.Reorder.MOVE_TO_FRONT);
+        for(int i = 0; i < 5; i++)
+            m.put(i, i);
+        m.get(3);
+        assertThat(keys(m)).containsExactly(3, 0, 1, 2, 4);
+        m.put(4, 40);
+        assertThat(keys(m)).containsExactly(4, 3, 0, 1, 2);
+        // remove moves the last entry into the hole
+        m.remove(3);
+        assertThat(keys(m)).containsExactly(4, 2, 0, 1);
+        assertThat(m.get(4)).isEqualTo(40);
+    }
+
+    @Test
+    public void transpose() {
+        UnsortedTableMap<Integer, Integer> m = new UnsortedTableMap<>(UnsortedTableMap.Reorder.TRANSPOSE);
+        for(int i = 0; i < 5; i++)
+            m.put(i, i);
+        m.get(3);
+        assertThat(keys(m)).containsExactly(0, 1, 3, 2, 4);
+        m.merge(3, 10, Integer::sum);
+        m.get(3);
+        assertThat(keys(m)).containsExactly(3, 0, 1, 2, 4);
+        assertThat(m.get(3)).isEqualTo(13);
+    }
+
+    @Test
+    public void churn() {
+        for(UnsortedTableMap.Reorder reorder: UnsortedTableMap.Reorder.values()) {
+            UnsortedTableMap<Integer, Integer> m = new UnsortedTableMap<>(reorder);
+            HashMap<Integer, Integer> expected = new HashMap<>();
+            Random random = new Random(3);
+            for(int i = 0; i < 20000; i++) {
+                int key = random.nextInt(100);
+                switch(random.nextInt(3)) {
+                    case 0: assertThat(m.put(key, i)).isEqualTo(expected.put(key, i)); break;
+                    case 1: assertThat(m.remove(key)).isEqualTo(expected.remove(key)); break;
+                    default: assertThat(m.get(key)).isEqualTo(expected.get(key));
+                }
+            }
+            assertThat(m.size()).isEqualTo(expected.size());
+        }
+    }
+}
@@ -0,0 +1,104 @@
+package tests.maps;
+
+import maps.ObjectIntCounter;
+import maps.WindowedCounter;
+import org.junit.Before;
+import org.junit.Test;
+
+import java.util.Random;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+
+public class WindowedCounterTest {
+    WindowedCounter<String> counter;
+
+    @Before
+    public void createCounter() {
+        // a window of 60 moving by 10
+        counter = WindowedCounter.sliding(60, 10);
+        counter.add("a", 3);
+        counter.add("b", 10);
+    }
+
+    @Test
+    public void get() {
+        assertThat(counter.get("a")).isEqualTo(1);
+        assertThat(counter.get("b")).isEqualTo(1);
+        assertThat(counter.get("c")).isEqualTo(0);
+        assertThat(counter.windowStart()).isEqualTo(-40L);
+        assertThat(counter.windowEnd()).isEqualTo(20L);
+    }
+
+    @Test
+    public void sliding() {
+        counter.add("a", 55, 4);
+        assertThat(counter.get("a")).isEqualTo(5);
+        // slice [0, 10) leaves the window
+        counter.add("b", 65);
+        assertThat(counter.get("a")).isEqualTo(4);
+        assertThat(counter.get("b")).isEqualTo(2);
+        assertThat(counter.totalCount()).isEqualTo(6L);
+        // out of order but still in the window
+        assertThat(counter.add("c", 12)).isTrue();
+        // before the window
+        assertThat(counter.add("c", 5)).isFalse();
+        assertThat(counter.get("c")).isEqualTo(1);
+        // far ahead, everything expires
+        counter.advanceTo(1000);
+        assertThat(counter.size()).isEqualTo(0);
+        assertThat(counter.totalCount()).isEqualTo(0L);
+    }
+
+    @Test
+    public void tumbling() {
+        WindowedCounter<String> t = WindowedCounter.tumbling(10);
+        t.add("a", 0);
+        t.add("a", 9);
+        assertThat(t.get("a")).isEqualTo(2);
+        t.add("a", 10);
+        assertThat(t.get("a")).isEqualTo(1);
+        assertThat(t.add("a", 9)).isFalse();
+        assertThatThrownBy(() -> WindowedCounter.sliding(60, 7)).isInstanceOf(IllegalArgumentException.class);
+    }
+
+    @Test
+    public void topK() {
+        counter.add("b", 11, 5);
+        counter.add("c", 12, 2);
+        assertThat(counter.topK(2).get(0).getKey()).isEqualTo("b");
+        assertThat(counter.topK(2).get(1).getKey()).isEqualTo("c");
+        // the window is now [20, 80), everything else expired
+        counter.add("c", 75);
+        assertThat(counter.topK(2)).hasSize(1);
+        assertThat(counter.topK(2).get(0).getKey()).isEqualTo("c");
+        assertThat(counter.topK(2).get(0).getValue()).isEqualTo(1);
+    }
+
+    @Test
+    public void matchesRecount() {
+        WindowedCounter<Integer> w = WindowedCounter.sliding(100, 5);
+        Random random = new Random(37);
+        int[] keys = new int[50000];
+        long[] times = new long[50000];
+        long time = 0;
+        for(int i = 0; i < keys.length; i++) {
+            time += random.nextInt(3);
+            keys[i] = random.nextInt(50);
+            // a few events are late
+            times[i] = time - (random.nextInt(10) == 0 ? random.nextInt(120) : 0);
+            w.add(keys[i], times[i]);
+            if(i % 5000 == 4999) {
+                ObjectIntCounter<Integer> expected = new ObjectIntCounter<>();
+                long end = w.windowEnd();
+                // the window only moves forward, so an event now in it was not dropped
+                long start = w.windowStart();
+                for(int j = 0; j <= i; j++)
+                    if(times[j] >= start && times[j] < end)
+                        expected.increment(keys[j]);
+                for(int key = 0; key < 50; key++)
+                    assertThat(w.get(key)).isEqualTo(expected.get(key));
+            }
+        }
+    }
+}
@@ -0,0 +1,112 @@
+package tests.maps;
+
+import maps.ObjectIntCounter;
+import maps.WordCounter;
+import org.junit.Before;
+import org.junit.Test;
+
+import java.io.ByteArrayInputStream;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.Channels;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.HashMap;
+import java.util.Random;
+import java.util.Scanner;
+import java.util.concurrent.ForkJoinPool;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+public class WordCounterTest {
+    WordCounter counter;
+
+    @Before
+    public void createCounter() {
+        counter = new WordCounter();
+        counter.count(ByteBuffer.wrap("My name is my name what's your name welcome to my town.".getBytes(StandardCharsets.US_ASCII)));
+    }
+
+    @Test
+    public void get() {
+        assertThat(counter.get("my")).isEqualTo(3);
+        assertThat(counter.get("NAME")).isEqualTo(3);
+        assertThat(counter.get("what")).isEqualTo(1);
+        assertThat(counter.get("s")).isEqualTo(1);
+        assertThat(counter.get("what's")).isEqualTo(0);
+        assertThat(counter.get("nobody")).isEqualTo(0);
+        assertThat(counter.size()).isEqualTo(9);
+        assertThat(counter.totalWords()).isEqualTo(13L);
+        assertThat(counter.topK(2).get(0).getValue()).isEqualTo(3);
+        assertThat(counter.topK(2).get(1).getValue()).isEqualTo(3);
+        assertThat(counter.topK(20)).hasSize(9);
+    }
+
+    /**
+     * Returns random text of words and delimiters, with some very long words
+     */
+    private static String randomText(Random random, int words) {
+        StringBuilder text = new StringBuilder();
+        for(int i = 0; i < words; i++) {
+            int length = random.nextInt(100) == 0 ? 70000 : 1 + random.nextInt(3);
+            for(int j = 0; j < length; j++)
+                text.append((char) ((random.nextBoolean() ? 'a' : 'A') + random.nextInt(4)));
+            text.append(" ,.\n\u00e9-".charAt(random.nextInt(6)));
+        }
+        return text.toString();
+    }
+
+    @Test
+    public void sameCountsAsScanner() throws IOException {
+        Random random = new Random(23);
+        String text = randomText(random, 20000);
+        HashMap<String, Integer> expected = new HashMap<>();
+        Scanner doc = new Scanner(text).useDelimiter("[^a-zA-Z]+");
+        while(doc.hasNext())
+            expected.merge(doc.next().toLowerCase(), 1, Integer::sum);
+        // words cross the boundaries of the chunks read from the channel
+        WordCounter fromChannel = new WordCounter();
+        fromChannel.count(Channels.newChannel(new ByteArrayInputStream(text.getBytes(StandardCharsets.ISO_8859_1))));
+        assertThat(fromChannel.size()).isEqualTo(expected.size());
+        ObjectIntCounter<String> counts = fromChannel.toCounter();
+        for(String word: expected.keySet())
+            assertThat(counts.get(word)).isEqualTo(expected.get(word));
+    }
+
+    @Test
+    public void countFileInParallel() throws IOException {
+        Random random = new Random(29);
+        byte[] text = randomText(random, 50000).getBytes(StandardCharsets.ISO_8859_1);
+        Path file = Files.createTempFile("words", ".txt");
+        try {
+            Files.write(file, text);
+            WordCounter sequential = new WordCounter();
+            sequential.count(ByteBuffer.wrap(text));
+            ForkJoinPool pool = new ForkJoinPool(4);
+            // small chunks, many of them ending inside a word
+            for(long chunkSize: new long[] { 1, 1000, 70001, text.length }) {
+                WordCounter parallel = WordCounter.countFile(file, pool, chunkSize);
+                assertThat(parallel.size()).isEqualTo(sequential.size());
+                assertThat(parallel.totalWords()).isEqualTo(sequential.totalWords());
+                sequential.forEach((word, count) -> assertThat(parallel.get(word)).isEqualTo(count));
+            }
+            pool.shutdown();
+            Files.write(file, new byte[0]);
+            assertThat(WordCounter.countFile(file).size()).isEqualTo(0);
+        } finally {
+            Files.delete(file);
+        }
+    }
+
+    @Test
+    public void addAll() {
+        WordCounter other = new WordCounter();
+        other.count(ByteBuffer.wrap("my town, your town".getBytes(StandardCharsets.US_ASCII)));
+        counter.addAll(other);
+        assertThat(counter.get("my")).isEqualTo(4);
+        assertThat(counter.get("town")).isEqualTo(3);
+        assertThat(counter.size()).isEqualTo(9);
+        assertThat(counter.totalWords()).isEqualTo(17L);
+    }
+}